@@ -0,0 +1,132 @@
+package compiler.bench;
+
+import java.lang.management.*;
+
+/**
+ * A minimal benchmark harness.
+ * 
+ * <p>
+ * Runs the benchmarked body a number of times to warm up the JIT compiler and
+ * then measures the wall-clock time and (if the JVM supports it) the number of
+ * bytes allocated by the current thread over a number of measured iterations.
+ * </p>
+ */
+public class Bench {
+
+	/**
+	 * The body of a benchmark.
+	 */
+	public interface Body {
+
+		/**
+		 * Performs one operation of the benchmark.
+		 * 
+		 * @throws Exception
+		 *             If the operation fails.
+		 */
+		public void run() throws Exception;
+
+	}
+
+	/** The number of warm-up iterations. */
+	public final int warmups;
+
+	/** The number of measured iterations. */
+	public final int iterations;
+
+	/**
+	 * Constructs a new benchmark harness.
+	 * 
+	 * @param warmups
+	 *            The number of warm-up iterations.
+	 * @param iterations
+	 *            The number of measured iterations.
+	 */
+	public Bench(int warmups, int iterations) {
+		this.warmups = warmups;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Measures the benchmark and prints out the result.
+	 * 
+	 * @param name
+	 *            The name of the benchmark.
+	 * @param bytes
+	 *            The number of input bytes processed by one operation (used
+	 *            for computing the throughput), or 0 if not applicable.
+	 * @param body
+	 *            The body of the benchmark.
+	 * @return The average time of one operation in nanoseconds.
+	 */
+	public double measure(String name, long bytes, Body body) {
+		return measure(name, bytes, null, body);
+	}
+
+	/**
+	 * Measures the benchmark and prints out the result.
+	 * 
+	 * @param name
+	 *            The name of the benchmark.
+	 * @param bytes
+	 *            The number of input bytes processed by one operation (used
+	 *            for computing the throughput), or 0 if not applicable.
+	 * @param setup
+	 *            Prepares the input of one operation (neither timed nor
+	 *            counted as allocation), or <code>null</code> if none.
+	 * @param body
+	 *            The body of the benchmark.
+	 * @return The average time of one operation in nanoseconds.
+	 */
+	public double measure(String name, long bytes, Body setup, Body body) {
+		try {
+			for (int i = 0; i < warmups; i++) {
+				if (setup != null)
+					setup.run();
+				body.run();
+			}
+			long minTime = Long.MAX_VALUE;
+			long totTime = 0;
+			long alloc = 0;
+			for (int i = 0; i < iterations; i++) {
+				if (setup != null)
+					setup.run();
+				long begAlloc = allocatedBytes();
+				long begTime = System.nanoTime();
+				body.run();
+				long time = System.nanoTime() - begTime;
+				alloc += allocatedBytes() - begAlloc;
+				minTime = Math.min(minTime, time);
+				totTime += time;
+			}
+			double avgTime = (double) totTime / iterations;
+			StringBuilder result = new StringBuilder();
+			result.append(String.format("%-40s %10.3f ms/op (min %10.3f)", name, avgTime / 1e6, minTime / 1e6));
+			if (bytes > 0)
+				result.append(String.format(" %9.2f MB/s", (bytes / 1e6) / (avgTime / 1e9)));
+			if (allocatedBytes() >= 0)
+				result.append(String.format(" %12d B/op", alloc / iterations));
+			System.out.println(result);
+			return avgTime;
+		} catch (Exception ex) {
+			throw new RuntimeException("Benchmark '" + name + "' failed.", ex);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 * 
+	 * @return The number of bytes allocated by the current thread, or -1 if
+	 *         the JVM does not support allocation measurement.
+	 */
+	public static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled())
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+}
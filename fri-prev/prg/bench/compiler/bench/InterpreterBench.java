@@ -0,0 +1,143 @@
+package compiler.bench;
+
+import java.io.*;
+
+import compiler.*;
+import compiler.phase.frames.*;
+import compiler.phase.imcode.*;
+import compiler.phase.lincode.*;
+import compiler.phase.seman.*;
+import compiler.phase.synan.*;
+
+/**
+ * Compares the engines executing the linearized intermediate code on
+ * compute-bound programs.
+ *
+ * <p>
+ * Usage: <code>java compiler.bench.InterpreterBench [fib|sieve|matmul|all]</code>
+ * </p>
+ *
+ * <p>
+ * Each program is compiled to the linearized intermediate code once and then
+ * executed by every engine (see option <code>--engine</code>); the output of
+ * the programs is discarded while measuring. The workloads are a doubly
+ * recursive function (calls and frames), the sieve of Eratosthenes (loops and
+ * array accesses) and a matrix multiplication (nested loops and arithmetic).
+ * </p>
+ */
+public class InterpreterBench {
+
+	/** The names of the workloads. */
+	private static final String[] names = { "fib", "sieve", "matmul" };
+
+	/** The programs of the workloads. */
+	private static final String[] programs = { "" //
+			+ "(printInt(fib(24)), none)\n" //
+			+ "where\n" //
+			+ "  fun fib(n : integer) : integer = (\n" //
+			+ "      if n < 2 then r = n else r = fib(n - 1) + fib(n - 2) end, r)\n" //
+			+ "    where var r : integer end\n" //
+			+ "  fun printInt(n : integer) : void\n" //
+			+ "end\n", //
+			"" //
+					+ "(for r = 1, 40 : (\n" //
+					+ "     count = 0,\n" //
+					+ "     for i = 2, 4095 : prime[i] = true end,\n" //
+					+ "     for i = 2, 4095 : if prime[i] then (\n" //
+					+ "         count = count + 1,\n" //
+					+ "         j = i + i,\n" //
+					+ "         while j < 4096 : (prime[j] = false, j = j + i) end) else none end end) end,\n" //
+					+ " printInt(count), none)\n" //
+					+ "where\n" //
+					+ "  var prime : arr [4096] boolean\n" //
+					+ "  var count : integer var r : integer var i : integer var j : integer\n" //
+					+ "  fun printInt(n : integer) : void\n" //
+					+ "end\n", //
+			"" //
+					+ "(for i = 0, 39 : for j = 0, 39 : (a[i][j] = i + j, b[i][j] = i - j) end end,\n" //
+					+ " for i = 0, 39 : for j = 0, 39 : (\n" //
+					+ "     s = 0,\n" //
+					+ "     for k = 0, 39 : s = s + a[i][k] * b[k][j] end,\n" //
+					+ "     c[i][j] = s) end end,\n" //
+					+ " s = 0,\n" //
+					+ " for i = 0, 39 : for j = 0, 39 : s = (s * 31 + c[i][j]) % 1000000007 end end,\n" //
+					+ " printInt(s), none)\n" //
+					+ "where\n" //
+					+ "  var a : arr [40] arr [40] integer\n" //
+					+ "  var b : arr [40] arr [40] integer\n" //
+					+ "  var c : arr [40] arr [40] integer\n" //
+					+ "  var s : integer var i : integer var j : integer var k : integer\n" //
+					+ "  fun printInt(n : integer) : void\n" //
+					+ "end\n" };
+
+	/** The engines compared. */
+	private static final String[] engines = { "interp", "closure", "jit" };
+
+	/**
+	 * Compiles the program to the linearized intermediate code.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 */
+	private static void compile(Task task) {
+		SynAn synAn = new SynAn(task);
+		task.prgAST = synAn.synAn();
+		synAn.close();
+		new SemAn(task);
+		(new EvalValue(task.prgAttrs)).visit(task.prgAST);
+		(new EvalDecl(task.prgAttrs)).visit(task.prgAST);
+		(new EvalTyp(task.prgAttrs)).visit(task.prgAST);
+		(new EvalMem(task.prgAttrs)).visit(task.prgAST);
+		(new EvalFrames(task.prgAttrs)).visit(task.prgAST);
+		(new EvalImcode(task.prgAttrs, task.fragments)).visit(task.prgAST);
+	}
+
+	/**
+	 * Executes the compiled program with the output discarded.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 */
+	private static void execute(Task task) {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try {
+			new LinCode(task);
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		String which = args.length > 0 ? args[0] : "all";
+		Thread thread = new Thread(null, () -> {
+			try {
+				Bench bench = new Bench(3, 10);
+				for (int p = 0; p < programs.length; p++) {
+					if (!which.equals("all") && !which.equals(names[p]))
+						continue;
+					File file = File.createTempFile(names[p], ".prev");
+					file.deleteOnExit();
+					try (Writer writer = new FileWriter(file)) {
+						writer.write(programs[p]);
+					}
+					Task compiled = null;
+					for (String engine : engines) {
+						Task task = new Task(new String[] { "--phase=lincode", "--engine=" + engine, file.getPath() });
+						if (compiled == null) {
+							compile(task);
+							compiled = task;
+						} else
+							task.fragments = compiled.fragments;
+						bench.measure(names[p] + " " + engine, 0, () -> execute(task));
+					}
+				}
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}, "bench", 1L << 30);
+		thread.start();
+		thread.join();
+	}
+
+}
@@ -0,0 +1,82 @@
+package compiler.bench;
+
+import java.io.*;
+
+import compiler.*;
+import compiler.phase.lexan.*;
+
+/**
+ * Measures the throughput of the lexical analyzer.
+ * 
+ * <p>
+ * Usage: <code>java compiler.bench.LexAnBench [size in MB]</code>
+ * </p>
+ * 
+ * <p>
+ * A synthetic corpus consisting of declarations, expressions, comments,
+ * character and string constants is written to a temporary file which is then
+ * repeatedly scanned until the end of file.
+ * </p>
+ */
+public class LexAnBench {
+
+	/** The lines the synthetic corpus is assembled from. */
+	private static final String[] lines = {
+			"# a comment line describing the following declarations\n",
+			"fun f_%d(x:integer,y:ptr rec{a:integer,b:arr[10]char}):integer =\n",
+			"\t(x_%d=x+y.a*%d-(x/7)%%3, if x<=y.a then x_%d=x_%d+1 else x_%d=0 end, x_%d)\n",
+			"\t\twhere var x_%d:integer var s_%d:string typ t_%d:arr[100]boolean end\n",
+			"var str_%d:string = \"a string with \\\"escapes\\\", \\n and \\t inside\"\n",
+			"\twhile (a_%d>=0)&(b!=null)|!c do a_%d=a_%d-1, c=(ch=='\\n') end\n",
+			"\tfor i_%d=0,%d: ^p_%d=@q_%d, ch='x', ok=true, nothing=none end\n", };
+
+	/**
+	 * Writes a synthetic corpus of (at least) the specified size.
+	 * 
+	 * @param file
+	 *            The file the corpus is written to.
+	 * @param size
+	 *            The size of the corpus in bytes.
+	 * @return The actual size of the corpus in bytes.
+	 * @throws IOException
+	 *             If the corpus cannot be written.
+	 */
+	public static long writeCorpus(File file, long size) throws IOException {
+		long written = 0;
+		try (Writer out = new BufferedWriter(new FileWriter(file))) {
+			for (int n = 0; written < size; n++) {
+				String line = String.format(lines[n % lines.length], n, n, n, n, n, n, n, n, n, n);
+				out.write(line);
+				written += line.length();
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Scans the specified file until the end of file.
+	 * 
+	 * @param task
+	 *            The compilation task describing the source file.
+	 * @return The number of symbols read.
+	 */
+	public static int scan(Task task) {
+		LexAn lexAn = new LexAn(task);
+		int symbols = 0;
+		while (lexAn.lexAn().token != Symbol.Token.EOF)
+			symbols++;
+		lexAn.close();
+		return symbols;
+	}
+
+	public static void main(String[] args) throws IOException {
+		long size = (args.length > 0 ? Long.parseLong(args[0]) : 8) * 1000 * 1000;
+		File file = File.createTempFile("lexan", ".prev");
+		file.deleteOnExit();
+		long bytes = writeCorpus(file, size);
+		Task task = new Task(new String[] { "--phase=lexan", file.getPath() });
+		System.out.println("Corpus: " + bytes + " bytes, " + scan(task) + " symbols.");
+		new Bench(5, 10).measure("lexan", bytes, () -> scan(task));
+	}
+
+}
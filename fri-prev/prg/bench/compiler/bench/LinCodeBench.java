@@ -0,0 +1,81 @@
+package compiler.bench;
+
+import java.util.*;
+
+import compiler.data.imc.*;
+
+/**
+ * Measures the linearization of the intermediate code on deeply nested
+ * expressions.
+ *
+ * <p>
+ * Usage: <code>java compiler.bench.LinCodeBench [depth]</code>
+ * </p>
+ *
+ * <p>
+ * Each workload is a single statement containing an expression nested to the
+ * specified depth: a chain of binary operations nested to the left and to the
+ * right, a chain of statement-expressions (as produced for nested blocks) and
+ * a chain of calls passing the result of the inner call as an argument.
+ * </p>
+ */
+public class LinCodeBench {
+
+	private static IMCStmt leftBinops(int depth) {
+		IMCExpr expr = new TEMP(TEMP.newTempName());
+		for (int d = 0; d < depth; d++)
+			expr = new BINOP(BINOP.Oper.ADD, expr, new CONST(d));
+		return new ESTMT(expr);
+	}
+
+	private static IMCStmt rightBinops(int depth) {
+		IMCExpr expr = new TEMP(TEMP.newTempName());
+		for (int d = 0; d < depth; d++)
+			expr = new BINOP(BINOP.Oper.MUL, new MEM(new CONST(8 * d), 8), expr);
+		return new ESTMT(expr);
+	}
+
+	private static IMCStmt sexprs(int depth) {
+		IMCExpr expr = new CONST(0);
+		for (int d = 0; d < depth; d++) {
+			Vector<IMCStmt> stmts = new Vector<IMCStmt>();
+			stmts.add(new MOVE(new TEMP(TEMP.newTempName()), new CONST(d)));
+			stmts.add(new LABEL(LABEL.newLabelName()));
+			expr = new SEXPR(new STMTS(stmts), new UNOP(UNOP.Oper.SUB, expr));
+		}
+		return new MOVE(new TEMP(TEMP.newTempName()), expr);
+	}
+
+	private static IMCStmt calls(int depth) {
+		IMCExpr expr = new CONST(0);
+		for (int d = 0; d < depth; d++) {
+			Vector<IMCExpr> args = new Vector<IMCExpr>();
+			Vector<Long> widths = new Vector<Long>();
+			args.add(new TEMP(TEMP.newTempName()));
+			widths.add(8L);
+			args.add(expr);
+			widths.add(8L);
+			expr = new CALL("_f", args, widths);
+		}
+		return new MOVE(new MEM(new NAME("_x"), 8), expr);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+		Thread thread = new Thread(null, () -> {
+			String[] names = { "left binops", "right binops", "sexprs", "calls" };
+			IMCStmt[] stmts = { leftBinops(depth), rightBinops(depth), sexprs(depth), calls(depth) };
+			Bench bench = new Bench(5, 10);
+			System.out.println("Depth " + depth + ".");
+			for (int s = 0; s < stmts.length; s++) {
+				final IMCStmt stmt = stmts[s];
+				System.out.println(names[s] + ": " + stmt.linCode().numStmts() + " linearized statements.");
+				bench.measure(names[s], 0, () -> stmt.linCode());
+			}
+		}, "bench", 1L << 30);
+		thread.start();
+		thread.join();
+	}
+
+}
@@ -0,0 +1,244 @@
+package compiler.bench;
+
+import java.io.*;
+import java.util.*;
+
+import compiler.*;
+import compiler.data.ast.attr.*;
+import compiler.data.cod.graph.*;
+import compiler.data.cod.wrapper.*;
+import compiler.data.frg.*;
+import compiler.phase.codegen.*;
+import compiler.phase.frames.*;
+import compiler.phase.imcode.*;
+import compiler.phase.regalloc.*;
+import compiler.phase.seman.*;
+import compiler.phase.synan.*;
+
+/**
+ * Measures each phase of the compiler separately.
+ *
+ * <p>
+ * Usage: <code>java compiler.bench.PhaseBench [small|medium|huge|all]</code>
+ * </p>
+ *
+ * <p>
+ * A program consisting of a number of units (each declaring a record type, an
+ * array, and a few functions using them) is compiled once to obtain the input
+ * of every phase. Each phase is then measured on its own: everything the
+ * phase depends on is recomputed before each operation but is not included in
+ * the measurement.
+ * </p>
+ */
+public class PhaseBench {
+
+	/** The corpus sizes (in units). */
+	private static final String[] sizeNames = { "small", "medium", "huge" };
+
+	private static final int[] sizes = { 10, 200, 2000 };
+
+	/** A unit of the program (formatted with the unit number). */
+	private static final String unit = "" //
+			+ "  typ node_%1$d : rec { v : integer, next : integer }\n" //
+			+ "  var pool_%1$d : arr [32] node_%1$d\n" //
+			+ "  var used_%1$d : integer\n" //
+			+ "  fun push_%1$d(v : integer) : void = (\n" //
+			+ "      pool_%1$d[used_%1$d].v = v,\n" //
+			+ "      pool_%1$d[used_%1$d].next = used_%1$d - 1,\n" //
+			+ "      used_%1$d = used_%1$d + 1,\n" //
+			+ "      none)\n" //
+			+ "  fun sum_%1$d() : integer = (\n" //
+			+ "      s = 0, k = used_%1$d - 1,\n" //
+			+ "      while k >= 0 : (s = s + pool_%1$d[k].v, k = pool_%1$d[k].next) end,\n" //
+			+ "      s)\n" //
+			+ "    where var s : integer var k : integer end\n" //
+			+ "  fun fact_%1$d(n : integer) : integer = (\n" //
+			+ "      if n <= 1 then res = 1 else res = n * fact_%1$d(n - 1) end,\n" //
+			+ "      for i = 1, 10 : (push_%1$d(i * i), res = res + sum_%1$d() %% 7) end,\n" //
+			+ "      res)\n" //
+			+ "    where var res : integer var i : integer end\n";
+
+	/**
+	 * Writes a program consisting of the specified number of units.
+	 *
+	 * @param file
+	 *            The file the program is written to.
+	 * @param units
+	 *            The number of units.
+	 * @return The size of the program in bytes.
+	 * @throws IOException
+	 *             If the program cannot be written.
+	 */
+	public static long writeCorpus(File file, int units) throws IOException {
+		long written = 0;
+		try (Writer out = new BufferedWriter(new FileWriter(file))) {
+			StringBuilder text = new StringBuilder();
+			text.append("(\n");
+			for (int u = 0; u < Math.min(units, 16); u++)
+				text.append(String.format("  printInt(fact_%d(%d)),\n", u, u));
+			text.append("  none\n)\nwhere\n");
+			out.write(text.toString());
+			written += text.length();
+			for (int u = 0; u < units; u++) {
+				String line = String.format(unit, u);
+				out.write(line);
+				written += line.length();
+			}
+			String end = "  fun printInt(n : integer) : void\nend\n";
+			out.write(end);
+			written += end.length();
+		}
+		return written;
+	}
+
+	/** The compilation task. */
+	private final Task task;
+
+	/** The size of the source file. */
+	private final long bytes;
+
+	private final Bench bench;
+
+	/** The attributes used by the operation being measured. */
+	private Attributes attrs;
+
+	/** The fragments used by the operation being measured. */
+	private HashMap<String, Fragment> fragments;
+
+	/** The generated code used by the operation being measured. */
+	private LinkedList<FragmentCode> codes;
+
+	private PhaseBench(Task task, long bytes, Bench bench) {
+		this.task = task;
+		this.bytes = bytes;
+		this.bench = bench;
+	}
+
+	/** Runs the specified evaluator of semantic analysis. */
+	private void eval(Attributes attrs, int eval) {
+		switch (eval) {
+		case 0:
+			(new EvalValue(attrs)).visit(task.prgAST);
+			break;
+		case 1:
+			(new EvalDecl(attrs)).visit(task.prgAST);
+			break;
+		case 2:
+			(new EvalTyp(attrs)).visit(task.prgAST);
+			break;
+		case 3:
+			(new EvalMem(attrs)).visit(task.prgAST);
+			break;
+		}
+	}
+
+	/** Runs the first few evaluators of semantic analysis. */
+	private void seman(Attributes attrs, int numEvals) {
+		for (int eval = 0; eval < numEvals; eval++)
+			eval(attrs, eval);
+	}
+
+	private void frames() {
+		attrs = new Attributes();
+		seman(attrs, 4);
+		(new EvalFrames(attrs)).visit(task.prgAST);
+	}
+
+	private void imcode() {
+		frames();
+		fragments = new HashMap<String, Fragment>();
+		(new EvalImcode(attrs, fragments)).visit(task.prgAST);
+	}
+
+	private void codegen(boolean graphs) {
+		codes = new LinkedList<FragmentCode>();
+		for (Fragment fragment : fragments.values()) {
+			if (fragment instanceof CodeFragment) {
+				GenerateCode generate = new GenerateCode((CodeFragment) fragment, fragments);
+				generate.generate();
+				FragmentCode code = generate.get();
+				if (graphs) {
+					code.codeGraph = new Graph(code);
+					code.regGraph = new RegGraph(code);
+				}
+				codes.add(code);
+			}
+		}
+	}
+
+	private void run(String size) {
+		String[] evals = { "seman.value", "seman.decl", "seman.typ", "seman.mem" };
+
+		bench.measure(size + " lexan", bytes, () -> LexAnBench.scan(task));
+		bench.measure(size + " synan", bytes, () -> {
+			SynAn synAn = new SynAn(task);
+			task.prgAST = synAn.synAn();
+			synAn.close();
+		});
+		for (int e = 0; e < evals.length; e++) {
+			final int eval = e;
+			bench.measure(size + " " + evals[e], 0, () -> {
+				attrs = new Attributes();
+				seman(attrs, eval);
+			}, () -> eval(attrs, eval));
+		}
+		bench.measure(size + " seman.fused", 0, () -> attrs = new Attributes(),
+				() -> (new FusedSemAn(attrs)).visit(task.prgAST));
+		bench.measure(size + " frames", 0, () -> {
+			attrs = new Attributes();
+			seman(attrs, 4);
+		}, () -> (new EvalFrames(attrs)).visit(task.prgAST));
+		bench.measure(size + " imcode", 0, () -> {
+			frames();
+			fragments = new HashMap<String, Fragment>();
+		}, () -> (new EvalImcode(attrs, fragments)).visit(task.prgAST));
+
+		imcode();
+		bench.measure(size + " lincode", 0, () -> {
+			for (Fragment fragment : fragments.values())
+				if ((fragment instanceof CodeFragment) && (((CodeFragment) fragment).stmt != null))
+					((CodeFragment) fragment).stmt.linCode();
+		});
+		bench.measure(size + " codegen", 0, () -> codegen(false));
+		bench.measure(size + " liveness", 0, () -> codegen(false), () -> {
+			for (FragmentCode code : codes)
+				code.codeGraph = new Graph(code);
+		});
+		bench.measure(size + " interference", 0, () -> {
+			codegen(false);
+			for (FragmentCode code : codes)
+				code.codeGraph = new Graph(code);
+		}, () -> {
+			for (FragmentCode code : codes)
+				code.regGraph = new RegGraph(code);
+		});
+		bench.measure(size + " coloring", 0, () -> codegen(true), () -> {
+			for (FragmentCode code : codes)
+				(new Coloring(code, 64)).assign();
+		});
+	}
+
+	public static void main(String[] args) throws Exception {
+		String which = args.length > 0 ? args[0] : "all";
+		Thread thread = new Thread(null, () -> {
+			try {
+				for (int s = 0; s < sizes.length; s++) {
+					if (!which.equals("all") && !which.equals(sizeNames[s]))
+						continue;
+					File file = File.createTempFile("phases", ".prev");
+					file.deleteOnExit();
+					long bytes = writeCorpus(file, sizes[s]);
+					Task task = new Task(new String[] { "--phase=regalloc", file.getPath() });
+					Bench bench = sizes[s] > 1000 ? new Bench(2, 3) : new Bench(5, 10);
+					System.out.println("Corpus " + sizeNames[s] + ": " + sizes[s] + " units, " + bytes + " bytes.");
+					(new PhaseBench(task, bytes, bench)).run(sizeNames[s]);
+				}
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}, "bench", 1L << 30);
+		thread.start();
+		thread.join();
+	}
+
+}
@@ -0,0 +1,438 @@
+package compiler.bench;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * A generator of well-typed PREV programs of arbitrary size.
+ *
+ * <p>
+ * Usage:
+ * <code>java compiler.bench.ProgramGenerator [--option=value ...] [file]</code>
+ * </p>
+ *
+ * <p>
+ * The shape of the program is controlled by the following options (the
+ * program is written to the standard output if no file is given):
+ * </p>
+ * <ul>
+ * <li><code>--funs</code>: the number of top-level functions;</li>
+ * <li><code>--scopes</code>: the nesting depth of functions, i.e., each
+ * top-level function contains a chain of <code>scopes-1</code> nested
+ * functions, each declared in the <code>where</code> scope of the previous
+ * one and accessing the variables of all enclosing functions;</li>
+ * <li><code>--types</code>: the nesting depth of record types, each record
+ * containing an integer, a nested record, an array of nested records and a
+ * pointer to a nested record;</li>
+ * <li><code>--exprs</code>: the depth of generated expressions;</li>
+ * <li><code>--loops</code>: the number of loops in each function;</li>
+ * <li><code>--iters</code>: the number of iterations of each loop;</li>
+ * <li><code>--pressure</code>: the number of local variables of each function
+ * that are combined by right-nested expressions, i.e., the number of values
+ * that must be kept in registers at the same time;</li>
+ * <li><code>--seed</code>: the seed of the pseudo-random generator.</li>
+ * </ul>
+ *
+ * <p>
+ * Apart from being well-typed, the generated programs terminate and can be
+ * executed by the interpreter of the linearized intermediate code: each
+ * function calls the previous top-level function and its own nested function
+ * only once and never from within a loop, the main program calls the last
+ * function (and thus all functions get executed), pointers are initialized
+ * before they are used, array indices are within bounds and only constants
+ * other than zero are used as divisors.
+ * </p>
+ */
+public class ProgramGenerator {
+
+	/** The number of top-level functions. */
+	public int numFuns = 100;
+
+	/** The nesting depth of functions. */
+	public int scopeDepth = 2;
+
+	/** The nesting depth of record types. */
+	public int typeDepth = 2;
+
+	/** The depth of expressions. */
+	public int exprDepth = 3;
+
+	/** The number of loops in each function. */
+	public int numLoops = 2;
+
+	/** The number of iterations of each loop. */
+	public int numIters = 10;
+
+	/** The number of local variables combined in each function. */
+	public int pressure = 8;
+
+	/** The seed of the pseudo-random generator. */
+	public long seed = 0;
+
+	/** The number of global integer variables. */
+	private static final int numGlobals = 4;
+
+	private Random random;
+
+	/** The program being generated. */
+	private StringBuilder text;
+
+	/** Integer variables that can be read at the current point. */
+	private final ArrayList<String> readVars = new ArrayList<String>();
+
+	/** Integer variables that can be written at the current point. */
+	private final ArrayList<String> writeVars = new ArrayList<String>();
+
+	/** Loop variables (all positive) that can be read at the current point. */
+	private final ArrayList<String> loopVars = new ArrayList<String>();
+
+	/**
+	 * Generates a program.
+	 *
+	 * @return The source of the program.
+	 */
+	public String generate() {
+		random = new Random(seed);
+		text = new StringBuilder();
+		readVars.clear();
+		writeVars.clear();
+		loopVars.clear();
+		for (int g = 0; g < numGlobals; g++) {
+			readVars.add("gi" + g);
+			writeVars.add("gi" + g);
+		}
+
+		text.append("(\n");
+		if (typeDepth >= 2)
+			text.append("  init" + typeDepth + "(@g),\n");
+		for (int g = 0; g < numGlobals; g++)
+			text.append("  gi" + g + " = " + (g + 1) + ",\n");
+		if (numFuns > 0)
+			text.append("  printInt(f" + (numFuns - 1) + args(numParams(numFuns - 1)) + "), printChr('\\n'),\n");
+		for (int g = 0; g < numGlobals; g++)
+			text.append("  printInt(gi" + g + "), printChr(' '),\n");
+		if (typeDepth >= 1)
+			text.append("  printInt(g" + intPath(typeDepth) + "), printChr('\\n'),\n");
+		text.append("  printStr(\"done\\n\"),\n");
+		text.append("  none\n");
+		text.append(")\nwhere\n");
+
+		for (int d = 1; d <= typeDepth; d++) {
+			if (d == 1)
+				text.append("  typ t1 : rec { v : integer, a : arr [4] integer, b : boolean, c : char }\n");
+			else
+				text.append("  typ t" + d + " : rec { v : integer, s : t" + (d - 1) + ", a : arr [2] t" + (d - 1)
+						+ ", p : ptr t" + (d - 1) + " }\n");
+		}
+		if (typeDepth >= 1)
+			text.append("  var g : t" + typeDepth + "\n");
+		for (int g = 0; g < numGlobals; g++)
+			text.append("  var gi" + g + " : integer\n");
+		for (int d = 2; d <= typeDepth; d++) {
+			text.append("  fun init" + d + "(x : ptr t" + d + ") : void = (\n");
+			text.append("      x^.p = @x^.s,\n");
+			if (d > 2)
+				text.append("      init" + (d - 1) + "(@x^.s), init" + (d - 1) + "(@x^.a[0]), init" + (d - 1)
+						+ "(@x^.a[1]),\n");
+			text.append("      none)\n");
+		}
+		for (int f = 0; f < numFuns; f++)
+			function("f" + f, f > 0 ? ("f" + (f - 1)) : null, 1, "  ");
+		text.append("  fun printInt(n : integer) : void\n");
+		text.append("  fun printChr(c : char) : void\n");
+		text.append("  fun printStr(s : string) : void\n");
+		text.append("end\n");
+
+		String program = text.toString();
+		text = null;
+		return program;
+	}
+
+	/**
+	 * Generates a program and writes it to a file.
+	 *
+	 * @param file
+	 *            The file the program is written to.
+	 * @return The size of the program in bytes.
+	 * @throws IOException
+	 *             If the program cannot be written.
+	 */
+	public long write(File file) throws IOException {
+		String program = generate();
+		try (Writer out = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII))) {
+			out.write(program);
+		}
+		return program.length();
+	}
+
+	/**
+	 * Returns the number of parameters of a top-level function.
+	 */
+	private int numParams(int f) {
+		return 1 + f % 3;
+	}
+
+	/**
+	 * Generates a function declaration.
+	 *
+	 * @param name
+	 *            The name of the function.
+	 * @param callee
+	 *            The name of the top-level function to be called (or
+	 *            <code>null</code> if none).
+	 * @param level
+	 *            The nesting depth of the function.
+	 * @param indent
+	 *            The indentation of the declaration.
+	 */
+	private void function(String name, String callee, int level, String indent) {
+		int numReadVars = readVars.size();
+		int numWriteVars = writeVars.size();
+
+		int numParams = level == 1 ? numParams(Integer.parseInt(name.substring(1))) : 1;
+		int numLocals = Math.max(1, level == 1 ? pressure : pressure / 2);
+		String nested = level < scopeDepth ? name + "n" : null;
+
+		text.append(indent + "fun " + name + "(");
+		for (int p = 0; p < numParams; p++) {
+			text.append((p > 0 ? ", " : "") + name + "p" + p + " : integer");
+			readVars.add(name + "p" + p);
+		}
+		text.append(") : integer = (\n");
+
+		// Locals can be read only once they have been initialized.
+		String stmtIndent = indent + "    ";
+		ArrayList<String> stmts = new ArrayList<String>();
+		for (int l = 0; l < numLocals; l++) {
+			stmts.add(name + "r" + l + " = " + intExpr(exprDepth));
+			readVars.add(name + "r" + l);
+			writeVars.add(name + "r" + l);
+		}
+		for (int loop = 0; loop < numLoops; loop++)
+			stmts.add(loop(name + "k" + loop, stmtIndent, true));
+		stmts.add(ifStmt());
+		if (typeDepth >= 1)
+			stmts.add("g" + intPath(typeDepth) + " = " + intExpr(exprDepth));
+		stmts.add(name + "r0 = ((" + name + "t = " + intExpr(exprDepth) + ", " + name + "t * 2) where var " + name
+				+ "t : integer end)");
+		if (callee != null) {
+			int numArgs = numParams(Integer.parseInt(callee.substring(1)));
+			stmts.add(name + "r0 = " + name + "r0 + " + callee + args(numArgs));
+		}
+		if (nested != null)
+			stmts.add(name + "r" + (numLocals - 1) + " = " + nested + args(1));
+		StringBuilder result = new StringBuilder();
+		for (int l = 0; l < numLocals; l++)
+			result.append(l == 0 ? "" : (random.nextBoolean() ? " + (" : " - (")).append(name + "r" + l);
+		for (int l = 1; l < numLocals; l++)
+			result.append(')');
+		stmts.add(name + "res = " + result);
+		stmts.add(name + "res");
+
+		for (int s = 0; s < stmts.size(); s++)
+			text.append(stmtIndent + stmts.get(s) + (s + 1 < stmts.size() ? ",\n" : ")\n"));
+
+		text.append(indent + "  where\n");
+		for (int l = 0; l < numLocals; l++)
+			text.append(indent + "    var " + name + "r" + l + " : integer\n");
+		for (int loop = 0; loop < numLoops; loop++) {
+			text.append(indent + "    var " + name + "k" + loop + " : integer\n");
+			text.append(indent + "    var " + name + "k" + loop + "i : integer\n");
+		}
+		text.append(indent + "    var " + name + "res : integer\n");
+		if (nested != null)
+			function(nested, null, level + 1, indent + "    ");
+		text.append(indent + "  end\n");
+
+		readVars.subList(numReadVars, readVars.size()).clear();
+		writeVars.subList(numWriteVars, writeVars.size()).clear();
+	}
+
+	/**
+	 * Generates a loop, either a <code>for</code> loop or a <code>while</code>
+	 * loop (preceded by the initialization of its variable).
+	 *
+	 * @param var
+	 *            The name of the loop variable.
+	 * @param indent
+	 *            The indentation of the loop.
+	 * @param outer
+	 *            Whether the loop can contain a nested loop.
+	 */
+	private String loop(String var, String indent, boolean outer) {
+		StringBuilder loop = new StringBuilder();
+		boolean isFor = random.nextBoolean();
+		if (isFor)
+			loop.append("for " + var + " = 1, " + numIters + " : (\n");
+		else
+			loop.append(var + " = 1, while " + var + " <= " + numIters + " : (\n");
+		readVars.add(var);
+		loopVars.add(var);
+
+		ArrayList<String> stmts = new ArrayList<String>();
+		int numStmts = 1 + random.nextInt(3);
+		for (int s = 0; s < numStmts; s++)
+			stmts.add(random.nextInt(4) == 0 ? ifStmt() : assignStmt());
+		if (outer && random.nextInt(3) == 0)
+			stmts.add(loop(var + "i", indent + "  ", false));
+		if (!isFor)
+			stmts.add(var + " = " + var + " + 1");
+		for (int s = 0; s < stmts.size(); s++)
+			loop.append(indent + "  " + stmts.get(s) + (s + 1 < stmts.size() ? ",\n" : ") end"));
+
+		readVars.remove(readVars.size() - 1);
+		loopVars.remove(loopVars.size() - 1);
+		return loop.toString();
+	}
+
+	/** Generates a conditional statement. */
+	private String ifStmt() {
+		return "if " + boolExpr(exprDepth) + " then " + assignStmt() + " else " + assignStmt() + " end";
+	}
+
+	/** Generates an assignment of a right-nested combination of variables. */
+	private String assignStmt() {
+		String var = writeVars.get(random.nextInt(writeVars.size()));
+		if (random.nextInt(3) > 0)
+			return var + " = " + intExpr(exprDepth);
+		int numOperands = Math.min(pressure, readVars.size());
+		StringBuilder expr = new StringBuilder();
+		for (int o = 0; o < numOperands; o++)
+			expr.append(o == 0 ? "" : (random.nextBoolean() ? " + (" : " * ("))
+					.append(readVars.get(random.nextInt(readVars.size())));
+		for (int o = 1; o < numOperands; o++)
+			expr.append(')');
+		return var + " = " + expr;
+	}
+
+	/** Generates an integer expression of the specified depth. */
+	private String intExpr(int depth) {
+		if ((depth == 0) || (random.nextInt(5) == 0)) {
+			int kind = random.nextInt(10);
+			if (kind < 3)
+				return Integer.toString(random.nextInt(100));
+			if ((kind < 9) || (typeDepth == 0))
+				return readVars.get(random.nextInt(readVars.size()));
+			return "g" + intPath(typeDepth);
+		}
+		switch (random.nextInt(7)) {
+		case 0:
+		case 1:
+			return "(" + intExpr(depth - 1) + " + " + intExpr(depth - 1) + ")";
+		case 2:
+			return "(" + intExpr(depth - 1) + " - " + intExpr(depth - 1) + ")";
+		case 3:
+			return "(" + intExpr(depth - 1) + " * " + intExpr(depth - 1) + ")";
+		case 4:
+			return "(" + intExpr(depth - 1) + " / " + (1 + random.nextInt(9)) + ")";
+		case 5:
+			return "(" + intExpr(depth - 1) + " % " + (2 + random.nextInt(8)) + ")";
+		default:
+			return "(-" + intExpr(depth - 1) + ")";
+		}
+	}
+
+	/** Generates a boolean expression of the specified depth. */
+	private String boolExpr(int depth) {
+		if ((depth == 0) || (random.nextInt(5) == 0)) {
+			if (typeDepth >= 1 && random.nextBoolean())
+				return "g" + boolPath(typeDepth);
+			return random.nextBoolean() ? "true" : "false";
+		}
+		final String[] relOpers = { " == ", " != ", " < ", " > ", " <= ", " >= " };
+		switch (random.nextInt(5)) {
+		case 0:
+			return "(" + boolExpr(depth - 1) + " & " + boolExpr(depth - 1) + ")";
+		case 1:
+			return "(" + boolExpr(depth - 1) + " | " + boolExpr(depth - 1) + ")";
+		case 2:
+			return "(!" + boolExpr(depth - 1) + ")";
+		default:
+			return "(" + intExpr(depth - 1) + relOpers[random.nextInt(relOpers.length)] + intExpr(depth - 1) + ")";
+		}
+	}
+
+	/** Generates a path to an integer component of a record of type t_d. */
+	private String intPath(int d) {
+		if (d == 1)
+			return random.nextBoolean() ? ".v" : (".a[" + index(4) + "]");
+		switch (random.nextInt(4)) {
+		case 0:
+			return ".v";
+		case 1:
+			return ".s" + intPath(d - 1);
+		case 2:
+			return ".a[" + index(2) + "]" + intPath(d - 1);
+		default:
+			return ".p^" + intPath(d - 1);
+		}
+	}
+
+	/** Generates a path to a boolean component of a record of type t_d. */
+	private String boolPath(int d) {
+		return d == 1 ? ".b" : (".s" + boolPath(d - 1));
+	}
+
+	/** Generates an array index within bounds. */
+	private String index(int length) {
+		if (loopVars.isEmpty() || random.nextBoolean())
+			return Integer.toString(random.nextInt(length));
+		return loopVars.get(random.nextInt(loopVars.size())) + " % " + length;
+	}
+
+	/** Generates a list of arguments. */
+	private String args(int numArgs) {
+		StringBuilder args = new StringBuilder("(");
+		for (int a = 0; a < numArgs; a++)
+			args.append(a == 0 ? "" : ", ").append(intExpr(1));
+		return args.append(")").toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		ProgramGenerator generator = new ProgramGenerator();
+		String fileName = null;
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				String name = arg.replaceFirst("=.*", "");
+				long value = Long.parseLong(arg.replaceFirst("[^=]*=", ""));
+				switch (name) {
+				case "--funs":
+					generator.numFuns = (int) value;
+					break;
+				case "--scopes":
+					generator.scopeDepth = (int) value;
+					break;
+				case "--types":
+					generator.typeDepth = (int) value;
+					break;
+				case "--exprs":
+					generator.exprDepth = (int) value;
+					break;
+				case "--loops":
+					generator.numLoops = (int) value;
+					break;
+				case "--iters":
+					generator.numIters = (int) value;
+					break;
+				case "--pressure":
+					generator.pressure = (int) value;
+					break;
+				case "--seed":
+					generator.seed = value;
+					break;
+				default:
+					System.err.println("Unknown option '" + arg + "'.");
+					System.exit(1);
+				}
+			} else
+				fileName = arg;
+		}
+		if (fileName == null)
+			System.out.print(generator.generate());
+		else
+			generator.write(new File(fileName));
+	}
+
+}
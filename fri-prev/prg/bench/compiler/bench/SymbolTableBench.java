@@ -0,0 +1,67 @@
+package compiler.bench;
+
+import compiler.common.names.*;
+import compiler.common.report.*;
+import compiler.data.ast.*;
+import compiler.phase.seman.*;
+
+/**
+ * Measures the symbol table on deeply nested scopes with many declarations.
+ * 
+ * <p>
+ * Usage:
+ * <code>java compiler.bench.SymbolTableBench [depth] [declarations per scope]</code>
+ * </p>
+ * 
+ * <p>
+ * The workload mimics the declaration resolver on a program consisting of a
+ * number of deeply nested <code>where</code> expressions: all names are
+ * declared at the outermost scope, each nested scope redeclares a window of
+ * them and looks up every name after every declaration made.
+ * </p>
+ */
+public class SymbolTableBench {
+
+	/** The number of distinct names. */
+	private static final int numNames = 1000;
+
+	/** The number of nests of scopes per operation. */
+	private static final int numNests = 10;
+
+	public static void main(String[] args) throws Exception {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int width = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+		Position position = new Position("bench", 1, 1);
+		Type type = new AtomType(position, AtomType.AtomTypes.INTEGER);
+		Decl[] decls = new Decl[numNames];
+		for (int n = 0; n < numNames; n++)
+			decls[n] = new VarDecl(position, "name_" + n, type);
+
+		long ops = (long) numNests * (numNames + 2L * depth * width);
+		System.out.println("Depth " + depth + ", " + width + " declarations per scope, " + ops
+				+ " insertions and lookups per operation.");
+		new Bench(5, 10).measure("symbol table", 0, () -> {
+			SymbolTable symbolTable = new SymbolTable();
+			for (int nest = 0; nest < numNests; nest++) {
+				symbolTable.enterScope();
+				for (int n = 0; n < numNames; n++)
+					symbolTable.insDecl(decls[n].nameId, decls[n]);
+				for (int d = 0; d < depth; d++) {
+					symbolTable.enterScope();
+					for (int w = 0; w < width; w++) {
+						Decl decl = decls[(d * 7 + w) % numNames];
+						symbolTable.insDecl(decl.nameId, decl);
+						if (symbolTable.fndDecl(decls[(d + w * 13) % numNames].nameId) == null)
+							throw new InternalCompilerError();
+					}
+				}
+				for (int d = 0; d < depth; d++)
+					symbolTable.leaveScope();
+				symbolTable.leaveScope();
+			}
+		});
+		System.out.println(Names.count() + " names interned.");
+	}
+
+}
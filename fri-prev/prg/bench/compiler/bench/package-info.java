@@ -0,0 +1,36 @@
+/**
+ * Benchmarks of the individual compiler phases.
+ * 
+ * <p>
+ * The benchmarks are kept apart from the compiler itself in source folder
+ * <code>bench</code> and are compiled together with the compiler, e.g.,
+ * </p>
+ * 
+ * <code>javac -d bin $(find src bench -name '*.java')</code><br>
+ * <code>java -classpath bin compiler.bench.LexAnBench</code>
+ * 
+ * <p>
+ * Each benchmark is a standalone program that generates its own synthetic
+ * input, warms up the code under test and prints out the time per operation,
+ * the throughput and the number of bytes allocated per operation (see
+ * {@link compiler.bench.Bench}).
+ * </p>
+ * 
+ * <p>
+ * {@link compiler.bench.PhaseBench} measures every phase from lexical analysis
+ * to register allocation on a small, a medium and a huge corpus, e.g.,
+ * <code>java -classpath bin compiler.bench.PhaseBench medium</code>.
+ * </p>
+ * 
+ * <p>
+ * {@link compiler.bench.InterpreterBench} compares the engines executing the
+ * linearized intermediate code on compute-bound programs.
+ * </p>
+ * 
+ * <p>
+ * Larger inputs of tunable shape are produced by
+ * {@link compiler.bench.ProgramGenerator}, e.g.,
+ * <code>java -classpath bin compiler.bench.ProgramGenerator --funs=1000 --pressure=32 big.prev</code>.
+ * </p>
+ */
+package compiler.bench;
@@ -1,6 +1,9 @@
 package compiler;
 
 import compiler.common.report.*;
+import compiler.data.ast.*;
+import compiler.data.frg.*;
+import compiler.data.imc.*;
 import compiler.phase.codegen.CodeGen;
 import compiler.phase.lexan.*;
 import compiler.phase.regalloc.RegAlloc;
@@ -10,6 +13,7 @@ import compiler.phase.seman.*;
 import compiler.phase.frames.*;
 import compiler.phase.imcode.*;
 import compiler.phase.lincode.*;
+import compiler.phase.trace.*;
 
 /**
  * The compiler's entry point.
@@ -39,33 +43,60 @@ public class Main {
 
 				// ***** Lexical analysis. *****
 				if (task.phase.equals("lexan")) {
+					task.stats.begPhase("lexan");
 					LexAn lexAn = new LexAn(task);
 					while (lexAn.lexAn().token != Symbol.Token.EOF) {
 					}
 					lexAn.close();
+					task.stats.endPhase("lexan");
 					break;
 				}
 
 				// ***** Syntax analysis. *****
+				task.stats.begPhase("synan");
 				SynAn synAn = new SynAn(task);
 				task.prgAST = synAn.synAn();
 				synAn.close();
+				task.stats.endPhase("synan");
+				task.stats.count("astNodes", ASTNode.numNodes());
 				if (task.phase.equals("synan"))
 					break;
 
 				// ***** Abstract syntax tree. *****
+				task.stats.begPhase("abstr");
 				Abstr abstr = new Abstr(task);
 				abstr.close();
+				task.stats.endPhase("abstr");
 				if (task.phase.equals("abstr"))
 					break;
 
 				// ***** Semantic analysis. *****
+				task.stats.begPhase("seman");
 				SemAn seman = new SemAn(task);
-				(new EvalValue(task.prgAttrs)).visit(task.prgAST);
-				(new EvalDecl(task.prgAttrs)).visit(task.prgAST);
-				(new EvalTyp(task.prgAttrs)).visit(task.prgAST);
-				(new EvalMem(task.prgAttrs)).visit(task.prgAST);
+				if (task.semanMode.equals("fused")) {
+					task.stats.begPhase("seman.fused");
+					(new FusedSemAn(task.prgAttrs)).visit(task.prgAST);
+					task.stats.endPhase("seman.fused");
+				} else if (task.semanMode.equals("check")) {
+					task.stats.begPhase("seman.check");
+					FusedSemAn.check(task);
+					task.stats.endPhase("seman.check");
+				} else {
+					task.stats.begPhase("seman.value");
+					(new EvalValue(task.prgAttrs)).visit(task.prgAST);
+					task.stats.endPhase("seman.value");
+					task.stats.begPhase("seman.decl");
+					(new EvalDecl(task.prgAttrs)).visit(task.prgAST);
+					task.stats.endPhase("seman.decl");
+					task.stats.begPhase("seman.typ");
+					(new EvalTyp(task.prgAttrs)).visit(task.prgAST);
+					task.stats.endPhase("seman.typ");
+					task.stats.begPhase("seman.mem");
+					(new EvalMem(task.prgAttrs)).visit(task.prgAST);
+					task.stats.endPhase("seman.mem");
+				}
 				seman.close();
+				task.stats.endPhase("seman");
 				if (task.phase.equals("seman"))
 					break;
 
@@ -73,39 +104,66 @@ public class Main {
 					break;
 
 				// Frames and accesses.
+				task.stats.begPhase("frames");
 				Frames frames = new Frames(task);
 				(new EvalFrames(task.prgAttrs)).visit(task.prgAST);
 				frames.close();
+				task.stats.endPhase("frames");
 				if (task.phase.equals("frames"))
 					break;
 				
 				// Intermediate code generation.
+				task.stats.begPhase("imcode");
 				Imcode imcode = new Imcode(task);
 				(new EvalImcode(task.prgAttrs, task.fragments)).visit(task.prgAST);
 				imcode.close();
+				task.stats.endPhase("imcode");
+				task.stats.count("imcNodes", IMC.numNodes());
 				if (task.phase.equals("imcode"))
 					break;
 				
 				// Linearization of the intermediate code.
+				task.stats.begPhase("lincode");
 				LinCode linCode = new LinCode(task);
 				//(new EvalLinCode(task.fragments)).visit(task.prgAST);
 				linCode.close();
+				task.stats.endPhase("lincode");
+				for (Fragment fragment : task.fragments.values())
+					if ((fragment instanceof CodeFragment) && (((CodeFragment) fragment).linCode != null))
+						task.stats.add("linStmts", ((CodeFragment) fragment).linCode.numStmts());
 				if (task.phase.equals("lincode"))
 					break;
 
+				// Basic blocks and trace scheduling.
+				task.stats.begPhase("trace");
+				Trace trace = new Trace(task);
+				trace.close();
+				task.stats.endPhase("trace");
+				if (task.phase.equals("trace")) {
+					linCode.interpret();
+					break;
+				}
+
 				// Code generation of the linearized code
+				task.stats.begPhase("codegen");
 				CodeGen code = new CodeGen(task);
 				code.close();
+				task.stats.endPhase("codegen");
 				if(task.phase.equals("codegen"))
 					break;
 
 				// Register allocation
+				task.stats.begPhase("regalloc");
 				RegAlloc regAlloc = new RegAlloc(task, maxNumReg);
 				regAlloc.close();
+				task.stats.endPhase("regalloc");
 				if(task.phase.equals("regalloc"))
 					break;
 				break;
 			}
+
+			if (!task.statsFormat.equals(""))
+				task.stats.write(task.xmlFName + ".stats." + task.statsFormat, task.statsFormat);
 		} catch (CompilerError errorReport) {
 			// As dead as a dodo. Print error message and signal error.
 			System.err.println(":-( " + errorReport.getMessage());
@@ -3,9 +3,11 @@ package compiler;
 import java.util.*;
 
 import compiler.common.report.*;
+import compiler.common.stats.*;
 import compiler.data.ast.*;
 import compiler.data.ast.attr.*;
 import compiler.data.frg.*;
+import compiler.data.prf.*;
 import compiler.data.cod.wrapper.*;
 
 /**
@@ -25,7 +27,7 @@ public class Task {
 	public final String xslDName;
 
 	/** A regular expression describing all phases of the compiler. */
-	private static final String allPhases = "(lexan|synan|abstr|seman|frames|imcode|lincode|codegen|regalloc)";
+	private static final String allPhases = "(lexan|synan|abstr|seman|frames|imcode|lincode|trace|codegen|regalloc)";
 
 	/** A list of phases logging should be performed for. */
 	public final String loggedPhases;
@@ -33,6 +35,51 @@ public class Task {
 	/** The last phase of the compiler to be performed. */
 	public final String phase;
 
+	/** A regular expression describing all modes of semantic analysis. */
+	private static final String allSemanModes = "(split|fused|check)";
+
+	/**
+	 * The mode of semantic analysis: four separate traversals (split), two
+	 * fused traversals (fused), or both with the results compared (check).
+	 */
+	public final String semanMode;
+
+	/** A regular expression describing all engines of the interpreter. */
+	private static final String allEngines = "(interp|closure|jit)";
+
+	/**
+	 * The engine executing the linearized intermediate code in phase
+	 * <code>lincode</code> (or the scheduled code in phase <code>trace</code>):
+	 * the interpreter walking the intermediate code (interp), trees of
+	 * closures compiled from it (closure), or JVM bytecode compiled from it
+	 * (jit).
+	 */
+	public final String engine;
+
+	/** A regular expression describing all register allocators. */
+	private static final String allAllocators = "(coloring|coalescing)";
+
+	/**
+	 * The register allocator used in phase <code>regalloc</code>: graph
+	 * coloring with spilling (coloring) or iterated register coalescing
+	 * (coalescing).
+	 */
+	public final String allocator;
+
+	/**
+	 * Whether the execution of the program in phase <code>lincode</code> or
+	 * <code>trace</code> is to be profiled (which is always done by the
+	 * interpreter engine).
+	 */
+	public final boolean profiling;
+
+	/**
+	 * The format of the statistics file (<code>json</code> or
+	 * <code>csv</code>), or an empty string if no statistics are to be
+	 * written.
+	 */
+	public final String statsFormat;
+
 	/**
 	 * Construct a new compilation task based on the command-line agruments.
 	 * 
@@ -46,6 +93,11 @@ public class Task {
 		String xslDName = "";
 		String loggedPhases = "";
 		String phase = "";
+		String semanMode = "";
+		String statsFormat = "";
+		String engine = "";
+		String allocator = "";
+		boolean profiling = false;
 
 		for (int argc = 0; argc < args.length; argc++) {
 			if (args[argc].startsWith("-")) {
@@ -87,6 +139,59 @@ public class Task {
 					continue;
 				}
 
+				if (args[argc].startsWith("--semanmode=")) {
+					if (semanMode == "") {
+						semanMode = args[argc].replaceFirst("--semanmode=", "");
+						if (!semanMode.matches(allSemanModes)) {
+							Report.warning("Illegal semantic analysis mode specified by '" + args[argc] + "' ignored.");
+							semanMode = "";
+						}
+					} else
+						Report.warning("Semantic analysis mode already specified, option '" + args[argc] + "' ignored.");
+					continue;
+				}
+
+				if (args[argc].startsWith("--stats=")) {
+					if (statsFormat == "") {
+						statsFormat = args[argc].replaceFirst("--stats=", "");
+						if (!statsFormat.matches("(json|csv)")) {
+							Report.warning("Illegal statistics format specified by '" + args[argc] + "' ignored.");
+							statsFormat = "";
+						}
+					} else
+						Report.warning("Statistics format already specified, option '" + args[argc] + "' ignored.");
+					continue;
+				}
+
+				if (args[argc].startsWith("--engine=")) {
+					if (engine == "") {
+						engine = args[argc].replaceFirst("--engine=", "");
+						if (!engine.matches(allEngines)) {
+							Report.warning("Illegal interpreter engine specified by '" + args[argc] + "' ignored.");
+							engine = "";
+						}
+					} else
+						Report.warning("Interpreter engine already specified, option '" + args[argc] + "' ignored.");
+					continue;
+				}
+
+				if (args[argc].startsWith("--regalloc=")) {
+					if (allocator == "") {
+						allocator = args[argc].replaceFirst("--regalloc=", "");
+						if (!allocator.matches(allAllocators)) {
+							Report.warning("Illegal register allocator specified by '" + args[argc] + "' ignored.");
+							allocator = "";
+						}
+					} else
+						Report.warning("Register allocator already specified, option '" + args[argc] + "' ignored.");
+					continue;
+				}
+
+				if (args[argc].equals("--profile")) {
+					profiling = true;
+					continue;
+				}
+
 				Report.warning("Unknown command line option '" + args[argc] + "'.");
 			} else {
 				// This is a file name.
@@ -103,12 +208,22 @@ public class Task {
 		this.xslDName = xslDName;
 		this.loggedPhases = loggedPhases;
 		this.phase = phase;
+		this.semanMode = semanMode == "" ? "split" : semanMode;
+		this.statsFormat = statsFormat;
+		this.engine = engine == "" ? "interp" : engine;
+		this.allocator = allocator == "" ? "coloring" : allocator;
+		this.profiling = profiling;
 
 		// Check the source file name.
 		if (this.srcFName == "")
 			throw new CompilerError("Source file name not specified.");
 	}
 
+	/**
+	 * Compile-time statistics.
+	 */
+	public final Stats stats = new Stats();
+
 	/**
 	 * The abstract syntax tree representing the program that is being compiled.
 	 */
@@ -124,6 +239,12 @@ public class Task {
 	 */
     public HashMap<String, Fragment> fragments = new HashMap<String, Fragment>();
 
+	/**
+	 * The execution profile of the program (if profiling has been requested
+	 * and the program has been executed).
+	 */
+	public Profile profile = null;
+
 	/**
 	 * Code of the fragments, hash map for printing and interference graph
 	 */
@@ -1,6 +1,7 @@
 package compiler.common.logger;
 
 import java.io.*;
+import java.nio.charset.*;
 import java.util.*;
 import javax.xml.parsers.*;
 import javax.xml.transform.*;
@@ -12,7 +13,19 @@ import compiler.common.report.*;
 
 /**
  * A logger used to generate a log file for a compiler phase.
- * 
+ *
+ * <p>
+ * Unless a {@link compiler.common.logger.Transformer} is installed before the
+ * first element is logged, the log is written to the log file as it is being
+ * produced: only the path from the root of the log to the current element is
+ * kept in memory, and the start tag of the current element is written out
+ * once its first child is logged or its construction is finished. The output
+ * is identical to the output of the DOM serializer, i.e., attributes are
+ * sorted by name and elements without children are written as empty-element
+ * tags. If a transformer is installed, the entire log document is built in
+ * memory, transformed and dumped to the log file on {@link #close() close}.
+ * </p>
+ *
  * @author sliva
  */
 public class Logger implements AutoCloseable {
@@ -23,8 +36,8 @@ public class Logger implements AutoCloseable {
 	/** The name of the style file. */
 	private final String xslFileName;
 
-	/** The document representing the entire log. */
-	private final Document doc;
+	/** The document representing the entire log (if a transformer is used). */
+	private Document doc;
 
 	/** The path from the root of the log document to the current node. */
 	private final Stack<Element> elements = new Stack<Element>();
@@ -32,9 +45,24 @@ public class Logger implements AutoCloseable {
 	/** The document transformer. */
 	private Transformer transformer;
 
+	/** The log file (if the log is being streamed). */
+	private Writer writer;
+
+	/** The tags of the path from the root of the log to the current element. */
+	private final Stack<String> tagNames = new Stack<String>();
+
+	/**
+	 * The attributes of the current element if its start tag has not been
+	 * written yet, or <code>null</code> otherwise.
+	 */
+	private TreeMap<String, String> attributes;
+
+	/** Whether logging has started. */
+	private boolean started;
+
 	/**
 	 * Constructs a new logger.
-	 * 
+	 *
 	 * @param xmlFileName
 	 *            The file name of the log file (without phase name and
 	 *            <code>.xml</code> extension).
@@ -45,23 +73,46 @@ public class Logger implements AutoCloseable {
 		this.xmlFileName = xmlFileName;
 		this.xslFileName = xslFileName;
 		this.transformer = null;
+		this.started = false;
+	}
 
-		// Prepare a new log document.
-		try {
-			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-		} catch (ParserConfigurationException ex) {
-			throw new InternalCompilerError();
-		}
+	/**
+	 * Starts the log: builds the root of the log document if a transformer has
+	 * been installed, or opens the log file and writes the prolog otherwise.
+	 */
+	private void start() {
+		started = true;
+
+		if (transformer != null) {
+			// Prepare a new log document.
+			try {
+				doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			} catch (ParserConfigurationException ex) {
+				throw new InternalCompilerError();
+			}
 
-		// Create the root element representing the entire phase.
-		Element phase = doc.createElement("report");
-		doc.appendChild(phase);
-		elements.push(phase);
+			// Create the root element representing the entire phase.
+			Element phase = doc.createElement("report");
+			doc.appendChild(phase);
+			elements.push(phase);
 
-		// Add XSL declaration.
-		ProcessingInstruction xsl = doc.createProcessingInstruction("xml-stylesheet",
-				"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
-		doc.insertBefore(xsl, phase);
+			// Add XSL declaration.
+			ProcessingInstruction xsl = doc.createProcessingInstruction("xml-stylesheet",
+					"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
+			doc.insertBefore(xsl, phase);
+			return;
+		}
+
+		try {
+			writer = new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(xmlFileName), StandardCharsets.UTF_8), 1 << 16);
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+			writer.write("<?xml-stylesheet type=\"text/xsl\" href=\"" + this.xslFileName + "\"?>");
+		} catch (IOException ex) {
+			failed();
+		}
+		tagNames.push("report");
+		attributes = new TreeMap<String, String>();
 	}
 
 	/**
@@ -69,6 +120,23 @@ public class Logger implements AutoCloseable {
 	 */
 	@Override
 	public void close() {
+		if (!started)
+			start();
+
+		if (doc == null) {
+			if (tagNames.size() != 1)
+				throw new InternalCompilerError();
+			endElement();
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException ex) {
+					failed();
+				}
+			}
+			return;
+		}
+
 		try {
 			elements.pop();
 		} catch (EmptyStackException ex) {
@@ -88,8 +156,17 @@ public class Logger implements AutoCloseable {
 			Report.warning("Cannot generate log file '" + xmlFileName + "'.");
 		}
 	}
-	
+
+	/**
+	 * Installs a transformer of the log document; it must be installed before
+	 * the first element is logged.
+	 *
+	 * @param transformer
+	 *            The document transformer.
+	 */
 	public void setTransformer(Transformer transformer) {
+		if (started)
+			throw new InternalCompilerError();
 		this.transformer = transformer;
 	}
 
@@ -97,11 +174,23 @@ public class Logger implements AutoCloseable {
 	 * Starts constructing a new log element with a specified tag name as a
 	 * child of the current log element, and makes the new log element the
 	 * current log element.
-	 * 
+	 *
 	 * @param tagName
 	 *            The tag of the new log element.
 	 */
 	public void begElement(String tagName) {
+		if (!started)
+			start();
+
+		if (doc == null) {
+			if (tagNames.isEmpty())
+				throw new InternalCompilerError();
+			writeStartTag(false);
+			tagNames.push(tagName);
+			attributes = new TreeMap<String, String>();
+			return;
+		}
+
 		try {
 			Element element = doc.createElement(tagName);
 			elements.peek().appendChild(element);
@@ -113,13 +202,24 @@ public class Logger implements AutoCloseable {
 
 	/**
 	 * Adds a new attribute to the current log element.
-	 * 
+	 *
 	 * @param attrName
 	 *            The attribute name.
 	 * @param attrValue
 	 *            The attribute value.
 	 */
 	public void addAttribute(String attrName, String attrValue) {
+		if (!started)
+			start();
+
+		if (doc == null) {
+			// Attributes cannot be added once the start tag has been written.
+			if (attributes == null)
+				throw new InternalCompilerError();
+			attributes.put(attrName, attrValue == null ? "" : attrValue);
+			return;
+		}
+
 		try {
 			elements.peek().setAttribute(attrName, attrValue);
 		} catch (EmptyStackException ex) {
@@ -132,6 +232,20 @@ public class Logger implements AutoCloseable {
 	 * current log element again.
 	 */
 	public void endElement() {
+		if (!started)
+			start();
+
+		if (doc == null) {
+			if (tagNames.isEmpty())
+				throw new InternalCompilerError();
+			if (attributes != null)
+				writeStartTag(true);
+			else
+				write("</" + tagNames.peek() + ">");
+			tagNames.pop();
+			return;
+		}
+
 		try {
 			elements.pop();
 		} catch (EmptyStackException ex) {
@@ -139,4 +253,82 @@ public class Logger implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Writes the start tag of the current element if it has not been written
+	 * yet.
+	 *
+	 * @param isEmpty
+	 *            Whether the current element has no children.
+	 */
+	private void writeStartTag(boolean isEmpty) {
+		if (attributes == null)
+			return;
+		StringBuilder tag = new StringBuilder();
+		tag.append('<').append(tagNames.peek());
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			tag.append(' ').append(attribute.getKey()).append("=\"");
+			escape(tag, attribute.getValue());
+			tag.append('"');
+		}
+		tag.append(isEmpty ? "/>" : ">");
+		attributes = null;
+		write(tag.toString());
+	}
+
+	/**
+	 * Appends an attribute value escaped the same way as by the DOM serializer.
+	 */
+	private static void escape(StringBuilder out, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '&':
+				out.append("&amp;");
+				break;
+			case '<':
+				out.append("&lt;");
+				break;
+			case '>':
+				out.append("&gt;");
+				break;
+			case '"':
+				out.append("&quot;");
+				break;
+			default:
+				if (c < 0x20)
+					out.append("&#").append((int) c).append(';');
+				else if (Character.isHighSurrogate(c) && (i + 1 < value.length())
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					out.append("&#").append(Character.toCodePoint(c, value.charAt(i + 1))).append(';');
+					i++;
+				} else
+					out.append(c);
+			}
+		}
+	}
+
+	private void write(String text) {
+		if (writer == null)
+			return;
+		try {
+			writer.write(text);
+		} catch (IOException ex) {
+			failed();
+		}
+	}
+
+	/**
+	 * Stops writing the log file that cannot be written.
+	 */
+	private void failed() {
+		Report.warning("Cannot generate log file '" + xmlFileName + "'.");
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException ex) {
+			}
+		}
+		writer = null;
+	}
+
 }
@@ -14,6 +14,8 @@
  * <li>each time a construction of the current element is finished, its parent
  * becomes the current element again.</li>
  * </ul>
+ * All attributes of an element must be added before its first child is
+ * constructed as the log is written out while it is being produced.
  * 
  * @author sliva
  */
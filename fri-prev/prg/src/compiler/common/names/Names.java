@@ -0,0 +1,134 @@
+package compiler.common.names;
+
+import java.util.*;
+
+/**
+ * The global table of interned names.
+ * 
+ * <p>
+ * The table is implemented as an open addressing hash table mapping names to
+ * consecutive ids starting with 0. Names can be looked up either as strings or
+ * as slices of a character buffer, in which case a string is created only when
+ * the name is seen for the first time.
+ * </p>
+ */
+public class Names {
+
+	/** The names, indexed by ids. */
+	private static String[] names = new String[256];
+
+	/** The hash codes of names, indexed by ids. */
+	private static int[] hashes = new int[256];
+
+	/** The number of names. */
+	private static int count = 0;
+
+	/** The hash table containing ids (or -1 for empty slots). */
+	private static int[] slots = newSlots(512);
+
+	private static int[] newSlots(int size) {
+		int[] slots = new int[size];
+		Arrays.fill(slots, -1);
+		return slots;
+	}
+
+	/**
+	 * Returns the id of the specified name. A new id is assigned to the name if
+	 * it has not been seen before.
+	 * 
+	 * @param name
+	 *            The name.
+	 * @return The id of the name.
+	 */
+	public static int id(String name) {
+		int hash = name.hashCode();
+		int mask = slots.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot];
+			if (id == -1)
+				return add(slot, name, hash);
+			if ((hashes[id] == hash) && names[id].equals(name))
+				return id;
+		}
+	}
+
+	/**
+	 * Returns the id of the name contained in the specified part of a
+	 * character buffer. A new id is assigned to the name if it has not been
+	 * seen before.
+	 * 
+	 * @param buffer
+	 *            The character buffer.
+	 * @param offset
+	 *            The offset of the first character of the name.
+	 * @param length
+	 *            The length of the name.
+	 * @return The id of the name.
+	 */
+	public static int id(char[] buffer, int offset, int length) {
+		int hash = 0;
+		for (int c = 0; c < length; c++)
+			hash = 31 * hash + buffer[offset + c];
+		int mask = slots.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot];
+			if (id == -1)
+				return add(slot, new String(buffer, offset, length), hash);
+			if ((hashes[id] == hash) && equals(names[id], buffer, offset, length))
+				return id;
+		}
+	}
+
+	/**
+	 * Returns the name with the specified id.
+	 * 
+	 * @param id
+	 *            The id of the name.
+	 * @return The name.
+	 */
+	public static String name(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the number of names interned so far, i.e., the least id that has
+	 * not been assigned yet.
+	 * 
+	 * @return The number of names.
+	 */
+	public static int count() {
+		return count;
+	}
+
+	private static boolean equals(String name, char[] buffer, int offset, int length) {
+		if (name.length() != length)
+			return false;
+		for (int c = 0; c < length; c++)
+			if (name.charAt(c) != buffer[offset + c])
+				return false;
+		return true;
+	}
+
+	private static int add(int slot, String name, int hash) {
+		int id = count++;
+		if (id == names.length) {
+			names = Arrays.copyOf(names, 2 * names.length);
+			hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+		}
+		names[id] = name;
+		hashes[id] = hash;
+		slots[slot] = id;
+		if (2 * count > slots.length) {
+			slots = newSlots(2 * slots.length);
+			int mask = slots.length - 1;
+			for (int i = 0; i < count; i++) {
+				int s = hashes[i] & mask;
+				while (slots[s] != -1)
+					s = (s + 1) & mask;
+				slots[s] = i;
+			}
+		}
+		return id;
+	}
+
+}
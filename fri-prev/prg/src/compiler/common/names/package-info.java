@@ -0,0 +1,13 @@
+/**
+ * Interning of names.
+ * 
+ * <p>
+ * Each distinct name (an identifier or a keyword) that appears in the source
+ * file is assigned a small integer id by
+ * {@link compiler.common.names.Names#id(String) Names.id} the first time it is
+ * seen. Lexical symbols, AST nodes and the symbol table refer to names by
+ * their ids so that comparing and looking up names requires no string
+ * hashing.
+ * </p>
+ */
+package compiler.common.names;
@@ -1,31 +1,100 @@
 package compiler.common.report;
 
+import java.util.*;
+
 import compiler.common.logger.*;
 
 /**
  * Denotes the position of a text within a file.
  * 
+ * <p>
+ * The positions of the first and the last character are each packed into a
+ * single value consisting of the file id (see {@link #fileId(String) fileId}),
+ * the line and the column, so that lexical symbols and AST nodes, which are
+ * all positions, need not store file names and separate coordinates.
+ * </p>
+ * 
  * @author sliva
  */
 public class Position implements Loggable {
 
-	/** The name of the file containing the first character of text. */
-	private final String begFileName;
+	/** The names of all source files, indexed by file ids. */
+	private static final ArrayList<String> fileNames = new ArrayList<String>();
+
+	/** The file ids of all source files, indexed by file names. */
+	private static final HashMap<String, Integer> fileIds = new HashMap<String, Integer>();
+
+	/** The number of bits used for a file id within a packed position. */
+	private static final int FILE_BITS = 16;
+
+	/** The number of bits used for a line within a packed position. */
+	private static final int LINE_BITS = 24;
+
+	/** The number of bits used for a column within a packed position. */
+	private static final int COLUMN_BITS = 24;
+
+	/**
+	 * The file id, the line and the column of the first character of the
+	 * text (packed).
+	 */
+	private final long begPosition;
+
+	/**
+	 * The file id, the line and the column of the last character of the text
+	 * (packed).
+	 */
+	private final long endPosition;
 
-	/** The line of the first character of the text. */
-	private final int begLine;
+	/**
+	 * Returns the file id of the specified file name. A new file id is
+	 * assigned to the file name if it has not been seen before.
+	 * 
+	 * @param fileName
+	 *            The name of the file.
+	 * @return The file id.
+	 */
+	public static synchronized int fileId(String fileName) {
+		Integer fileId = fileIds.get(fileName);
+		if (fileId == null) {
+			if (fileNames.size() == (1 << FILE_BITS))
+				throw new InternalCompilerError();
+			fileId = fileNames.size();
+			fileNames.add(fileName);
+			fileIds.put(fileName, fileId);
+		}
+		return fileId;
+	}
 
-	/** The column of the first character of the text. */
-	private final int begColumn;
+	/**
+	 * Packs the file id, the line and the column of a character into a single
+	 * value. Lines and columns that do not fit are saturated.
+	 * 
+	 * @param fileId
+	 *            The file id of the file containing the character.
+	 * @param line
+	 *            The line of the character.
+	 * @param column
+	 *            The column of the character.
+	 * @return The packed position of the character.
+	 */
+	public static long pack(int fileId, int line, int column) {
+		long maxLine = (1L << LINE_BITS) - 1;
+		long maxColumn = (1L << COLUMN_BITS) - 1;
+		return ((long) fileId << (LINE_BITS + COLUMN_BITS)) | (Math.min(Math.max(line, 0), maxLine) << COLUMN_BITS)
+				| Math.min(Math.max(column, 0), maxColumn);
+	}
 
-	/** The name of the file containing the last character of the text. */
-	private final String endFileName;
+	private static String fileName(long position) {
+		return fileNames.get((int) (position >>> (LINE_BITS + COLUMN_BITS)));
+	}
 
-	/** The line of the last character of the text. */
-	private final int endLine;
+	private static int line(long position) {
+		return (int) ((position >>> COLUMN_BITS) & ((1L << LINE_BITS) - 1));
+	}
 
-	/** The column of the last character of the text. */
-	private final int endColumn;
+	private static int column(long position) {
+		return (int) (position & ((1L << COLUMN_BITS) - 1));
+	}
 
 	/**
 	 * Constructs a new position denoting a single character.
@@ -60,12 +129,23 @@ public class Position implements Loggable {
 	 *            The column of the last character of the text.
 	 */
 	public Position(String begFileName, int begLine, int begColumn, String endFileName, int endLine, int endColumn) {
-		this.begFileName = begFileName;
-		this.begLine = begLine;
-		this.begColumn = begColumn;
-		this.endFileName = endFileName;
-		this.endLine = endLine;
-		this.endColumn = endColumn;
+		this.begPosition = pack(fileId(begFileName), begLine, begColumn);
+		this.endPosition = pack(fileId(endFileName), endLine, endColumn);
+	}
+
+	/**
+	 * Constructs a new position denoting a sequence of characters.
+	 * 
+	 * @param begPosition
+	 *            The packed position of the first character of the text (see
+	 *            {@link #pack(int, int, int) pack}).
+	 * @param endPosition
+	 *            The packed position of the last character of the text (see
+	 *            {@link #pack(int, int, int) pack}).
+	 */
+	public Position(long begPosition, long endPosition) {
+		this.begPosition = begPosition;
+		this.endPosition = endPosition;
 	}
 
 	/**
@@ -75,12 +155,8 @@ public class Position implements Loggable {
 	 *            The specified position.
 	 */
 	public Position(Position position) {
-		this.begFileName = position.begFileName;
-		this.begLine = position.begLine;
-		this.begColumn = position.begColumn;
-		this.endFileName = position.endFileName;
-		this.endLine = position.endLine;
-		this.endColumn = position.endColumn;
+		this.begPosition = position.begPosition;
+		this.endPosition = position.endPosition;
 	}
 
 	/**
@@ -92,17 +168,15 @@ public class Position implements Loggable {
 	 *            The last position.
 	 */
 	public Position(Position begPosition, Position endPosition) {
-		this.begFileName = begPosition.begFileName;
-		this.begLine = begPosition.begLine;
-		this.begColumn = begPosition.begColumn;
-		this.endFileName = begPosition.endFileName;
-		this.endLine = endPosition.endLine;
-		this.endColumn = endPosition.endColumn;
+		long fileMask = -1L << (LINE_BITS + COLUMN_BITS);
+		this.begPosition = begPosition.begPosition;
+		this.endPosition = (begPosition.endPosition & fileMask) | (endPosition.endPosition & ~fileMask);
 	}
 
 	@Override
 	public String toString() {
-		return "[" + begLine + "." + begColumn + "--" + endLine + "." + endColumn + "]";
+		return "[" + line(begPosition) + "." + column(begPosition) + "--" + line(endPosition) + "."
+				+ column(endPosition) + "]";
 	}
 
 	@Override
@@ -110,12 +184,12 @@ public class Position implements Loggable {
 		if (logger == null)
 			return;
 		logger.begElement("position");
-		logger.addAttribute("begsource", begFileName);
-		logger.addAttribute("begLine", Integer.toString(begLine));
-		logger.addAttribute("begColumn", Integer.toString(begColumn));
-		logger.addAttribute("endsource", endFileName);
-		logger.addAttribute("endLine", Integer.toString(endLine));
-		logger.addAttribute("endColumn", Integer.toString(endColumn));
+		logger.addAttribute("begsource", fileName(begPosition));
+		logger.addAttribute("begLine", Integer.toString(line(begPosition)));
+		logger.addAttribute("begColumn", Integer.toString(column(begPosition)));
+		logger.addAttribute("endsource", fileName(endPosition));
+		logger.addAttribute("endLine", Integer.toString(line(endPosition)));
+		logger.addAttribute("endColumn", Integer.toString(column(endPosition)));
 		logger.endElement();
 	}
 
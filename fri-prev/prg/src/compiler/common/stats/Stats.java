@@ -0,0 +1,190 @@
+package compiler.common.stats;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import compiler.common.report.*;
+
+/**
+ * Wall time, CPU time and allocation of the compiler phases, and counters.
+ *
+ * <p>
+ * Phases are measured between {@link #begPhase(String) begPhase} and
+ * {@link #endPhase(String) endPhase}; phases can be nested (e.g., individual
+ * evaluators within semantic analysis), in which case the measurements of the
+ * enclosing phase include the measurements of the nested ones. Phases are
+ * reported in the order they have been started.
+ * </p>
+ */
+public class Stats {
+
+	/** The measurements of a single phase. */
+	private static class Phase {
+
+		final String name;
+
+		final int depth;
+
+		long wallTime;
+
+		long cpuTime;
+
+		long allocated;
+
+		Phase(String name, int depth) {
+			this.name = name;
+			this.depth = depth;
+		}
+
+	}
+
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	/** All phases in the order they have been started. */
+	private final LinkedList<Phase> phases = new LinkedList<Phase>();
+
+	/** Phases that have been started but not finished yet. */
+	private final Stack<Phase> openPhases = new Stack<Phase>();
+
+	/** Counters in the order they have been set. */
+	private final LinkedHashMap<String, Long> counters = new LinkedHashMap<String, Long>();
+
+	/**
+	 * Starts measuring a phase.
+	 *
+	 * @param name
+	 *            The name of the phase.
+	 */
+	public void begPhase(String name) {
+		Phase phase = new Phase(name, openPhases.size());
+		phases.add(phase);
+		openPhases.push(phase);
+		phase.allocated = -allocatedBytes();
+		phase.cpuTime = -cpuTime();
+		phase.wallTime = -System.nanoTime();
+	}
+
+	/**
+	 * Finishes measuring the current phase.
+	 *
+	 * @param name
+	 *            The name of the phase (must match the name of the current
+	 *            phase).
+	 */
+	public void endPhase(String name) {
+		long wallTime = System.nanoTime();
+		long cpuTime = cpuTime();
+		long allocated = allocatedBytes();
+		if (openPhases.isEmpty() || !openPhases.peek().name.equals(name))
+			throw new InternalCompilerError();
+		Phase phase = openPhases.pop();
+		phase.wallTime += wallTime;
+		phase.cpuTime += cpuTime;
+		phase.allocated += allocated;
+	}
+
+	/**
+	 * Sets the value of a counter.
+	 *
+	 * @param name
+	 *            The name of the counter.
+	 * @param value
+	 *            The value of the counter.
+	 */
+	public void count(String name, long value) {
+		counters.put(name, value);
+	}
+
+	/**
+	 * Adds to the value of a counter.
+	 *
+	 * @param name
+	 *            The name of the counter.
+	 * @param value
+	 *            The value to be added.
+	 */
+	public void add(String name, long value) {
+		Long oldValue = counters.get(name);
+		counters.put(name, oldValue == null ? value : oldValue + value);
+	}
+
+	/**
+	 * Writes the statistics to a file. Phases that have not been finished are
+	 * omitted.
+	 *
+	 * @param fileName
+	 *            The name of the file.
+	 * @param format
+	 *            The format of the file (<code>json</code> or
+	 *            <code>csv</code>).
+	 */
+	public void write(String fileName, String format) {
+		try (Writer writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8))) {
+			if (format.equals("json"))
+				writeJSON(writer);
+			else
+				writeCSV(writer);
+		} catch (IOException ex) {
+			Report.warning("Cannot write statistics file '" + fileName + "'.");
+		}
+	}
+
+	private void writeJSON(Writer writer) throws IOException {
+		writer.write("{\n  \"phases\": [");
+		boolean first = true;
+		for (Phase phase : phases) {
+			if (openPhases.contains(phase))
+				continue;
+			writer.write(first ? "\n" : ",\n");
+			writer.write("    {\"name\": \"" + phase.name + "\", \"depth\": " + phase.depth + ", \"wallNanos\": "
+					+ phase.wallTime + ", \"cpuNanos\": " + phase.cpuTime + ", \"allocatedBytes\": "
+					+ phase.allocated + "}");
+			first = false;
+		}
+		writer.write("\n  ],\n  \"counters\": {");
+		first = true;
+		for (Map.Entry<String, Long> counter : counters.entrySet()) {
+			writer.write(first ? "\n" : ",\n");
+			writer.write("    \"" + counter.getKey() + "\": " + counter.getValue());
+			first = false;
+		}
+		writer.write("\n  }\n}\n");
+	}
+
+	private void writeCSV(Writer writer) throws IOException {
+		writer.write("kind,name,depth,wallNanos,cpuNanos,allocatedBytes,value\n");
+		for (Phase phase : phases) {
+			if (openPhases.contains(phase))
+				continue;
+			writer.write("phase," + phase.name + "," + phase.depth + "," + phase.wallTime + "," + phase.cpuTime
+					+ "," + phase.allocated + ",\n");
+		}
+		for (Map.Entry<String, Long> counter : counters.entrySet())
+			writer.write("counter," + counter.getKey() + ",,,,," + counter.getValue() + "\n");
+	}
+
+	/**
+	 * Returns the CPU time used by the current thread so far (or -1 if not
+	 * supported).
+	 */
+	private long cpuTime() {
+		return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far (or
+	 * -1 if not supported).
+	 */
+	private long allocatedBytes() {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled())
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,13 @@
+/**
+ * Compile-time statistics.
+ *
+ * <p>
+ * An object of class {@link compiler.common.stats.Stats} records the wall
+ * time, the CPU time and the number of bytes allocated by each phase of the
+ * compiler together with a number of counters (tokens, AST nodes, instructions,
+ * etc.). If requested by the command line option <code>--stats=json</code> or
+ * <code>--stats=csv</code>, the statistics are written to a file next to the
+ * source file once the compilation is finished.
+ * </p>
+ */
+package compiler.common.stats;
@@ -6,4 +6,7 @@ public interface AST {
 		
 	public abstract void accept(Visitor visitor);
 
-}
\ No newline at end of file
+	/** Returns the id of this AST node. */
+	public abstract int id();
+
+}
@@ -7,8 +7,41 @@ import compiler.common.report.*;
  */
 public abstract class ASTNode extends Position implements AST, Typeable {
 
+	/** The number of AST nodes constructed since the ids were last reset. */
+	private static int numNodes = 0;
+
+	/**
+	 * The id of this node, unique and dense among the nodes of one abstract
+	 * syntax tree (see {@link compiler.data.ast.attr.Attribute}).
+	 */
+	private final int id;
+
 	public ASTNode(Position position) {
 		super(position);
+		this.id = numNodes++;
+	}
+
+	@Override
+	public int id() {
+		return id;
+	}
+
+	/**
+	 * Returns the number of AST nodes constructed since the ids were last
+	 * reset, i.e., the least id that has not been assigned yet.
+	 * 
+	 * @return The number of AST nodes.
+	 */
+	public static int numNodes() {
+		return numNodes;
+	}
+
+	/**
+	 * Resets the ids so that the next AST node constructed gets id 0. Called
+	 * before a new abstract syntax tree is constructed.
+	 */
+	public static void resetIds() {
+		numNodes = 0;
 	}
 
 }
@@ -1,5 +1,6 @@
 package compiler.data.ast;
 
+import compiler.common.names.*;
 import compiler.common.report.*;
 
 /**
@@ -9,11 +10,15 @@ public abstract class Decl extends ASTNode {
 
 	public final String name;
 
+	/** The id of the interned name. */
+	public final int nameId;
+
 	public final Type type;
 
 	public Decl(Position position, String name, Type type) {
 		super(position);
 		this.name = name;
+		this.nameId = Names.id(name);
 		this.type = type;
 	}
 
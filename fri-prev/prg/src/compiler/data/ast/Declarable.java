@@ -8,5 +8,8 @@ package compiler.data.ast;
 public interface Declarable extends AST {
 
 	public String name();
+
+	/** Returns the id of the interned name. */
+	public int nameId();
 	
 }
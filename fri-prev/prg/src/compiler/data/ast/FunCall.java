@@ -2,6 +2,7 @@ package compiler.data.ast;
 
 import java.util.*;
 
+import compiler.common.names.*;
 import compiler.common.report.*;
 import compiler.data.ast.code.*;
 
@@ -11,12 +12,15 @@ import compiler.data.ast.code.*;
 public class FunCall extends Expr implements Declarable {
 
 	private String name;
+
+	private final int nameId;
 	
 	private final Expr[] args;
 
 	public FunCall(Position position, String name, LinkedList<Expr> args) {
 		super(position);
 		this.name = name;
+		this.nameId = Names.id(name);
 		this.args = new Expr[args.size()];
 		for (int a = 0; a < args.size(); a++)
 			this.args[a] = args.get(a);
@@ -35,6 +39,11 @@ public class FunCall extends Expr implements Declarable {
 		return name;
 	}
 
+	@Override
+	public int nameId() {
+		return nameId;
+	}
+
 	@Override
 	public void accept(Visitor visitor) {
 		visitor.visit(this);
@@ -1,5 +1,6 @@
 package compiler.data.ast;
 
+import compiler.common.names.*;
 import compiler.common.report.*;
 import compiler.data.ast.code.*;
 
@@ -10,9 +11,12 @@ public class VarName extends Expr implements Declarable {
 
 	private final String name;
 
+	private final int nameId;
+
 	public VarName(Position position, String name) {
 		super(position);
 		this.name = name;
+		this.nameId = Names.id(name);
 	}
 
 	@Override
@@ -20,6 +24,11 @@ public class VarName extends Expr implements Declarable {
 		return name;
 	}
 
+	@Override
+	public int nameId() {
+		return nameId;
+	}
+
 	@Override
 	public void accept(Visitor visitor) {
 		visitor.visit(this);
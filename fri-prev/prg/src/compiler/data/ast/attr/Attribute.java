@@ -1,6 +1,7 @@
 package compiler.data.ast.attr;
 
 import java.util.*;
+import java.util.function.*;
 
 import compiler.common.report.*;
 import compiler.data.ast.*;
@@ -20,12 +21,19 @@ import compiler.data.ast.*;
  * adding new attributes to AST without changing AST hierarchy.
  * </p>
  * 
+ * <p>
+ * Attribute values are stored in arrays indexed by the ids of AST nodes (see
+ * {@link compiler.data.ast.AST#id() id}). Attributes of primitive types
+ * should use {@link compiler.data.ast.attr.LongAttribute} or
+ * {@link compiler.data.ast.attr.BooleanAttribute} to avoid boxing.
+ * </p>
+ * 
  * @author sliva
  */
 public class Attribute<Node extends AST, Value> {
 
-	/** A mapping from AST nodes to attribute values. */
-	private HashMap<Node, Value> mapping = mapping = new HashMap<Node, Value>();;
+	/** Attribute values indexed by AST node ids. */
+	private Object[] values = new Object[0];
 
 	/**
 	 * Sets a value of the AST nodes' attribute (if it has not been set
@@ -40,11 +48,14 @@ public class Attribute<Node extends AST, Value> {
 	 *             inserted is <code>null</code>.
 	 */
 	public void set(Node node, Value value) {
-		if (mapping.containsKey(node))
+		int id = node.id();
+		if ((id < values.length) && (values[id] != null))
 			throw new InternalCompilerError();
 		if (value == null)
 			throw new InternalCompilerError();
-		mapping.put(node, value);
+		if (id >= values.length)
+			values = Arrays.copyOf(values, capacity(values.length, id));
+		values[id] = value;
 	}
 
 	/**
@@ -55,8 +66,62 @@ public class Attribute<Node extends AST, Value> {
 	 * @return AST node's attribute value or <code>null</code> if the value has
 	 *         not yet been set.
 	 */
+	@SuppressWarnings("unchecked")
 	public Value get(Node node) {
-		return mapping.get(node);
+		int id = node.id();
+		return id < values.length ? (Value) values[id] : null;
+	}
+
+	/**
+	 * Compares this attribute with another attribute of the same abstract
+	 * syntax tree.
+	 * 
+	 * @param that
+	 *            The other attribute.
+	 * @param equal
+	 *            The equality of attribute values.
+	 * @return The id of the first AST node the values of the attributes differ
+	 *         at, or -1 if the attributes are equal.
+	 */
+	public int firstDifference(Attribute<Node, Value> that, BiPredicate<Value, Value> equal) {
+		int numIds = Math.max(this.numIds(), that.numIds());
+		for (int id = 0; id < numIds; id++) {
+			Value thisValue = this.valueAt(id);
+			Value thatValue = that.valueAt(id);
+			if ((thisValue == null) || (thatValue == null) ? thisValue != thatValue : !equal.test(thisValue, thatValue))
+				return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of AST node ids values can be stored for without
+	 * reallocating the storage.
+	 */
+	int numIds() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the value of the attribute of the AST node with the specified
+	 * id, or <code>null</code> if it has not yet been set.
+	 */
+	@SuppressWarnings("unchecked")
+	Value valueAt(int id) {
+		return id < values.length ? (Value) values[id] : null;
+	}
+
+	/**
+	 * Returns the new capacity of an array indexed by AST node ids.
+	 * 
+	 * @param length
+	 *            The current length of the array.
+	 * @param id
+	 *            The id that must fit into the array.
+	 * @return The new length of the array.
+	 */
+	static int capacity(int length, int id) {
+		return Math.max(id + 1, Math.max(2 * length, ASTNode.numNodes()));
 	}
 
 }
@@ -16,7 +16,7 @@ public class Attributes {
 	 * Values of simple integer constant expressions. Value <code>null</code>
 	 * signals that the value of the attribute cannot be computed.
 	 */
-	public Attribute<Expr, Long> valueAttr = new Attribute<Expr, Long>();
+	public LongAttribute<Expr> valueAttr = new LongAttribute<Expr>();
 
 	/**
 	 * Declarations of declarable entities, i.e., every entry denotes a link
@@ -45,7 +45,7 @@ public class Attributes {
 	 * provided it is of assignable type can therefore stand on the left side of
 	 * an assignment).
 	 */
-	public Attribute<Expr, Boolean> memAttr = new Attribute<Expr, Boolean>();
+	public BooleanAttribute<Expr> memAttr = new BooleanAttribute<Expr>();
 
 	/**
 	 * A function's stack frame.
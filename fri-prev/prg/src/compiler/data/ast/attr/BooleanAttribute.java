@@ -0,0 +1,101 @@
+package compiler.data.ast.attr;
+
+import java.util.*;
+
+import compiler.common.report.*;
+import compiler.data.ast.*;
+
+/**
+ * AST node's attribute with logical values.
+ * 
+ * <p>
+ * Values are stored unboxed. Apart from the inherited methods working with
+ * boxed values, values can be set and retrieved using
+ * {@link #set(AST, boolean) set} and {@link #getBoolean(AST) getBoolean}.
+ * </p>
+ */
+public class BooleanAttribute<Node extends AST> extends Attribute<Node, Boolean> {
+
+	/** Attribute values indexed by AST node ids. */
+	private boolean[] values = new boolean[0];
+
+	/** Flags signaling whether a value has been set, indexed by AST node ids. */
+	private boolean[] isSet = new boolean[0];
+
+	/**
+	 * Sets a value of the AST nodes' attribute (if it has not been set
+	 * already.)
+	 * 
+	 * @param node
+	 *            AST node.
+	 * @param value
+	 *            AST node's attribute value.
+	 * @throws InternalCompilerError
+	 *             If the value has already been set.
+	 */
+	public void set(Node node, boolean value) {
+		int id = node.id();
+		if ((id < isSet.length) && isSet[id])
+			throw new InternalCompilerError();
+		if (id >= values.length) {
+			int capacity = capacity(values.length, id);
+			values = Arrays.copyOf(values, capacity);
+			isSet = Arrays.copyOf(isSet, capacity);
+		}
+		values[id] = value;
+		isSet[id] = true;
+	}
+
+	@Override
+	public void set(Node node, Boolean value) {
+		if ((node.id() < isSet.length) && isSet[node.id()])
+			throw new InternalCompilerError();
+		if (value == null)
+			throw new InternalCompilerError();
+		set(node, value.booleanValue());
+	}
+
+	/**
+	 * Checks whether a value of the AST node's attribute has been set.
+	 * 
+	 * @param node
+	 *            AST node.
+	 * @return <code>true</code> if the value has been set,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isSet(Node node) {
+		int id = node.id();
+		return (id < isSet.length) && isSet[id];
+	}
+
+	/**
+	 * Gets a value of the AST node's attribute.
+	 * 
+	 * @param node
+	 *            AST node.
+	 * @return AST node's attribute value.
+	 * @throws InternalCompilerError
+	 *             If the value has not yet been set.
+	 */
+	public boolean getBoolean(Node node) {
+		if (!isSet(node))
+			throw new InternalCompilerError();
+		return values[node.id()];
+	}
+
+	@Override
+	public Boolean get(Node node) {
+		return isSet(node) ? values[node.id()] : null;
+	}
+
+	@Override
+	int numIds() {
+		return isSet.length;
+	}
+
+	@Override
+	Boolean valueAt(int id) {
+		return (id < isSet.length) && isSet[id] ? values[id] : null;
+	}
+
+}
@@ -0,0 +1,16 @@
+package compiler.data.cod;
+
+import compiler.data.cod.print.Print;
+import compiler.data.imc.TEMP;
+
+/**
+ * Branch zero
+ */
+public class BZ extends Expression {
+    public BZ(TEMP result, String zeroLabel) {
+        super(result);
+        this.label = zeroLabel;
+        print = new Print("\tBZ %s," + zeroLabel + "\n", result);
+        this.use.add(result);
+    }
+}
@@ -28,6 +28,6 @@ public class STO extends Expression {
     public STO(TEMP dst, String src, long offset) {
         super(dst, offset);
         this.print = new Print("\tSTO %s," + src + "," + offset + "\n", dst);
-        this.def.add(dst);
+        this.use.add(dst);
     }
 }
@@ -6,9 +6,8 @@ import compiler.data.imc.TEMP;
 
 import compiler.data.cod.wrapper.FragmentCode;
 
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Set;
 
 /**
  * This class represents a graph data structure
@@ -17,6 +16,7 @@ import java.util.Set;
 public class Graph {
     private FragmentCode fragmentCode;
     private LinkedList<GraphNode> nodes;
+    private Liveness liveness;
 
     /**
      * every register used in the
@@ -25,9 +25,9 @@ public class Graph {
     public Graph(FragmentCode fragmentCode) {
         this.fragmentCode = fragmentCode;
         this.nodes = new LinkedList<>();
-        for(int i = 0; i < this.fragmentCode.code.size(); i++) {
-            Expression instruction = this.fragmentCode.code.get(i);
+        for(Expression instruction : this.fragmentCode.code) {
             GraphNode currentNode = new GraphNode(instruction);
+            currentNode.index = this.nodes.size();
             this.nodes.add(currentNode);
         }
         buildGraph();
@@ -41,43 +41,12 @@ public class Graph {
         this.nodes = nodes;
     }
 
-    void interfere() {
-        boolean equal = true;
-        int st = 0;
-        do {
-            equal = true;
-//            for (GraphNode node : this.nodes) {
-            for (int n = (this.nodes.size() - 1); n >= 0; n--) {
-                GraphNode node = this.nodes.get(n);
-                Set<TEMP> oldIn = new HashSet<>(node.in);
-                Set<TEMP> oldOut = new HashSet<>(node.out);
-
-                node.out = new HashSet<>();
-                for (int i = 0; i < node.getOutEdges().size(); i++) {
-                    if(node.getOutEdges().get(i) == null)
-                        continue;
-                    node.out.addAll(node.getOutEdges().get(i).to.in);
-                }
-
-                Expression instruction = node.getInstruction();
-                Set<TEMP> diff = new HashSet<>(node.out);
-                diff.removeAll(instruction.getDef());
-
-                Set<TEMP> tmp2 = new HashSet<>(instruction.getUse());
-                tmp2.addAll(diff);
-
-                node.in = new HashSet<>(tmp2);
-                equal = equal && equalSets(node.in, oldIn);
-                equal = equal && equalSets(node.out, oldOut);
-            }
-            st++;
-        } while(!equal);
-//        System.out.println("iterations = " +  st);
-//        printString();
+    public Liveness getLiveness() {
+        return this.liveness;
     }
 
-    boolean equalSets(Set<TEMP> first, Set<TEMP> second) {
-        return first.size() == second.size() && first.containsAll(second);
+    void interfere() {
+        this.liveness = new Liveness(this.nodes);
     }
 
     public void print() {
@@ -111,37 +80,44 @@ public class Graph {
 
 
     private void buildGraph() {
-        for(int i = 0; i < this.nodes.size(); i++) {
-            findSuccessors(i);
+        GraphNode[] nodes = this.nodes.toArray(new GraphNode[this.nodes.size()]);
+        HashMap<String, GraphNode> afterLabels = new HashMap<>();
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            Code instr = nodes[i].getInstruction();
+            if (instr instanceof LAB && !afterLabels.containsKey(((LAB) instr).getLabel()))
+                afterLabels.put(((LAB) instr).getLabel(), nodes[i + 1]);
+        }
+        int[] numPreds = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            findSuccessors(nodes, i, afterLabels);
+            for (GraphNode succ : nodes[i].succs)
+                numPreds[succ.index]++;
         }
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i].preds = new GraphNode[numPreds[i]];
+        for (int i = nodes.length - 1; i >= 0; i--)
+            for (GraphNode succ : nodes[i].succs)
+                succ.preds[--numPreds[succ.index]] = nodes[i];
     }
 
-    private void findSuccessors(int index) {
-        GraphNode currentNode = this.nodes.get(index);
+    private void findSuccessors(GraphNode[] nodes, int index, HashMap<String, GraphNode> afterLabels) {
+        GraphNode currentNode = nodes[index];
         Expression ex = currentNode.getInstruction();
+        GraphNode next = (index + 1 < nodes.length) ? nodes[index + 1] : null;
         if(ex instanceof JMP) {
-            currentNode.addOutEdge(getAfterLabel(ex.getLabel()));
-            return;
-        }
-        if(ex instanceof BP) {
-            currentNode.addOutEdge(getAfterLabel(ex.getLabel()));
+            currentNode.succs = new GraphNode[] { getAfterLabel(afterLabels, ex.getLabel()) };
+        } else if(ex instanceof BP || ex instanceof BZ) {
+            GraphNode target = getAfterLabel(afterLabels, ex.getLabel());
+            currentNode.succs = next == null ? new GraphNode[] { target } : new GraphNode[] { target, next };
+        } else if(next != null) {
+            currentNode.succs = new GraphNode[] { next };
         }
-        if(index + 1 < this.nodes.size())
-            currentNode.addOutEdge(this.nodes.get(index + 1));
+        for (GraphNode succ : currentNode.succs)
+            currentNode.addOutEdge(succ);
     }
 
-    private GraphNode getAfterLabel(String label) {
-        GraphNode ret = null;
-        for(int i = 0; i < this.nodes.size(); i++) {
-            GraphNode current = this.nodes.get(i);
-            Code instr = current.getInstruction();
-            if(instr instanceof LAB
-                    && ((LAB) instr).getLabel().equals(label)
-                        && ((i + 1) < this.nodes.size()) ) {
-                ret = this.nodes.get(i + 1);
-                break;
-            }
-        }
+    private GraphNode getAfterLabel(HashMap<String, GraphNode> afterLabels, String label) {
+        GraphNode ret = afterLabels.get(label);
         if(ret == null)
             throw new CompilerError("[codegen] nothing after the label? hm...");
         return ret;
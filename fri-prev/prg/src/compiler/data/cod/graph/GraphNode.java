@@ -15,6 +15,9 @@ public class GraphNode {
     private Expression instruction;
     private LinkedList<GraphEdge> inEdges;
     private LinkedList<GraphEdge> outEdges;
+    int index; // position of the node in its graph
+    GraphNode[] preds;
+    GraphNode[] succs;
 
     public Set<TEMP> in;
     public Set<TEMP> out;
@@ -25,6 +28,8 @@ public class GraphNode {
         this.instruction = instruction;
         this.inEdges = new LinkedList<>();
         this.outEdges = new LinkedList<>();
+        this.preds = new GraphNode[0];
+        this.succs = new GraphNode[0];
         this.in = new HashSet<>();
         this.out = new HashSet<>();
         this.def = instruction.getDef();
@@ -50,4 +55,16 @@ public class GraphNode {
     }
 
     public Expression getInstruction() { return this.instruction; }
+
+    public int getIndex() { return this.index; }
+
+    /**
+     * Control flow predecessors of the instruction
+     */
+    public GraphNode[] getPreds() { return this.preds; }
+
+    /**
+     * Control flow successors of the instruction
+     */
+    public GraphNode[] getSuccs() { return this.succs; }
 }
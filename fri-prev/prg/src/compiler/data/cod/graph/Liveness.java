@@ -0,0 +1,289 @@
+package compiler.data.cod.graph;
+
+import compiler.common.report.InternalCompilerError;
+import compiler.data.cod.Expression;
+import compiler.data.imc.TEMP;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Liveness analysis on bit vectors
+ * Temps are numbered densely per fragment, the live sets are computed for basic
+ * blocks by a worklist in reverse postorder of the reversed control flow graph,
+ * and the sets of single instructions are derived from the live-out sets of
+ * their blocks in one backward pass.
+ */
+public class Liveness {
+    private ArrayList<GraphNode> nodes;
+    private HashMap<TEMP, Integer> numbers;
+    private ArrayList<TEMP> temps;
+    private int words;
+
+    private int[] blockStart;
+    private int[] blockEnd;
+    private int[][] blockSuccs;
+    private int[][] blockPreds;
+    private long[][] blockUse;
+    private long[][] blockDef;
+    private long[][] blockIn;
+    private long[][] blockOut;
+
+    public Liveness(List<GraphNode> nodes) {
+        this.nodes = new ArrayList<>(nodes);
+        this.numbers = new HashMap<>();
+        this.temps = new ArrayList<>();
+        for (GraphNode node : this.nodes) {
+            for (TEMP temp : node.getInstruction().getDef())
+                number(temp);
+            for (TEMP temp : node.getInstruction().getUse())
+                number(temp);
+        }
+        this.words = (this.temps.size() + 63) >>> 6;
+        buildBlocks(successors());
+        solve();
+        materialize();
+    }
+
+    public GraphNode getNode(int index) {
+        return this.nodes.get(index);
+    }
+
+    public int numTemps() {
+        return this.temps.size();
+    }
+
+    public TEMP getTemp(int number) {
+        return this.temps.get(number);
+    }
+
+    /**
+     * Returns the number of the temp or -1 if it does not occur in the fragment
+     */
+    public int getNumber(TEMP temp) {
+        Integer number = this.numbers.get(temp);
+        return number == null ? -1 : number;
+    }
+
+    public int numBlocks() {
+        return this.blockStart.length;
+    }
+
+    /**
+     * Index of the first instruction of the block
+     */
+    public int getBlockStart(int block) {
+        return this.blockStart[block];
+    }
+
+    /**
+     * Index one past the last instruction of the block
+     */
+    public int getBlockEnd(int block) {
+        return this.blockEnd[block];
+    }
+
+    public long[] getLiveIn(int block) {
+        return this.blockIn[block];
+    }
+
+    public long[] getLiveOut(int block) {
+        return this.blockOut[block];
+    }
+
+    private void number(TEMP temp) {
+        if (this.numbers.containsKey(temp))
+            return;
+        this.numbers.put(temp, this.temps.size());
+        this.temps.add(temp);
+    }
+
+    private int[][] successors() {
+        int[][] succs = new int[this.nodes.size()][];
+        for (int i = 0; i < this.nodes.size(); i++) {
+            GraphNode node = this.nodes.get(i);
+            if (node.index != i)
+                throw new InternalCompilerError();
+            succs[i] = new int[node.succs.length];
+            for (int s = 0; s < node.succs.length; s++)
+                succs[i][s] = node.succs[s].index;
+        }
+        return succs;
+    }
+
+    private void buildBlocks(int[][] succs) {
+        int n = this.nodes.size();
+        boolean[] leader = new boolean[n + 1];
+        leader[0] = true;
+        for (int i = 0; i < n; i++) {
+            if (succs[i].length == 1 && succs[i][0] == i + 1)
+                continue;
+            leader[i + 1] = true;
+            for (int succ : succs[i])
+                leader[succ] = true;
+        }
+        int numBlocks = 0;
+        for (int i = 0; i < n; i++)
+            if (leader[i]) numBlocks++;
+
+        int[] blockOf = new int[n];
+        this.blockStart = new int[numBlocks];
+        this.blockEnd = new int[numBlocks];
+        int b = -1;
+        for (int i = 0; i < n; i++) {
+            if (leader[i]) {
+                b++;
+                this.blockStart[b] = i;
+            }
+            blockOf[i] = b;
+            this.blockEnd[b] = i + 1;
+        }
+
+        this.blockSuccs = new int[numBlocks][];
+        int[] numPreds = new int[numBlocks];
+        for (b = 0; b < numBlocks; b++) {
+            int[] last = succs[this.blockEnd[b] - 1];
+            this.blockSuccs[b] = new int[last.length];
+            for (int s = 0; s < last.length; s++) {
+                this.blockSuccs[b][s] = blockOf[last[s]];
+                numPreds[blockOf[last[s]]]++;
+            }
+        }
+        this.blockPreds = new int[numBlocks][];
+        for (b = 0; b < numBlocks; b++)
+            this.blockPreds[b] = new int[numPreds[b]];
+        for (b = 0; b < numBlocks; b++)
+            for (int succ : this.blockSuccs[b])
+                this.blockPreds[succ][--numPreds[succ]] = b;
+
+        this.blockUse = new long[numBlocks][this.words];
+        this.blockDef = new long[numBlocks][this.words];
+        this.blockIn = new long[numBlocks][this.words];
+        this.blockOut = new long[numBlocks][this.words];
+        for (b = 0; b < numBlocks; b++) {
+            long[] use = this.blockUse[b];
+            long[] def = this.blockDef[b];
+            for (int i = this.blockEnd[b] - 1; i >= this.blockStart[b]; i--) {
+                Expression instruction = this.nodes.get(i).getInstruction();
+                for (TEMP temp : instruction.getDef()) {
+                    int t = this.numbers.get(temp);
+                    use[t >>> 6] &= ~(1L << t);
+                    def[t >>> 6] |= 1L << t;
+                }
+                for (TEMP temp : instruction.getUse()) {
+                    int t = this.numbers.get(temp);
+                    use[t >>> 6] |= 1L << t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks in postorder of a depth-first search from the entry, followed by
+     * the unreachable ones; successors thus come before their predecessors
+     */
+    private int[] postorder() {
+        int numBlocks = this.blockStart.length;
+        int[] order = new int[numBlocks];
+        int numOrdered = 0;
+        boolean[] visited = new boolean[numBlocks];
+        int[] stack = new int[numBlocks];
+        int[] next = new int[numBlocks];
+        for (int r = -1; r < numBlocks; r++) {
+            int root = r < 0 ? 0 : numBlocks - 1 - r;
+            if (visited[root])
+                continue;
+            int depth = 0;
+            stack[depth++] = root;
+            visited[root] = true;
+            while (depth > 0) {
+                int b = stack[depth - 1];
+                if (next[b] < this.blockSuccs[b].length) {
+                    int succ = this.blockSuccs[b][next[b]++];
+                    if (!visited[succ]) {
+                        visited[succ] = true;
+                        stack[depth++] = succ;
+                    }
+                } else {
+                    order[numOrdered++] = b;
+                    depth--;
+                }
+            }
+        }
+        return order;
+    }
+
+    private void solve() {
+        int numBlocks = this.blockStart.length;
+        if (numBlocks == 0)
+            return;
+        int[] queue = postorder();
+        boolean[] queued = new boolean[numBlocks];
+        for (int b = 0; b < numBlocks; b++)
+            queued[b] = true;
+        int head = 0;
+        int size = numBlocks;
+        while (size > 0) {
+            int b = queue[head];
+            head = (head + 1) % numBlocks;
+            size--;
+            queued[b] = false;
+
+            long[] out = this.blockOut[b];
+            for (int w = 0; w < this.words; w++)
+                out[w] = 0;
+            for (int succ : this.blockSuccs[b]) {
+                long[] succIn = this.blockIn[succ];
+                for (int w = 0; w < this.words; w++)
+                    out[w] |= succIn[w];
+            }
+            long[] in = this.blockIn[b];
+            long[] use = this.blockUse[b];
+            long[] def = this.blockDef[b];
+            boolean changed = false;
+            for (int w = 0; w < this.words; w++) {
+                long live = use[w] | (out[w] & ~def[w]);
+                if (live != in[w]) {
+                    in[w] = live;
+                    changed = true;
+                }
+            }
+            if (!changed)
+                continue;
+            for (int pred : this.blockPreds[b]) {
+                if (queued[pred])
+                    continue;
+                queued[pred] = true;
+                queue[(head + size) % numBlocks] = pred;
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Fills in the live sets of the instructions; within a block the live-out
+     * set of an instruction is the live-in set of the next one
+     */
+    private void materialize() {
+        for (int b = 0; b < this.blockStart.length; b++) {
+            TempSet live = new TempSet(this, this.blockOut[b]);
+            for (int i = this.blockEnd[b] - 1; i >= this.blockStart[b]; i--) {
+                GraphNode node = this.nodes.get(i);
+                Expression instruction = node.getInstruction();
+                node.out = live;
+                long[] in = live.getBits().clone();
+                for (TEMP temp : instruction.getDef()) {
+                    int t = this.numbers.get(temp);
+                    in[t >>> 6] &= ~(1L << t);
+                }
+                for (TEMP temp : instruction.getUse()) {
+                    int t = this.numbers.get(temp);
+                    in[t >>> 6] |= 1L << t;
+                }
+                live = new TempSet(this, in);
+                node.in = live;
+            }
+        }
+    }
+}
@@ -1,136 +1,233 @@
 package compiler.data.cod.graph;
 
 import compiler.common.report.CompilerError;
+import compiler.data.cod.Expression;
 import compiler.data.imc.TEMP;
 import compiler.data.cod.wrapper.FragmentCode;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Set;
 
 /**
  * Interference graph
+ * Nodes are the temps of the fragment numbered densely; the edges are kept
+ * both in a triangular bit matrix for constant time queries and in adjacency
+ * lists with degree counters for iterating over the neighbours.
  * Created by pr3mar on 5/23/16.
  */
 public class RegGraph {
 
-    public HashMap<TEMP, Set<TEMP>> nodes;
     private FragmentCode fragmentCode;
+    private TEMP[] temps;
+    private HashMap<TEMP, Integer> numbers;
+    private long[] matrix;
+    private int[][] adjList;
+    private int[] degree;
+    private long numEdges;
+
+    private int numMoves;
+    private int[] moveDst;
+    private int[] moveSrc;
+    private GraphNode[] moveNode;
 
     public RegGraph(FragmentCode fragmentCode) {
         this.fragmentCode = fragmentCode;
-        this.nodes = new HashMap<>();
+        this.temps = new TEMP[this.fragmentCode.temps.size()];
+        this.numbers = new HashMap<>();
         for(TEMP temp : this.fragmentCode.temps.keySet()) {
             if(this.fragmentCode.temps.get(temp) == null)
                 throw new CompilerError("FUCK U!");
-//            if(this.fragmentCode.temps.get(temp).equals("SP")) continue;
-            this.nodes.put(temp, new HashSet<TEMP>());
+            this.numbers.put(temp, this.numbers.size());
+            this.temps[this.numbers.size() - 1] = temp;
         }
         buildGraph();
     }
 
     public RegGraph(FragmentCode fragmentCode, Set<TEMP> spilled) {
-        this.fragmentCode = fragmentCode;
-        this.nodes = new HashMap<>();
-        for(TEMP temp : this.fragmentCode.temps.keySet()) {
-            if(spilled.contains(temp)) {
+        this(fragmentCode);
+        for(TEMP temp : spilled) {
+            if(this.numbers.containsKey(temp)) {
                 throw new CompilerError("GOTCHA!");
             }
-//            if(this.fragmentCode.temps.get(temp).equals("SP")) continue;
-            this.nodes.put(temp, new HashSet<TEMP>());
         }
-        buildGraph();
     }
 
+    /**
+     * Builds the graph instruction by instruction backwards from the live-out
+     * sets of the basic blocks: every temp defined by an instruction interferes
+     * with all temps live after it, except that the destination of a move does
+     * not interfere with its source
+     */
     private void buildGraph() {
-        /*for(GraphNode node : this.fragmentCode.codeGraph.getNodes()) {
-            if(!node.getInstruction().getMove()) {
-                for (TEMP def : node.def) {
-                    Set<TEMP> update = this.nodes.get(def);
-                    for(TEMP out : node.out) {
-                        if(out.equals(def)) continue;
-                        update.add(out);
-                        Set<TEMP> outUpdate = this.nodes.get(out);
-                        this.nodes.put(out, outUpdate);
-                        outUpdate.add(def);
-                    }
-                    this.nodes.put(def, update);
+        int n = this.temps.length;
+        this.matrix = new long[(int) (((long) n * (n - 1) / 2 + 63) >>> 6)];
+        this.adjList = new int[n][0];
+        this.degree = new int[n];
+        this.moveDst = new int[8];
+        this.moveSrc = new int[8];
+        this.moveNode = new GraphNode[8];
+
+        Liveness liveness = this.fragmentCode.codeGraph.getLiveness();
+        int[] node = new int[liveness.numTemps()];
+        for (int t = 0; t < node.length; t++) {
+            Integer number = this.numbers.get(liveness.getTemp(t));
+            node[t] = number == null ? -1 : number;
+        }
+
+        long[] live = new long[(liveness.numTemps() + 63) >>> 6];
+        for (int b = 0; b < liveness.numBlocks(); b++) {
+            System.arraycopy(liveness.getLiveOut(b), 0, live, 0, live.length);
+            for (int i = liveness.getBlockEnd(b) - 1; i >= liveness.getBlockStart(b); i--) {
+                GraphNode graphNode = liveness.getNode(i);
+                Expression instruction = graphNode.getInstruction();
+                int src = -1;
+                if (instruction.getMove() && instruction.getResult() != null && instruction.getOp1() != null) {
+                    src = liveness.getNumber(instruction.getOp1());
+                    int dst = liveness.getNumber(instruction.getResult());
+                    if (node[dst] >= 0 && node[src] >= 0 && node[dst] != node[src])
+                        addMove(node[dst], node[src], graphNode);
                 }
-            } else {
-                TEMP dont = node.getInstruction().getOp1();
-                for (TEMP def : node.def) {
-                    Set<TEMP> update = this.nodes.get(def);
-                    for(TEMP out : node.out) {
-                        if(out.equals(def)) continue;
-                        update.add(out);
-                        Set<TEMP> outUpdate = this.nodes.get(out);
-                        outUpdate.add(def);
-                        this.nodes.put(out, outUpdate);
+                for (TEMP temp : instruction.getDef()) {
+                    int d = liveness.getNumber(temp);
+                    if (node[d] < 0)
+                        continue;
+                    for (int w = 0; w < live.length; w++) {
+                        long word = live[w];
+                        while (word != 0) {
+                            int l = (w << 6) + Long.numberOfTrailingZeros(word);
+                            word &= word - 1;
+                            if (l != src && node[l] >= 0)
+                                addEdge(node[d], node[l]);
+                        }
                     }
-                    update.remove(dont);
-                    this.nodes.put(def, update);
                 }
-            }
-        }*/
-        for(GraphNode node : this.fragmentCode.codeGraph.getNodes()) {
-            for (TEMP in : node.in) {
-                Set<TEMP> inUpdate = this.nodes.get(in);
-                if(inUpdate == null) continue;
-                for (TEMP add : node.in) {
-                    if(add.equals(in)) continue;
-                    Set<TEMP> addUpdate = this.nodes.get(add);
-                    if(addUpdate == null) continue;
-                    inUpdate.add(add);
-                    addUpdate.add(in);
-                    this.nodes.put(add, addUpdate);
+                for (TEMP temp : instruction.getDef()) {
+                    int d = liveness.getNumber(temp);
+                    live[d >>> 6] &= ~(1L << d);
                 }
-                this.nodes.put(in, inUpdate);
-            }
-            for (TEMP out : node.out) {
-                Set<TEMP> outUpdate = this.nodes.get(out);
-                if(outUpdate == null) continue;
-                for (TEMP add : node.out) {
-                    if(add.equals(out)) continue;
-                    Set<TEMP> addUpdate = this.nodes.get(add);
-                    if(addUpdate == null) continue;
-                    outUpdate.add(add);
-                    addUpdate.add(out);
-                    this.nodes.put(add, addUpdate);
+                for (TEMP temp : instruction.getUse()) {
+                    int u = liveness.getNumber(temp);
+                    live[u >>> 6] |= 1L << u;
                 }
-                this.nodes.put(out, outUpdate);
             }
         }
     }
 
-    public HashMap<TEMP, Set<TEMP>> getNodes() {
-        return this.nodes;
+    /**
+     * Adds an edge unless the nodes already interfere; returns whether it has
+     * been added
+     */
+    public boolean addEdge(int u, int v) {
+        if (u == v || interferes(u, v))
+            return false;
+        long bit = bit(u, v);
+        this.matrix[(int) (bit >>> 6)] |= 1L << bit;
+        addAdjacent(u, v);
+        addAdjacent(v, u);
+        this.numEdges++;
+        return true;
     }
 
-    public void setNodes(HashMap<TEMP, Set<TEMP>> nodes) {
-        this.nodes = nodes;
+    private void addAdjacent(int u, int v) {
+        if (this.degree[u] == this.adjList[u].length)
+            this.adjList[u] = Arrays.copyOf(this.adjList[u], Math.max(4, 2 * this.degree[u]));
+        this.adjList[u][this.degree[u]++] = v;
+    }
+
+    private void addMove(int dst, int src, GraphNode node) {
+        if (this.numMoves == this.moveDst.length) {
+            this.moveDst = Arrays.copyOf(this.moveDst, 2 * this.numMoves);
+            this.moveSrc = Arrays.copyOf(this.moveSrc, 2 * this.numMoves);
+            this.moveNode = Arrays.copyOf(this.moveNode, 2 * this.numMoves);
+        }
+        this.moveDst[this.numMoves] = dst;
+        this.moveSrc[this.numMoves] = src;
+        this.moveNode[this.numMoves] = node;
+        this.numMoves++;
+    }
+
+    private static long bit(int u, int v) {
+        long hi = Math.max(u, v);
+        long lo = Math.min(u, v);
+        return hi * (hi - 1) / 2 + lo;
+    }
+
+    public int numNodes() {
+        return this.temps.length;
+    }
+
+    public TEMP getTemp(int node) {
+        return this.temps[node];
+    }
+
+    /**
+     * Returns the node of the temp or -1 if the temp is not in the graph
+     */
+    public int getNode(TEMP temp) {
+        Integer number = this.numbers.get(temp);
+        return number == null ? -1 : number;
+    }
+
+    public boolean interferes(int u, int v) {
+        if (u == v)
+            return false;
+        long bit = bit(u, v);
+        return (this.matrix[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    public int getDegree(int node) {
+        return this.degree[node];
+    }
+
+    /**
+     * Neighbours of the node in the first getDegree(node) elements; the array
+     * is owned by the graph
+     */
+    public int[] getAdjacent(int node) {
+        return this.adjList[node];
+    }
+
+    /**
+     * Number of move instructions between two different nodes
+     */
+    public int numMoves() {
+        return this.numMoves;
+    }
+
+    public int getMoveDst(int move) {
+        return this.moveDst[move];
+    }
+
+    public int getMoveSrc(int move) {
+        return this.moveSrc[move];
+    }
+
+    public GraphNode getMoveNode(int move) {
+        return this.moveNode[move];
+    }
+
+    /**
+     * Number of (undirected) interference edges
+     */
+    public long numEdges() {
+        return this.numEdges;
     }
 
     @Override
     public String toString() {
-        String ret = "";
-        for(TEMP reg : this.nodes.keySet()) {
-            ret += this.fragmentCode.temps.get(reg) + ": ";
-            for(TEMP ints : this.nodes.get(reg)) {
-                ret += this.fragmentCode.temps.get(ints) + ", ";
+        StringBuilder ret = new StringBuilder();
+        for(int v = 0; v < this.temps.length; v++) {
+            ret.append(this.fragmentCode.temps.get(this.temps[v])).append(": ");
+            for(int a = 0; a < this.degree[v]; a++) {
+                ret.append(this.fragmentCode.temps.get(this.temps[this.adjList[v][a]])).append(", ");
             }
-            ret += "\n";
+            ret.append("\n");
         }
-        return ret;
+        return ret.toString();
     }
 
     public void print() {
-        for(TEMP reg : this.nodes.keySet()) {
-            System.out.print(this.fragmentCode.temps.get(reg) + ": ");
-            for(TEMP ints : this.nodes.get(reg)) {
-                System.out.print(this.fragmentCode.temps.get(ints) + ", ");
-            }
-            System.out.println();
-        }
+        System.out.print(toString());
     }
 }
@@ -0,0 +1,66 @@
+package compiler.data.cod.graph;
+
+import compiler.data.imc.TEMP;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only set of temps stored as a bit vector over the temp numbers of a
+ * liveness analysis
+ */
+class TempSet extends AbstractSet<TEMP> {
+    private Liveness liveness;
+    private long[] bits;
+    private int size;
+
+    TempSet(Liveness liveness, long[] bits) {
+        this.liveness = liveness;
+        this.bits = bits;
+        this.size = 0;
+        for (long word : bits)
+            this.size += Long.bitCount(word);
+    }
+
+    long[] getBits() {
+        return this.bits;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof TEMP))
+            return false;
+        int t = this.liveness.getNumber((TEMP) o);
+        return t >= 0 && (this.bits[t >>> 6] & (1L << t)) != 0;
+    }
+
+    @Override
+    public Iterator<TEMP> iterator() {
+        return new Iterator<TEMP>() {
+            private int word = 0;
+            private long rest = bits.length == 0 ? 0 : bits[0];
+
+            @Override
+            public boolean hasNext() {
+                while (this.rest == 0 && this.word + 1 < bits.length)
+                    this.rest = bits[++this.word];
+                return this.rest != 0;
+            }
+
+            @Override
+            public TEMP next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int t = (this.word << 6) + Long.numberOfTrailingZeros(this.rest);
+                this.rest &= this.rest - 1;
+                return liveness.getTemp(t);
+            }
+        };
+    }
+}
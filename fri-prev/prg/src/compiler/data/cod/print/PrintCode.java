@@ -47,6 +47,7 @@ public class PrintCode {
             System.out.println();
 
             System.out.println("\nColoring of the graph for fragment: " + current.fragment.label);
+            System.out.println("Moves removed: " + current.movesRemoved + ", temps spilled: " + current.spilledTemps);
             for(TEMP t : current.coloredMap.keySet()) {
                 if(current.coloredMap.get(t) == null) {
                     throw new CompilerError("printString colored error!");
@@ -29,6 +29,10 @@ public class FragmentCode {
 
     public HashMap<TEMP, String> coloredMap;
 
+    public int movesRemoved; // move instructions deleted by the register allocator
+
+    public int spilledTemps; // temps spilled by the register allocator
+
 
     public FragmentCode(CodeFragment fragment, LinkedList<Expression> code, HashMap<TEMP, String> temps) {
         this.fragment = fragment;
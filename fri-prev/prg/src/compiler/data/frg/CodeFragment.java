@@ -24,8 +24,8 @@ public class CodeFragment extends Fragment {
 	/** The intermediate code. */
 	public final IMCStmt stmt;
 	
-	/** The linearized intermediate code. */
-	public final STMTS linCode;
+	/** The linearized intermediate code (replaced once it is scheduled). */
+	public STMTS linCode;
 
 	/**
 	 * Constucts a new code fragment.
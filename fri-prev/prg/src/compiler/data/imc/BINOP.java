@@ -51,15 +51,12 @@ public class BINOP extends IMCExpr {
 	}
 			
 	@Override
-	public SEXPR linCode() {
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
 		int result = TEMP.newTempName();
-		SEXPR expr1LC = expr1.linCode();
-		SEXPR expr2LC = expr2.linCode();
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
-		lc.addAll(((STMTS)(expr1LC.stmt)).stmts());
-		lc.addAll(((STMTS)(expr2LC.stmt)).stmts());
-		lc.add(new MOVE(new TEMP(result), new BINOP(oper, expr1LC.expr, expr2LC.expr)));
-		return new SEXPR(new STMTS(lc), new TEMP(result));
+		IMCExpr expr1LC = expr1.linCode(lc);
+		IMCExpr expr2LC = expr2.linCode(lc);
+		lc.add(new MOVE(new TEMP(result), new BINOP(oper, expr1LC, expr2LC)));
+		return new TEMP(result);
 	}
 
 	public void accept(IMCVisitor visitor) {
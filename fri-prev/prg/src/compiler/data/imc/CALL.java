@@ -81,21 +81,17 @@ public class CALL extends IMCExpr {
 	}
 	
 	@Override
-	public SEXPR linCode() {
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
 		int result = TEMP.newTempName();
 		
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
-		SEXPR[] argsLC = new SEXPR[args.length];
 		Vector<IMCExpr> newargs = new Vector<IMCExpr>();
 		Vector<Long> newwidths = new Vector<Long>();
 		for (int arg = 0; arg < args.length; arg++) {
-			argsLC[arg] = args[arg].linCode();
-			lc.addAll(((STMTS)(argsLC[arg].stmt)).stmts());
-			newargs.add(argsLC[arg].expr);
+			newargs.add(args[arg].linCode(lc));
 			newwidths.add(widths[arg]);
 		}
 		lc.add(new MOVE(new TEMP(result), new CALL(label, newargs, newwidths)));
-		return new SEXPR(new STMTS(lc), new TEMP(result));
+		return new TEMP(result);
 	}
 
 	public void accept(IMCVisitor visitor) {
@@ -46,12 +46,9 @@ public class CJUMP extends IMCStmt {
 	}
 
 	@Override
-	public STMTS linCode() {
-		SEXPR condLC = cond.linCode();
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
-		lc.addAll(((STMTS)(condLC.stmt)).stmts());
-		lc.add(new CJUMP(condLC.expr, posLabel, negLabel));
-		return new STMTS(lc);
+	public void linCode(Vector<IMCStmt> lc) {
+		IMCExpr condLC = cond.linCode(lc);
+		lc.add(new CJUMP(condLC, posLabel, negLabel));
 	}
 
 	public void accept(IMCVisitor visitor) {
@@ -32,8 +32,8 @@ public class CONST extends IMCExpr {
 	}
 
 	@Override
-	public SEXPR linCode() {
-		return new SEXPR(new STMTS(new Vector<IMCStmt>()), new CONST(value));
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
+		return new CONST(value);
 	}
 
 	public void accept(IMCVisitor visitor) {
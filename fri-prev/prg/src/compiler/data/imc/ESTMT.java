@@ -34,12 +34,9 @@ public class ESTMT extends IMCStmt {
 	}
 
 	@Override
-	public STMTS linCode() {
-		SEXPR exprLC = expr.linCode();
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
-		lc.addAll(((STMTS)(exprLC.stmt)).stmts());
-		// expression part of exprLC is thrown away
-		return new STMTS(lc);
+	public void linCode(Vector<IMCStmt> lc) {
+		expr.linCode(lc);
+		// the resulting expression is thrown away
 	}
 
 	public void accept(IMCVisitor visitor) {
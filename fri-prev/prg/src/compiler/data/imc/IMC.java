@@ -8,6 +8,21 @@ import compiler.common.logger.*;
  * @author sliva
  */
 public abstract class IMC {
+
+	/** The number of instructions created so far. */
+	private static long numNodes = 0;
+
+	protected IMC() {
+		numNodes++;
+	}
+
+	/**
+	 * Returns the number of instructions of the intermediate code created so
+	 * far.
+	 */
+	public static long numNodes() {
+		return numNodes;
+	}
 	
 	public abstract void toXML(Logger logger);
 
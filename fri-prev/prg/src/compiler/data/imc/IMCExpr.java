@@ -1,5 +1,7 @@
 package compiler.data.imc;
 
+import java.util.*;
+
 import compiler.data.cod.imcVisitor.IMCVisitor;
 
 /**
@@ -9,7 +11,28 @@ import compiler.data.cod.imcVisitor.IMCVisitor;
  */
 public abstract class IMCExpr extends IMC {
 
-	public abstract SEXPR linCode();
+	/**
+	 * Linearizes this expression.
+	 * 
+	 * @return The linearized statements followed by the expression computing
+	 *         the result.
+	 */
+	public SEXPR linCode() {
+		Vector<IMCStmt> lc = new Vector<IMCStmt>();
+		IMCExpr expr = linCode(lc);
+		return new SEXPR(new STMTS(lc), expr);
+	}
+
+	/**
+	 * Linearizes this expression by appending the linearized statements to
+	 * the specified sequence.
+	 * 
+	 * @param lc
+	 *            The sequence of linearized statements.
+	 * @return The expression computing the result once the appended
+	 *         statements have been executed.
+	 */
+	public abstract IMCExpr linCode(Vector<IMCStmt> lc);
 
 	public abstract void accept(IMCVisitor visitor);
 }
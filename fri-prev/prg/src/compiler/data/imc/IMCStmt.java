@@ -1,5 +1,7 @@
 package compiler.data.imc;
 
+import java.util.*;
+
 import compiler.data.cod.imcVisitor.IMCVisitor;
 
 /**
@@ -9,7 +11,25 @@ import compiler.data.cod.imcVisitor.IMCVisitor;
  */
 public abstract class IMCStmt extends IMC {
 	
-	public abstract STMTS linCode();
+	/**
+	 * Linearizes this statement.
+	 * 
+	 * @return The linearized statements.
+	 */
+	public STMTS linCode() {
+		Vector<IMCStmt> lc = new Vector<IMCStmt>();
+		linCode(lc);
+		return new STMTS(lc);
+	}
+
+	/**
+	 * Linearizes this statement by appending the linearized statements to the
+	 * specified sequence.
+	 * 
+	 * @param lc
+	 *            The sequence of linearized statements.
+	 */
+	public abstract void linCode(Vector<IMCStmt> lc);
 
 	public abstract void accept(IMCVisitor visitor);
 }
@@ -33,10 +33,8 @@ public class JUMP extends IMCStmt {
 	}
 	
 	@Override
-	public STMTS linCode() {
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
+	public void linCode(Vector<IMCStmt> lc) {
 		lc.add(new JUMP(label));
-		return new STMTS(lc);
 	}
 
 
@@ -46,10 +46,8 @@ public class LABEL extends IMCStmt {
 	}
 	
 	@Override
-	public STMTS linCode() {
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
+	public void linCode(Vector<IMCStmt> lc) {
 		lc.add(new LABEL(label));
-		return new STMTS(lc);
 	}
 
 	public void accept(IMCVisitor visitor) {
@@ -40,13 +40,11 @@ public class MEM extends IMCExpr {
 	}
 	
 	@Override
-	public SEXPR linCode() {
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
 		int result = TEMP.newTempName();
-		SEXPR addrLC = addr.linCode();
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
-		lc.addAll(((STMTS)(addrLC.stmt)).stmts());
-		lc.add(new MOVE(new TEMP(result), new MEM(addrLC.expr, width)));
-		return new SEXPR(new STMTS(lc), new TEMP(result));
+		IMCExpr addrLC = addr.linCode(lc);
+		lc.add(new MOVE(new TEMP(result), new MEM(addrLC, width)));
+		return new TEMP(result);
 	}
 
 	public void accept(IMCVisitor visitor) {
@@ -42,27 +42,21 @@ public class MOVE extends IMCStmt {
 	}
 		
 	@Override
-	public STMTS linCode() {
-		SEXPR dstLC;
-		SEXPR srcLC;
+	public void linCode(Vector<IMCStmt> lc) {
+		IMCExpr dstLC;
+		IMCExpr srcLC;
 		
 		if (dst instanceof MEM) {
-			dstLC = ((MEM)dst).addr.linCode();
-			srcLC = src.linCode();
-			Vector<IMCStmt> lc = new Vector<IMCStmt>();
-			lc.addAll(((STMTS)(dstLC.stmt)).stmts());
-			lc.addAll(((STMTS)(srcLC.stmt)).stmts());
-			lc.add(new MOVE(new MEM(dstLC.expr, ((MEM)dst).width), srcLC.expr));
-			return new STMTS(lc);
+			dstLC = ((MEM)dst).addr.linCode(lc);
+			srcLC = src.linCode(lc);
+			lc.add(new MOVE(new MEM(dstLC, ((MEM)dst).width), srcLC));
+			return;
 		}
 		if (dst instanceof TEMP) {
-			dstLC = dst.linCode();
-			srcLC = src.linCode();
-			Vector<IMCStmt> lc = new Vector<IMCStmt>();
-			lc.addAll(((STMTS)(dstLC.stmt)).stmts());
-			lc.addAll(((STMTS)(srcLC.stmt)).stmts());
-			lc.add(new MOVE(dstLC.expr, srcLC.expr));
-			return new STMTS(lc);
+			dstLC = dst.linCode(lc);
+			srcLC = src.linCode(lc);
+			lc.add(new MOVE(dstLC, srcLC));
+			return;
 		}
 		throw new InternalCompilerError();
 	}
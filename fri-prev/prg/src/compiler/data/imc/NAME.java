@@ -33,8 +33,8 @@ public class NAME extends IMCExpr {
 	}
 
 	@Override
-	public SEXPR linCode() {
-		return new SEXPR(new STMTS(new Vector<IMCStmt>()), new NAME(name));
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
+		return new NAME(name);
 	}
 
 	public void accept(IMCVisitor visitor) {
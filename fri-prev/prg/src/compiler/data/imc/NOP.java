@@ -23,8 +23,8 @@ public class NOP extends IMCExpr {
 	}
 	
 	@Override
-	public SEXPR linCode() {
-		return new SEXPR(new STMTS(new Vector<IMCStmt>()), new NOP());
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
+		return new NOP();
 	}
 
 	public void accept(IMCVisitor visitor) {
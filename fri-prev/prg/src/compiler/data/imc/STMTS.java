@@ -48,13 +48,10 @@ public class STMTS extends IMCStmt {
 		logger.endElement();
 	}
 	
-	public STMTS linCode() {
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
-		for (int stmt = 0; stmt < stmts.size(); stmt++) {
-			STMTS lcStmt = stmts.get(stmt).linCode();
-			lc.addAll(lcStmt.stmts());
-		}
-		return new STMTS(lc);
+	@Override
+	public void linCode(Vector<IMCStmt> lc) {
+		for (int stmt = 0; stmt < stmts.size(); stmt++)
+			stmts.get(stmt).linCode(lc);
 	}
 
 	public void accept(IMCVisitor visitor) {
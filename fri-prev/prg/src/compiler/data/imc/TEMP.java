@@ -51,8 +51,8 @@ public class TEMP extends IMCExpr {
 	}
 	
 	@Override
-	public SEXPR linCode() {
-		return new SEXPR(new STMTS(new Vector<IMCStmt>()), new TEMP(name));
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
+		return new TEMP(name);
 	}
 
 	@Override
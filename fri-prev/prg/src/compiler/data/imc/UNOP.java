@@ -44,13 +44,11 @@ public class UNOP extends IMCExpr {
 	}
 	
 	@Override
-	public SEXPR linCode() {
+	public IMCExpr linCode(Vector<IMCStmt> lc) {
 		int result = TEMP.newTempName();
-		SEXPR exprLC = expr.linCode();
-		Vector<IMCStmt> lc = new Vector<IMCStmt>();
-		lc.addAll(((STMTS)(exprLC.stmt)).stmts());
-		lc.add(new MOVE(new TEMP(result), new UNOP( oper, exprLC.expr)));
-		return new SEXPR(new STMTS(lc), new TEMP(result));
+		IMCExpr exprLC = expr.linCode(lc);
+		lc.add(new MOVE(new TEMP(result), new UNOP( oper, exprLC)));
+		return new TEMP(result);
 	}
 
 	public void accept(IMCVisitor visitor) {
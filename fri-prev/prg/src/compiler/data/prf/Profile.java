@@ -0,0 +1,362 @@
+package compiler.data.prf;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import compiler.common.report.*;
+
+/**
+ * An execution profile of a program.
+ *
+ * <p>
+ * The profile counts the statements executed in each code fragment and in each
+ * of its basic blocks, the calls along each edge of the call graph, and the
+ * memory loads and stores in each segment. It is recorded by the interpreter
+ * (which reports every event as it executes the program) and can be queried
+ * afterwards, e.g., by later phases using the profile as feedback.
+ * </p>
+ *
+ * <p>
+ * Basic blocks are identified by the labels that start them; the block at the
+ * beginning of a fragment is identified by the label of the fragment.
+ * </p>
+ */
+public class Profile {
+
+	/** Memory segments. */
+	public enum Segment {
+		STACK, DATA, HEAP
+	}
+
+	/** The counters of a basic block. */
+	private static class Block {
+
+		long numEntries;
+
+		long numStmts;
+
+	}
+
+	/** The counters of a code fragment. */
+	private static class Fragment {
+
+		final String label;
+
+		long numCalls;
+
+		long numStmts;
+
+		/** Statements executed by the fragment and all functions it calls. */
+		long numInclusiveStmts;
+
+		/** The number of activations currently on the stack. */
+		int numActive;
+
+		final LinkedHashMap<String, Block> blocks = new LinkedHashMap<String, Block>();
+
+		final LinkedHashMap<String, long[]> callers = new LinkedHashMap<String, long[]>();
+
+		final LinkedHashMap<String, long[]> callees = new LinkedHashMap<String, long[]>();
+
+		Fragment(String label) {
+			this.label = label;
+		}
+
+		Block block(String label) {
+			Block block = blocks.get(label);
+			if (block == null) {
+				block = new Block();
+				blocks.put(label, block);
+			}
+			return block;
+		}
+
+	}
+
+	/** An activation of a code fragment. */
+	private static class Activation {
+
+		final Fragment fragment;
+
+		/** The basic block being executed. */
+		Block block;
+
+		/** The number of statements executed before the activation. */
+		final long begNumStmts;
+
+		Activation(Fragment fragment, Block block, long begNumStmts) {
+			this.fragment = fragment;
+			this.block = block;
+			this.begNumStmts = begNumStmts;
+		}
+
+	}
+
+	/** Code fragments by their labels. */
+	private final LinkedHashMap<String, Fragment> fragments = new LinkedHashMap<String, Fragment>();
+
+	/** Activations of code fragments being executed. */
+	private final Stack<Activation> activations = new Stack<Activation>();
+
+	/** The number of statements executed. */
+	private long numStmts = 0;
+
+	private final long[] numLoads = new long[Segment.values().length];
+
+	private final long[] numStores = new long[Segment.values().length];
+
+	private Fragment fragment(String label) {
+		Fragment fragment = fragments.get(label);
+		if (fragment == null) {
+			fragment = new Fragment(label);
+			fragments.put(label, fragment);
+		}
+		return fragment;
+	}
+
+	private static long count(LinkedHashMap<String, long[]> counters, String label) {
+		long[] counter = counters.get(label);
+		return counter == null ? 0 : counter[0];
+	}
+
+	private static void increment(LinkedHashMap<String, long[]> counters, String label) {
+		long[] counter = counters.get(label);
+		if (counter == null) {
+			counter = new long[1];
+			counters.put(label, counter);
+		}
+		counter[0]++;
+	}
+
+	// ----- RECORDING -----
+
+	/**
+	 * Records the beginning of an activation of a code fragment.
+	 *
+	 * @param label
+	 *            The label of the code fragment.
+	 */
+	public void enter(String label) {
+		Fragment fragment = fragment(label);
+		fragment.numCalls++;
+		fragment.numActive++;
+		Block block = fragment.block(label);
+		block.numEntries++;
+		activations.push(new Activation(fragment, block, numStmts));
+	}
+
+	/**
+	 * Records the end of the activation of the code fragment being executed.
+	 */
+	public void exit() {
+		Activation activation = activations.pop();
+		activation.fragment.numActive--;
+		if (activation.fragment.numActive == 0)
+			activation.fragment.numInclusiveStmts += numStmts - activation.begNumStmts;
+	}
+
+	/**
+	 * Records that a label has been reached in the code fragment being
+	 * executed.
+	 *
+	 * @param label
+	 *            The label.
+	 */
+	public void label(String label) {
+		Activation activation = activations.peek();
+		activation.block = activation.fragment.block(label);
+		activation.block.numEntries++;
+	}
+
+	/**
+	 * Records the execution of a statement of the code fragment being
+	 * executed.
+	 */
+	public void stmt() {
+		Activation activation = activations.peek();
+		activation.block.numStmts++;
+		activation.fragment.numStmts++;
+		numStmts++;
+	}
+
+	/**
+	 * Records a call from the code fragment being executed.
+	 *
+	 * @param label
+	 *            The label of the called function (a code fragment or a
+	 *            built-in function).
+	 */
+	public void call(String label) {
+		Fragment caller = activations.peek().fragment;
+		increment(caller.callees, label);
+		increment(fragment(label).callers, caller.label);
+	}
+
+	/**
+	 * Records a memory load.
+	 *
+	 * @param segment
+	 *            The segment the load is from.
+	 */
+	public void load(Segment segment) {
+		numLoads[segment.ordinal()]++;
+	}
+
+	/**
+	 * Records a memory store.
+	 *
+	 * @param segment
+	 *            The segment the store is to.
+	 */
+	public void store(Segment segment) {
+		numStores[segment.ordinal()]++;
+	}
+
+	// ----- QUERIES -----
+
+	/**
+	 * Returns the labels of all executed code fragments and called built-in
+	 * functions.
+	 */
+	public Set<String> fragments() {
+		return Collections.unmodifiableSet(fragments.keySet());
+	}
+
+	/** Returns the total number of statements executed. */
+	public long numStmts() {
+		return numStmts;
+	}
+
+	/** Returns the number of activations of a code fragment. */
+	public long numCalls(String fragment) {
+		Fragment frg = fragments.get(fragment);
+		return frg == null ? 0 : frg.numCalls;
+	}
+
+	/** Returns the number of statements executed by a code fragment itself. */
+	public long numStmts(String fragment) {
+		Fragment frg = fragments.get(fragment);
+		return frg == null ? 0 : frg.numStmts;
+	}
+
+	/**
+	 * Returns the number of statements executed by a code fragment and by all
+	 * functions it calls (recursive activations are counted once).
+	 */
+	public long numInclusiveStmts(String fragment) {
+		Fragment frg = fragments.get(fragment);
+		return frg == null ? 0 : frg.numInclusiveStmts;
+	}
+
+	/** Returns the number of times a basic block has been entered. */
+	public long numEntries(String fragment, String label) {
+		Fragment frg = fragments.get(fragment);
+		Block block = frg == null ? null : frg.blocks.get(label);
+		return block == null ? 0 : block.numEntries;
+	}
+
+	/** Returns the number of statements executed in a basic block. */
+	public long numStmts(String fragment, String label) {
+		Fragment frg = fragments.get(fragment);
+		Block block = frg == null ? null : frg.blocks.get(label);
+		return block == null ? 0 : block.numStmts;
+	}
+
+	/** Returns the number of calls along an edge of the call graph. */
+	public long numCalls(String caller, String callee) {
+		Fragment frg = fragments.get(caller);
+		return frg == null ? 0 : count(frg.callees, callee);
+	}
+
+	/** Returns the number of memory loads from a segment. */
+	public long numLoads(Segment segment) {
+		return numLoads[segment.ordinal()];
+	}
+
+	/** Returns the number of memory stores to a segment. */
+	public long numStores(Segment segment) {
+		return numStores[segment.ordinal()];
+	}
+
+	// ----- REPORT -----
+
+	/**
+	 * Writes the flat profile, the call graph, the profile of basic blocks and
+	 * the memory accesses into a file.
+	 *
+	 * @param fileName
+	 *            The name of the file.
+	 */
+	public void write(String fileName) {
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8)))) {
+			write(out);
+			if (out.checkError())
+				throw new IOException();
+		} catch (IOException ex) {
+			Report.warning("Cannot write profile file '" + fileName + "'.");
+		}
+	}
+
+	private void write(PrintWriter out) {
+		Vector<Fragment> sorted = new Vector<Fragment>(fragments.values());
+		sorted.sort((frg1, frg2) -> Long.compare(frg2.numStmts, frg1.numStmts));
+
+		out.printf("Flat profile (%d statements executed):%n%n", numStmts);
+		out.printf("%8s %12s %12s %10s %12s  %s%n", "self %", "self", "inclusive", "calls", "self/call",
+				"fragment");
+		for (Fragment frg : sorted) {
+			if (frg.numCalls == 0)
+				continue;
+			out.printf("%7.2f%% %12d %12d %10d %12.1f  %s%n",
+					numStmts == 0 ? 0.0 : 100.0 * frg.numStmts / numStmts, frg.numStmts, frg.numInclusiveStmts,
+					frg.numCalls, (double) frg.numStmts / frg.numCalls, frg.label);
+		}
+
+		out.printf("%nCall graph:%n");
+		for (Fragment frg : sorted) {
+			out.printf("%n%s (%d calls, %d statements, %d inclusive)%n", frg.label,
+					frg.callers.isEmpty() ? frg.numCalls : total(frg.callers), frg.numStmts, frg.numInclusiveStmts);
+			if (!frg.callers.isEmpty())
+				out.printf("    called by: %s%n", edges(frg.callers));
+			if (!frg.callees.isEmpty())
+				out.printf("    calls:     %s%n", edges(frg.callees));
+		}
+
+		out.printf("%nBasic blocks:%n");
+		for (Fragment frg : sorted) {
+			if (frg.blocks.isEmpty())
+				continue;
+			out.printf("%n%s%n", frg.label);
+			out.printf("    %-16s %12s %12s%n", "label", "entries", "statements");
+			for (Map.Entry<String, Block> block : frg.blocks.entrySet())
+				out.printf("    %-16s %12d %12d%n", block.getKey(), block.getValue().numEntries,
+						block.getValue().numStmts);
+		}
+
+		out.printf("%nMemory accesses:%n%n");
+		out.printf("    %-8s %12s %12s%n", "segment", "loads", "stores");
+		for (Segment segment : Segment.values())
+			out.printf("    %-8s %12d %12d%n", segment.name().toLowerCase(), numLoads[segment.ordinal()],
+					numStores[segment.ordinal()]);
+	}
+
+	private static long total(LinkedHashMap<String, long[]> counters) {
+		long total = 0;
+		for (long[] counter : counters.values())
+			total += counter[0];
+		return total;
+	}
+
+	private static String edges(LinkedHashMap<String, long[]> counters) {
+		StringBuilder edges = new StringBuilder();
+		for (Map.Entry<String, long[]> counter : counters.entrySet()) {
+			if (edges.length() > 0)
+				edges.append(", ");
+			edges.append(counter.getKey() + " (" + counter.getValue()[0] + ")");
+		}
+		return edges.toString();
+	}
+
+}
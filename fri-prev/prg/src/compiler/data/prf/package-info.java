@@ -0,0 +1,12 @@
+/**
+ * Execution profiles.
+ *
+ * <p>
+ * If requested by the command line option <code>--profile</code>, the
+ * interpreter of the linearized intermediate code records an execution
+ * profile of the program (see {@link compiler.data.prf.Profile}), stores it in
+ * the compilation task and writes the report into a file next to the source
+ * file once the program ends.
+ * </p>
+ */
+package compiler.data.prf;
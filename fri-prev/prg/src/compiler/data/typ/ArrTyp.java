@@ -21,8 +21,10 @@ public class ArrTyp extends Typ {
 	public boolean isStructEquivTo(Typ typ) {
 		if (typ == null)
 			return false;
+		if (typ == this)
+			return true;
 		return (typ.actualTyp() instanceof ArrTyp) && (this.size == ((ArrTyp) (typ.actualTyp())).size)
-				&& (this.elemTyp.isStructEquivTo(((ArrTyp) (typ.actualTyp())).elemTyp));
+				&& Typ.equiv(this.elemTyp, ((ArrTyp) (typ.actualTyp())).elemTyp);
 	}
 	
 	@Override
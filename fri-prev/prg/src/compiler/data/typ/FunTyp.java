@@ -34,13 +34,15 @@ public class FunTyp extends Typ {
 	public boolean isStructEquivTo(Typ typ) {
 		if (typ == null)
 			return false;
+		if (typ == this)
+			return true;
 		if (typ.actualTyp() instanceof FunTyp) {
 			FunTyp funType = (FunTyp) (typ.actualTyp());
 			boolean isEquiv = true;
-			isEquiv = isEquiv && (this.resultTyp.isStructEquivTo(funType.resultTyp));
+			isEquiv = isEquiv && Typ.equiv(this.resultTyp, funType.resultTyp);
 			isEquiv = isEquiv && (this.parTyps.length == funType.parTyps.length);
 			for (int p = 0; p < this.parTyps.length; p++)
-				isEquiv = isEquiv && (this.parTyps[p].isStructEquivTo(funType.parTyps[p]));
+				isEquiv = isEquiv && Typ.equiv(this.parTyps[p], funType.parTyps[p]);
 			return isEquiv;
 		} else
 			return false;
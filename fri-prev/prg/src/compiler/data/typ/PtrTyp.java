@@ -17,8 +17,10 @@ public class PtrTyp extends Typ implements AssignableTyp, CastableTyp, Comparabl
 	public boolean isStructEquivTo(Typ typ) {
 		if (typ == null)
 			return false;
+		if (typ == this)
+			return true;
 		return (typ.actualTyp() instanceof PtrTyp)
-				&& ((this.baseTyp.isStructEquivTo(((PtrTyp) (typ.actualTyp())).baseTyp))
+				&& (Typ.equiv(this.baseTyp, ((PtrTyp) (typ.actualTyp())).baseTyp)
 						|| (this.baseTyp.actualTyp() instanceof VoidTyp)
 						|| (((PtrTyp) (typ.actualTyp())).baseTyp.actualTyp() instanceof VoidTyp));
 	}
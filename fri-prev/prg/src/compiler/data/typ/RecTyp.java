@@ -33,12 +33,14 @@ public class RecTyp extends Typ {
 	public boolean isStructEquivTo(Typ typ) {
 		if (typ == null)
 			return false;
+		if (typ == this)
+			return true;
 		if (typ.actualTyp() instanceof RecTyp) {
 			RecTyp funType = (RecTyp) (typ.actualTyp());
 			boolean isEquiv = true;
 			isEquiv = isEquiv && (this.compTyps.length == funType.compTyps.length);
 			for (int c = 0; c < this.compTyps.length; c++)
-				isEquiv = isEquiv && (this.compTyps[c].isStructEquivTo(funType.compTyps[c]));
+				isEquiv = isEquiv && Typ.equiv(this.compTyps[c], funType.compTyps[c]);
 			return isEquiv;
 		} else
 			return false;
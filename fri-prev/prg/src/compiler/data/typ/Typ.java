@@ -7,6 +7,12 @@ import compiler.common.logger.*;
  */
 public abstract class Typ implements Loggable {
 
+	/** The number of types created so far. */
+	private static int numTyps = 0;
+
+	/** The unique id of this type (used as a key when hash-consing types). */
+	final int id = numTyps++;
+
 	/**
 	 * Returns the actual type represented by this type.
 	 */
@@ -25,9 +31,7 @@ public abstract class Typ implements Loggable {
 	 *         equivalent or <code>false</code> otherwise.
 	 */
 	public static boolean equiv(Typ fstTyp, Typ sndTyp) {
-		if ((fstTyp == null) || (sndTyp == null))
-			return false;
-		return fstTyp.isStructEquivTo(sndTyp);
+		return TypRelations.equiv(fstTyp, sndTyp);
 	}
 
 	/**
@@ -0,0 +1,136 @@
+package compiler.data.typ;
+
+import java.util.*;
+
+/**
+ * A factory of canonical types.
+ *
+ * <p>
+ * Atomic types are singletons. Pointer, array, record and function types are
+ * hash-consed: structurally identical types built from the same (canonical)
+ * component types are represented by a single object, so that most checks of
+ * structural equivalence end with the identity check. Type names are never
+ * shared as each type declaration introduces a type of its own; types built
+ * from a type name are keyed by the type name itself and thus recursive types
+ * need no special treatment.
+ * </p>
+ *
+ * <p>
+ * Types with missing (<code>null</code>) components are not hash-consed.
+ * </p>
+ */
+public class TypFactory {
+
+	public static final IntegerTyp integerTyp = new IntegerTyp();
+
+	public static final BooleanTyp booleanTyp = new BooleanTyp();
+
+	public static final CharTyp charTyp = new CharTyp();
+
+	public static final StringTyp stringTyp = new StringTyp();
+
+	public static final VoidTyp voidTyp = new VoidTyp();
+
+	/** Canonical composed types. */
+	private final HashMap<Key, Typ> typs = new HashMap<Key, Typ>();
+
+	public PtrTyp ptrTyp(Typ baseTyp) {
+		if (baseTyp == null)
+			return new PtrTyp(null);
+		Key key = new Key(Key.PTR, 0, null, baseTyp);
+		PtrTyp typ = (PtrTyp) typs.get(key);
+		if (typ == null) {
+			typ = new PtrTyp(baseTyp);
+			typs.put(key, typ);
+		}
+		return typ;
+	}
+
+	public ArrTyp arrTyp(long size, Typ elemTyp) {
+		if (elemTyp == null)
+			return new ArrTyp(size, null);
+		Key key = new Key(Key.ARR, size, null, elemTyp);
+		ArrTyp typ = (ArrTyp) typs.get(key);
+		if (typ == null) {
+			typ = new ArrTyp(size, elemTyp);
+			typs.put(key, typ);
+		}
+		return typ;
+	}
+
+	public RecTyp recTyp(String nameSpace, LinkedList<Typ> compTyps) {
+		if (compTyps.contains(null))
+			return new RecTyp(nameSpace, compTyps);
+		Key key = new Key(Key.REC, 0, nameSpace, compTyps.toArray(new Typ[compTyps.size()]));
+		RecTyp typ = (RecTyp) typs.get(key);
+		if (typ == null) {
+			typ = new RecTyp(nameSpace, compTyps);
+			typs.put(key, typ);
+		}
+		return typ;
+	}
+
+	public FunTyp funTyp(LinkedList<Typ> parTyps, Typ resultTyp) {
+		if ((resultTyp == null) || parTyps.contains(null))
+			return new FunTyp(parTyps, resultTyp);
+		Typ[] comps = new Typ[parTyps.size() + 1];
+		parTyps.toArray(comps);
+		comps[parTyps.size()] = resultTyp;
+		Key key = new Key(Key.FUN, 0, null, comps);
+		FunTyp typ = (FunTyp) typs.get(key);
+		if (typ == null) {
+			typ = new FunTyp(parTyps, resultTyp);
+			typs.put(key, typ);
+		}
+		return typ;
+	}
+
+	/**
+	 * The key of a composed type: its kind, size and name space (where
+	 * applicable) and ids of its component types.
+	 */
+	private static final class Key {
+
+		static final int PTR = 0;
+		static final int ARR = 1;
+		static final int REC = 2;
+		static final int FUN = 3;
+
+		private final int kind;
+
+		private final long size;
+
+		private final String nameSpace;
+
+		private final int[] compIds;
+
+		private final int hash;
+
+		Key(int kind, long size, String nameSpace, Typ... compTyps) {
+			this.kind = kind;
+			this.size = size;
+			this.nameSpace = nameSpace;
+			this.compIds = new int[compTyps.length];
+			for (int c = 0; c < compTyps.length; c++)
+				this.compIds[c] = compTyps[c].id;
+			this.hash = ((kind * 31 + Long.hashCode(size)) * 31 + Objects.hashCode(nameSpace)) * 31
+					+ Arrays.hashCode(compIds);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key that = (Key) obj;
+			return (this.kind == that.kind) && (this.size == that.size)
+					&& Objects.equals(this.nameSpace, that.nameSpace) && Arrays.equals(this.compIds, that.compIds);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+}
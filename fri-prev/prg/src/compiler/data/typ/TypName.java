@@ -35,21 +35,27 @@ public class TypName extends Typ {
 		return actualTyp.actualTyp();
 	}
 
+	/** Cycle status: not known yet, being computed, acyclic or circular. */
+	private static final byte UNKNOWN = 0, VISITING = 1, ACYCLIC = 2, CIRCULAR = 3;
+
+	/** The cycle status of this type name (computed once). */
+	private byte circularity = UNKNOWN;
+
 	public boolean isCircular() {
-		return isCircular(this, new HashSet<TypName>());
+		return isCircular(this);
 	}
 
-	private boolean isCircular(Typ typ, HashSet<TypName> typNames) {
+	private static boolean isCircular(Typ typ) {
 		if (typ instanceof ArrTyp) {
-			return isCircular(((ArrTyp) typ).elemTyp, typNames);
+			return isCircular(((ArrTyp) typ).elemTyp);
 		}
 		if (typ instanceof AtomTyp) {
 			return false;
 		}
 		if (typ instanceof FunTyp) {
-			boolean isCircular = isCircular(((FunTyp) typ).resultTyp, typNames);
+			boolean isCircular = isCircular(((FunTyp) typ).resultTyp);
 			for (int p = 0; p < ((FunTyp) typ).numPars(); p++)
-				isCircular = isCircular || isCircular(((FunTyp) typ).parTyp(p), typNames);
+				isCircular = isCircular || isCircular(((FunTyp) typ).parTyp(p));
 			return isCircular;
 		}
 		if (typ instanceof PtrTyp) {
@@ -58,16 +64,27 @@ public class TypName extends Typ {
 		if (typ instanceof RecTyp) {
 			boolean isCircular = false;
 			for (int c = 0; c < ((RecTyp) typ).numComps(); c++)
-				isCircular = isCircular || isCircular(((RecTyp) typ).compTyp(c), typNames);
+				isCircular = isCircular || isCircular(((RecTyp) typ).compTyp(c));
 			return isCircular;
 		}
 		if (typ instanceof TypName) {
 			TypName typName = (TypName) typ;
-			if (typNames.contains(typName))
+			switch (typName.circularity) {
+			case VISITING:
+			case CIRCULAR:
 				return true;
-			typNames.add(typName);
-			boolean isCircular = isCircular(typName.actualTyp, typNames);
-			typNames.remove(typName);
+			case ACYCLIC:
+				return false;
+			}
+			typName.circularity = VISITING;
+			boolean isCircular;
+			try {
+				isCircular = isCircular(typName.actualTyp);
+			} catch (RuntimeException err) {
+				typName.circularity = UNKNOWN;
+				throw err;
+			}
+			typName.circularity = isCircular ? CIRCULAR : ACYCLIC;
 			return isCircular;
 		}
 		throw new InternalCompilerError();
@@ -0,0 +1,97 @@
+package compiler.data.typ;
+
+import java.util.*;
+
+/**
+ * A cache of structural equivalence of types.
+ *
+ * <p>
+ * Pairs of types (keyed by type ids) are checked at most once. While a pair is
+ * being checked, it is assumed to be equivalent, so that checking recursive
+ * types terminates (coinduction). A negative result does not depend on the
+ * assumptions and is cached at once; a positive result is cached only once
+ * the outermost check has succeeded, as it might depend on an assumption that
+ * turns out to be false (in which case it is discarded). Until then it is
+ * reused as yet another assumption.
+ * </p>
+ */
+public class TypRelations {
+
+	/** The results of completed checks. */
+	private static final HashMap<Long, Boolean> equivs = new HashMap<Long, Boolean>();
+
+	/** Pairs currently being checked. */
+	private static final HashSet<Long> assumptions = new HashSet<Long>();
+
+	/** Pairs found equivalent under the current assumptions (in order). */
+	private static final ArrayList<Long> provisionals = new ArrayList<Long>();
+
+	/** Pairs found equivalent under the current assumptions. */
+	private static final HashSet<Long> provisionalSet = new HashSet<Long>();
+
+	/**
+	 * Checks whether two types are structurally equivalent.
+	 *
+	 * @param fstTyp
+	 *            The first type.
+	 * @param sndTyp
+	 *            The second type.
+	 * @return <code>true</code> if the specified types are structurally
+	 *         equivalent or <code>false</code> otherwise.
+	 */
+	public static boolean equiv(Typ fstTyp, Typ sndTyp) {
+		if ((fstTyp == null) || (sndTyp == null))
+			return false;
+		if (fstTyp == sndTyp)
+			return true;
+		Long pair = (((long) fstTyp.id) << 32) | (sndTyp.id & 0xFFFFFFFFL);
+		Boolean equiv = equivs.get(pair);
+		if (equiv != null)
+			return equiv;
+		if (assumptions.contains(pair) || provisionalSet.contains(pair))
+			return true;
+
+		boolean outermost = assumptions.isEmpty();
+		int numProvisionals = provisionals.size();
+		assumptions.add(pair);
+		try {
+			equiv = fstTyp.isStructEquivTo(sndTyp);
+		} catch (RuntimeException err) {
+			assumptions.remove(pair);
+			discardProvisionals(outermost ? 0 : numProvisionals);
+			throw err;
+		}
+		assumptions.remove(pair);
+
+		if (!equiv) {
+			// Discard the results that might depend on this pair.
+			discardProvisionals(numProvisionals);
+			equivs.put(pair, false);
+		} else if (outermost) {
+			for (Long provisional : provisionals)
+				equivs.put(provisional, true);
+			equivs.put(pair, true);
+		} else {
+			provisionals.add(pair);
+			provisionalSet.add(pair);
+		}
+		if (outermost)
+			discardProvisionals(0);
+		return equiv;
+	}
+
+	private static void discardProvisionals(int numProvisionals) {
+		while (provisionals.size() > numProvisionals)
+			provisionalSet.remove(provisionals.remove(provisionals.size() - 1));
+	}
+
+	/**
+	 * Forgets all cached results.
+	 */
+	public static void clear() {
+		equivs.clear();
+		assumptions.clear();
+		discardProvisionals(0);
+	}
+
+}
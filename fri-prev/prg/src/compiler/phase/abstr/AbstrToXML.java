@@ -61,8 +61,8 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(ArrType arrType) {
 		begElement();
-		((Position) arrType).log(logger);
 		logger.addAttribute("kind", "ArrType");
+		((Position) arrType).log(logger);
 		arrType.size.accept(this);
 		arrType.elemType.accept(this);
 		endElement();
@@ -70,24 +70,24 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(AtomExpr atomExpr) {
 		begElement();
-		((Position) atomExpr).log(logger);
 		logger.addAttribute("kind", "AtomExpr");
 		logger.addAttribute("name", atomExpr.type.toString() + "(" + atomExpr.value + ")");
+		((Position) atomExpr).log(logger);
 		endElement();
 	}
 
 	public void visit(AtomType atomType) {
 		begElement();
-		((Position) atomType).log(logger);
 		logger.addAttribute("kind", "AtomType");
 		logger.addAttribute("name", atomType.type.toString());
+		((Position) atomType).log(logger);
 		endElement();
 	}
 
 	public void visit(BinExpr binExpr) {
 		begElement();
-		((Position) binExpr).log(logger);
 		logger.addAttribute("kind", "BinExpr:" + binExpr.oper.toString());
+		((Position) binExpr).log(logger);
 		binExpr.fstExpr.accept(this);
 		binExpr.sndExpr.accept(this);
 		endElement();
@@ -95,8 +95,8 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(CastExpr castExpr) {
 		begElement();
-		((Position) castExpr).log(logger);
 		logger.addAttribute("kind", "CastExpr");
+		((Position) castExpr).log(logger);
 		castExpr.type.accept(this);
 		castExpr.expr.accept(this);
 		endElement();
@@ -104,18 +104,18 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(CompDecl compDecl) {
 		begElement();
-		((Position) compDecl).log(logger);
 		logger.addAttribute("kind", "CompDecl");
 		logger.addAttribute("name", compDecl.name);
+		((Position) compDecl).log(logger);
 		compDecl.type.accept(this);
 		endElement();
 	}
 
 	public void visit(CompName compName) {
 		begElement();
-		((Position) compName).log(logger);
 		logger.addAttribute("kind", "CompName");
 		logger.addAttribute("name", compName.name());
+		((Position) compName).log(logger);
 		endElement();
 	}
 
@@ -127,8 +127,8 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(Exprs exprs) {
 		begElement();
-		((Position) exprs).log(logger);
 		logger.addAttribute("kind", "Exprs");
+		((Position) exprs).log(logger);
 		for (int e = 0; e < exprs.numExprs(); e++)
 			exprs.expr(e).accept(this);
 		endElement();
@@ -142,8 +142,8 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(ForExpr forExpr) {
 		begElement();
-		((Position) forExpr).log(logger);
 		logger.addAttribute("kind", "ForExpr");
+		((Position) forExpr).log(logger);
 		forExpr.var.accept(this);
 		forExpr.loBound.accept(this);
 		forExpr.hiBound.accept(this);
@@ -153,9 +153,9 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(FunCall funCall) {
 		begElement();
-		((Position) funCall).log(logger);
 		logger.addAttribute("kind", "FunCall");
 		logger.addAttribute("name", funCall.name());
+		((Position) funCall).log(logger);
 		for (int a = 0; a < funCall.numArgs(); a++)
 			funCall.arg(a).accept(this);
 		endElement();
@@ -163,9 +163,9 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(FunDecl funDecl) {
 		begElement();
-		((Position) funDecl).log(logger);
 		logger.addAttribute("kind", "FunDecl");
 		logger.addAttribute("name", funDecl.name);
+		((Position) funDecl).log(logger);
 		for (int p = 0; p < funDecl.numPars(); p++)
 			funDecl.par(p).accept(this);
 		funDecl.type.accept(this);
@@ -174,9 +174,9 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(FunDef funDef) {
 		begElement();
-		((Position) funDef).log(logger);
 		logger.addAttribute("kind", "FunDef");
 		logger.addAttribute("name", funDef.name);
+		((Position) funDef).log(logger);
 		for (int p = 0; p < funDef.numPars(); p++)
 			funDef.par(p).accept(this);
 		funDef.type.accept(this);
@@ -186,8 +186,8 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(IfExpr ifExpr) {
 		begElement();
-		((Position) ifExpr).log(logger);
 		logger.addAttribute("kind", "IfExpr");
+		((Position) ifExpr).log(logger);
 		ifExpr.cond.accept(this);
 		ifExpr.thenExpr.accept(this);
 		ifExpr.elseExpr.accept(this);
@@ -196,33 +196,33 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(ParDecl parDecl) {
 		begElement();
-		((Position) parDecl).log(logger);
 		logger.addAttribute("kind", "ParDecl");
 		logger.addAttribute("name", parDecl.name);
+		((Position) parDecl).log(logger);
 		parDecl.type.accept(this);
 		endElement();
 	}
 
 	public void visit(Program program) {
 		begElement();
-		((Position) program).log(logger);
 		logger.addAttribute("kind", "Program");
+		((Position) program).log(logger);
 		program.expr.accept(this);
 		endElement();
 	}
 
 	public void visit(PtrType ptrType) {
 		begElement();
-		((Position) ptrType).log(logger);
 		logger.addAttribute("kind", "PtrType");
+		((Position) ptrType).log(logger);
 		ptrType.baseType.accept(this);
 		endElement();
 	}
 
 	public void visit(RecType recType) {
 		begElement();
-		((Position) recType).log(logger);
 		logger.addAttribute("kind", "RecType");
+		((Position) recType).log(logger);
 		for (int c = 0; c < recType.numComps(); c++)
 			recType.comp(c).accept(this);
 		endElement();
@@ -230,9 +230,9 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(TypeDecl typeDecl) {
 		begElement();
-		((Position) typeDecl).log(logger);
 		logger.addAttribute("kind", "TypDecl");
 		logger.addAttribute("name", typeDecl.name);
+		((Position) typeDecl).log(logger);
 		typeDecl.type.accept(this);
 		endElement();
 	}
@@ -245,41 +245,41 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(TypeName typeName) {
 		begElement();
-		((Position) typeName).log(logger);
 		logger.addAttribute("kind", "TypeName");
 		logger.addAttribute("name", typeName.name());
+		((Position) typeName).log(logger);
 		endElement();
 	}
 
 	public void visit(UnExpr unExpr) {
 		begElement();
-		((Position) unExpr).log(logger);
 		logger.addAttribute("kind", "UnExpr:" + unExpr.oper.toString());
+		((Position) unExpr).log(logger);
 		unExpr.subExpr.accept(this);
 		endElement();
 	}
 
 	public void visit(VarDecl varDecl) {
 		begElement();
-		((Position) varDecl).log(logger);
 		logger.addAttribute("kind", "VarDecl");
 		logger.addAttribute("name", varDecl.name);
+		((Position) varDecl).log(logger);
 		varDecl.type.accept(this);
 		endElement();
 	}
 
 	public void visit(VarName varName) {
 		begElement();
-		((Position) varName).log(logger);
 		logger.addAttribute("kind", "VarName");
 		logger.addAttribute("name", varName.name());
+		((Position) varName).log(logger);
 		endElement();
 	}
 
 	public void visit(WhereExpr whereExpr) {
 		begElement();
-		((Position) whereExpr).log(logger);
 		logger.addAttribute("kind", "WhereExpr");
+		((Position) whereExpr).log(logger);
 		whereExpr.expr.accept(this);
 		for (int d = 0; d < whereExpr.numDecls(); d++)
 			whereExpr.decl(d).accept(this);
@@ -288,8 +288,8 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(WhileExpr whileExpr) {
 		begElement();
-		((Position) whileExpr).log(logger);
 		logger.addAttribute("kind", "WhileExpr");
+		((Position) whileExpr).log(logger);
 		whileExpr.cond.accept(this);
 		whileExpr.body.accept(this);
 		endElement();
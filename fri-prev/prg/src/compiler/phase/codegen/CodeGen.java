@@ -47,6 +47,9 @@ public class CodeGen extends Phase{
                 codeNow.codeGraph = new Graph(codeNow);
                 codeNow.regGraph = new RegGraph(codeNow);
                 this.task.generatedCode.add(codeNow);
+                task.stats.add("instructions", codeNow.code.size());
+                task.stats.add("temps", codeNow.temps.size());
+                task.stats.add("interferenceEdges", codeNow.regGraph.numEdges());
             }
         }
 
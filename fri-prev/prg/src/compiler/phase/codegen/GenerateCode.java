@@ -33,6 +33,7 @@ public class GenerateCode extends IMCFullVIsitor {
     private HashMap<TEMP, String> mapping;
     private TEMP RV;
     private String FP;
+    private String nextLabel; // label of the next statement (if any), where no jump is needed
 
     public GenerateCode(CodeFragment fragment, HashMap<String, Fragment> allFrags) {
         this.fragment = fragment;
@@ -81,6 +82,8 @@ public class GenerateCode extends IMCFullVIsitor {
 
     public void generate() {
         for(int i = 0; i < this.fragment.linCode.numStmts(); i++) {
+            IMCStmt next = (i + 1 < this.fragment.linCode.numStmts()) ? this.fragment.linCode.stmts(i + 1) : null;
+            this.nextLabel = (next instanceof LABEL) ? ((LABEL) next).label : null;
             this.fragment.linCode.stmts(i).accept(this);
             this.result = new Stack<>();
         }
@@ -172,8 +175,14 @@ public class GenerateCode extends IMCFullVIsitor {
     public void visit(CJUMP cjump) {
         cjump.cond.accept(this);
         TEMP res = this.result.pop();
-        this.code.add(new BP(res, cjump.posLabel));
-        this.code.add(new JMP(cjump.negLabel));
+        if(cjump.negLabel.equals(this.nextLabel)) {
+            this.code.add(new BP(res, cjump.posLabel));
+        } else if(cjump.posLabel.equals(this.nextLabel)) {
+            this.code.add(new BZ(res, cjump.negLabel));
+        } else {
+            this.code.add(new BP(res, cjump.posLabel));
+            this.code.add(new JMP(cjump.negLabel));
+        }
     }
 
     @Override
@@ -218,6 +227,8 @@ public class GenerateCode extends IMCFullVIsitor {
 
     @Override
     public void visit(JUMP jump) {
+        if(jump.label.equals(this.nextLabel))
+            return;
         this.code.add(new JMP(jump.label));
     }
 
@@ -1,8 +1,10 @@
 package compiler.phase.lexan;
 
 import java.io.*;
+import java.util.*;
 
 import compiler.*;
+import compiler.common.names.*;
 import compiler.common.report.*;
 import compiler.phase.*;
 
@@ -13,8 +15,23 @@ import compiler.phase.*;
  */
 public class LexAn extends Phase {
 
-	/** The source file. */
-	private FileReader srcFile;
+	/** The contents of the source file. */
+	private char[] src;
+
+	/** The number of characters in the source file. */
+	private int srcLen;
+
+	/** The offset of the next character to be read. */
+	private int srcPos;
+
+	/** The offset of the first character of the current lexeme. */
+	private int lexemeBeg;
+
+	/** The file id of the source file. */
+	private final int fileId;
+
+	/** The number of symbols returned so far. */
+	private long numSymbols;
 
     private int mode;
     private int begCol;
@@ -30,7 +47,7 @@ public class LexAn extends Phase {
 	/**
 	 * Constructs a new lexical analyzer.
 	 * 
-	 * Opens the source file and prepares the buffer. If logging is requested,
+	 * Reads the entire source file into the buffer. If logging is requested,
 	 * sets up the logger.
 	 * 
 	 * @param task.srcFName
@@ -38,13 +55,24 @@ public class LexAn extends Phase {
 	 */
 	public LexAn(Task task) {
 		super(task, "lexan");
-
-		// Open the source file.
-		try {
-			srcFile = new FileReader(this.task.srcFName);
+		fileId = Position.fileId(task.srcFName);
+
+		// Read the source file.
+		try (FileReader srcFile = new FileReader(this.task.srcFName)) {
+			src = new char[8192];
+			srcLen = 0;
+			int len;
+			while ((len = srcFile.read(src, srcLen, src.length - srcLen)) != -1) {
+				srcLen += len;
+				if (srcLen == src.length)
+					src = java.util.Arrays.copyOf(src, 2 * src.length);
+			}
 		} catch (FileNotFoundException ex) {
 			throw new CompilerError("Source file '" + this.task.srcFName + "' not found.");
+		} catch (IOException ex) {
+			throw new CompilerError("Source file '" + this.task.srcFName + "' cannot be read.");
 		}
+		srcPos = 0;
         begCol = 1;
         begLine = 1;
         endLine = 1;
@@ -53,19 +81,14 @@ public class LexAn extends Phase {
 	}
 
 	/**
-	 * Terminates lexical analysis. Closes the source file and, if logging has
-	 * been requested, this method produces the report by closing the logger.
+	 * Terminates lexical analysis. Releases the source buffer and, if logging
+	 * has been requested, this method produces the report by closing the
+	 * logger.
 	 */
 	@Override
 	public void close() {
-		// Close the source file.
-		if (srcFile != null) {
-			try {
-				srcFile.close();
-			} catch (IOException ex) {
-				Report.warning("Source file '" + task.srcFName + "' cannot be closed.");
-			}
-		}
+		src = null;
+		task.stats.count("tokens", numSymbols);
 		super.close();
 	}
 
@@ -93,106 +116,108 @@ public class LexAn extends Phase {
 
         switch (currentChar) {
             case '+':
-                sym = new Symbol(Symbol.Token.ADD, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.ADD, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '&':
-                sym = new Symbol(Symbol.Token.AND, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.AND, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '=':
                 mode = 1; // = or ==
                 if(!readNext()) {
-                    sym = new Symbol(Symbol.Token.ASSIGN, new Position(task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.ASSIGN, null, pos(endLine, endCol), pos(endLine, endCol));
                 } else {
-                    sym = new Symbol(Symbol.Token.EQU, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.EQU, null, pos(begLine, begCol), pos(endLine, endCol));
                 }
                 break;
             case ':':
-                sym = new Symbol(Symbol.Token.COLON, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.COLON, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case ',':
-                sym = new Symbol(Symbol.Token.COMMA, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.COMMA, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '}':
-                sym = new Symbol(Symbol.Token.CLOSING_BRACE, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.CLOSING_BRACE, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case ']':
-                sym = new Symbol(Symbol.Token.CLOSING_BRACKET, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.CLOSING_BRACKET, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case ')':
-                sym = new Symbol(Symbol.Token.CLOSING_PARENTHESIS, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.CLOSING_PARENTHESIS, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '.':
-                sym = new Symbol(Symbol.Token.DOT, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.DOT, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '/':
-                sym = new Symbol(Symbol.Token.DIV, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.DIV, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '>':
                 mode = 2; // > or >=
                 if(!readNext()) {
-                    sym = new Symbol(Symbol.Token.GTH, new Position(task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.GTH, null, pos(endLine, endCol), pos(endLine, endCol));
                 } else {
-                    sym = new Symbol(Symbol.Token.GEQ, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.GEQ, null, pos(begLine, begCol), pos(endLine, endCol));
                 }
                 break;
             case '<':
                 mode = 3; // < or <=
                 if(!readNext()) {
-                    sym = new Symbol(Symbol.Token.LTH, new Position(task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.LTH, null, pos(endLine, endCol), pos(endLine, endCol));
                 } else {
-                    sym = new Symbol(Symbol.Token.LEQ, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.LEQ, null, pos(begLine, begCol), pos(endLine, endCol));
                 }
                 break;
             case '@':
-                sym = new Symbol(Symbol.Token.MEM, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.MEM, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '%':
-                sym = new Symbol(Symbol.Token.MOD, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.MOD, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '*':
-                sym = new Symbol(Symbol.Token.MUL, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.MUL, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '!':
                 mode = 4; // ! or !=
                 if(!readNext()) {
-                    sym = new Symbol(Symbol.Token.NOT, new Position(task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.NOT, null, pos(endLine, endCol), pos(endLine, endCol));
                 } else {
-                    sym = new Symbol(Symbol.Token.NEQ, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.NEQ, null, pos(begLine, begCol), pos(endLine, endCol));
                 }
                 break;
             case '{':
-                sym = new Symbol(Symbol.Token.OPENING_BRACE, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.OPENING_BRACE, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '[':
-                sym = new Symbol(Symbol.Token.OPENING_BRACKET, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.OPENING_BRACKET, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '(':
-                sym = new Symbol(Symbol.Token.OPENING_PARENTHESIS, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.OPENING_PARENTHESIS, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '|':
-                sym = new Symbol(Symbol.Token.OR, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.OR, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '-':
-                sym = new Symbol(Symbol.Token.SUB, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.SUB, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '^':
-                sym = new Symbol(Symbol.Token.VAL, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.VAL, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case -1:
-                sym = new Symbol(Symbol.Token.EOF, new Position(task.srcFName, endLine, endCol));
+                sym = new Symbol(Symbol.Token.EOF, null, pos(endLine, endCol), pos(endLine, endCol));
                 break;
             case '\'':
                 mode = 5; // char constant
+                lexemeBeg = srcPos - 1;
                 if(readNext()) {
-                    sym = new Symbol(Symbol.Token.CONST_CHAR, lexeme, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.CONST_CHAR, lexeme, pos(begLine, begCol), pos(endLine, endCol));
                 } else {
                     throw new CompilerError("bad character constant definition at " + new Position(task.srcFName, endLine, endCol));
                 }
                 break;
             case '\"':
                 mode = 6; // string constant
+                lexemeBeg = srcPos - 1;
                 if(readNext()) {
-                    sym = new Symbol(Symbol.Token.CONST_STRING, lexeme, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
+                    sym = new Symbol(Symbol.Token.CONST_STRING, lexeme, pos(begLine, begCol), pos(endLine, endCol));
                 } else {
                     throw new CompilerError("bad string constant definition at "  + new Position(task.srcFName, endLine, endCol));
                 }
@@ -208,7 +233,7 @@ public class LexAn extends Phase {
                 } else {
                     throw new CompilerError("invalid character! at "  + new Position(task.srcFName, endLine, endCol));
                 }
-//                sym = new Symbol(Symbol.Token.ERROR, new Position(task.srcFName, endLine, endCol));
+//                sym = new Symbol(Symbol.Token.ERROR, null, pos(endLine, endCol), pos(endLine, endCol));
 
         }
 
@@ -223,25 +248,28 @@ public class LexAn extends Phase {
 	}
 
     Symbol getIntegers() {
-        lexeme = "";
+        lexemeBeg = srcPos - 1;
+        int len = 0;
         begLine = endLine; begCol = endCol;
         read = true;
         while(isBetween(currentChar, 48, 57)) {
-            lexeme += (char) currentChar;
+            len++;
             endCol++;
             currentChar = readChar();
         }
         endCol--;
+        lexeme = new String(src, lexemeBeg, len);
 //        try {
 //            long num = Long.parseLong(lexeme);
-            return new Symbol(Symbol.Token.CONST_INTEGER, lexeme, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
+            return new Symbol(Symbol.Token.CONST_INTEGER, lexeme, pos(begLine, begCol), pos(endLine, endCol));
 //        } catch (NumberFormatException e) {
 //            throw new CompilerError("integer too big or too small at " + new Position(task.srcFName, endLine, endCol));
 //        }
     }
 
     Symbol getIdentifiers() {
-        lexeme = "";
+        lexemeBeg = srcPos - 1;
+        int len = 0;
         begLine = endLine; begCol = endCol;
         boolean underscore = false;
         boolean number = false;
@@ -252,68 +280,62 @@ public class LexAn extends Phase {
                         isBetween(currentChar, 97, 122)) {
             if(currentChar == ((char) '_')) underscore = true;
             if(isBetween(currentChar, 48, 57)) number = true;
-            lexeme += (char) currentChar;
+            len++;
             endCol++;
             currentChar = readChar();
         }
         endCol--;
-        if(underscore || number)
-            return new Symbol(Symbol.Token.IDENTIFIER, lexeme, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-        else {
-            switch (lexeme) {
-                // constants
-                case "true":
-                case "false":
-                    return new Symbol(Symbol.Token.CONST_BOOLEAN, lexeme, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "null":
-                    return new Symbol(Symbol.Token.CONST_NULL, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "none":
-                    return new Symbol(Symbol.Token.CONST_NONE, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-
-                // type names
-                case "integer":
-                    return new Symbol(Symbol.Token.INTEGER, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "boolean":
-                    return new Symbol(Symbol.Token.BOOLEAN, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "char":
-                    return new Symbol(Symbol.Token.CHAR, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "string":
-                    return new Symbol(Symbol.Token.STRING, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "void":
-                    return new Symbol(Symbol.Token.VOID, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-
-                // keywords
-                case "arr":
-                    return new Symbol(Symbol.Token.ARR, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "else":
-                    return new Symbol(Symbol.Token.ELSE, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "end":
-                    return new Symbol(Symbol.Token.END, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "for":
-                    return new Symbol(Symbol.Token.FOR, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "fun":
-                    return new Symbol(Symbol.Token.FUN, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "if":
-                    return new Symbol(Symbol.Token.IF, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "then":
-                    return new Symbol(Symbol.Token.THEN, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "ptr":
-                    return new Symbol(Symbol.Token.PTR, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "rec":
-                    return new Symbol(Symbol.Token.REC, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "typ":
-                    return new Symbol(Symbol.Token.TYP, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "var":
-                    return new Symbol(Symbol.Token.VAR, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "where":
-                    return new Symbol(Symbol.Token.WHERE, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                case "while":
-                    return new Symbol(Symbol.Token.WHILE, "", new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-                default:
-                    return new Symbol(Symbol.Token.IDENTIFIER, lexeme, new Position(task.srcFName, begLine, begCol, task.srcFName, endLine, endCol));
-            }
-        }
+        int nameId = Names.id(src, lexemeBeg, len);
+        lexeme = Names.name(nameId);
+        Symbol.Token keyword = null;
+        if(!underscore && !number && nameId < keywords.length)
+            keyword = keywords[nameId];
+        if(keyword == null)
+            return new Symbol(Symbol.Token.IDENTIFIER, lexeme, nameId, pos(begLine, begCol), pos(endLine, endCol));
+        else if(keyword == Symbol.Token.CONST_BOOLEAN)
+            return new Symbol(keyword, lexeme, pos(begLine, begCol), pos(endLine, endCol));
+        else
+            return new Symbol(keyword, "", pos(begLine, begCol), pos(endLine, endCol));
+    }
+
+    /** The tokens of keywords, constants and type names, indexed by name ids. */
+    private static Symbol.Token[] keywords = new Symbol.Token[0];
 
+    private static void keyword(String name, Symbol.Token token) {
+        int nameId = Names.id(name);
+        if(nameId >= keywords.length)
+            keywords = Arrays.copyOf(keywords, nameId + 1);
+        keywords[nameId] = token;
+    }
+
+    static {
+        // constants
+        keyword("true", Symbol.Token.CONST_BOOLEAN);
+        keyword("false", Symbol.Token.CONST_BOOLEAN);
+        keyword("null", Symbol.Token.CONST_NULL);
+        keyword("none", Symbol.Token.CONST_NONE);
+
+        // type names
+        keyword("integer", Symbol.Token.INTEGER);
+        keyword("boolean", Symbol.Token.BOOLEAN);
+        keyword("char", Symbol.Token.CHAR);
+        keyword("string", Symbol.Token.STRING);
+        keyword("void", Symbol.Token.VOID);
+
+        // keywords
+        keyword("arr", Symbol.Token.ARR);
+        keyword("else", Symbol.Token.ELSE);
+        keyword("end", Symbol.Token.END);
+        keyword("for", Symbol.Token.FOR);
+        keyword("fun", Symbol.Token.FUN);
+        keyword("if", Symbol.Token.IF);
+        keyword("then", Symbol.Token.THEN);
+        keyword("ptr", Symbol.Token.PTR);
+        keyword("rec", Symbol.Token.REC);
+        keyword("typ", Symbol.Token.TYP);
+        keyword("var", Symbol.Token.VAR);
+        keyword("where", Symbol.Token.WHERE);
+        keyword("while", Symbol.Token.WHILE);
     }
 
 
@@ -382,10 +404,8 @@ public class LexAn extends Phase {
 //                }
                 if(nextChar == ((int)'\'')) {
                     endCol++;
-                    if(!escaped)
-                        lexeme = "\'" + ((char)currentChar) + "\'";
-                    else
-                        escaped = false;
+                    escaped = false;
+                    lexeme = new String(src, lexemeBeg, srcPos - lexemeBeg);
                     return true;
                 } else {
                     throw  new CompilerError("bad character constant definition [only 1 char long] at "  + new Position(task.srcFName, endLine, endCol));
@@ -398,10 +418,9 @@ public class LexAn extends Phase {
                 begCol = endCol; begLine = endLine;
                 if(nextChar == ((char) '\"')) {
                     endCol++;
-                    lexeme = "\"\"";
+                    lexeme = new String(src, lexemeBeg, srcPos - lexemeBeg);
                     return true;
                 }
-                lexeme = "\"";
                 while(nextChar != ((char) '\"')) {
                     if (nextChar == ((int)'\'') || nextChar == ((int)'\"')) {
                         throw new CompilerError("bad string  constant definition [must escape \\, \' and \"] at "  + new Position(task.srcFName, endLine, endCol));
@@ -415,9 +434,9 @@ public class LexAn extends Phase {
                     escapeChar();
 //                    lexeme += "" + (char)currentChar;
                 }
-                lexeme += "\"";
                 if(nextChar == ((int)'\"')) {
                     endCol++;
+                    lexeme = new String(src, lexemeBeg, srcPos - lexemeBeg);
                     return true;
                 } else {
                     throw  new CompilerError("bad character constant definition [only 1 char long]");
@@ -467,16 +486,14 @@ public class LexAn extends Phase {
     }
 
     private int readChar() {
-        int tmp = -1;
-        try {
-            tmp = srcFile.read();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        return tmp;
+        return srcPos < srcLen ? src[srcPos++] : -1;
     }
 
 
+    private long pos(int line, int column) {
+        return Position.pack(fileId, line, column);
+    }
+
     private static boolean isBetween(int x, int lower, int upper) {
         return lower <= x && x <= upper;
     }
@@ -490,10 +507,6 @@ public class LexAn extends Phase {
                 case '\'':
                 case '\"':
                     escaped = true;
-                    if(mode == 5)
-                        lexeme = "'\\" + ((char)nextChar) + "'";
-                    if(mode == 6)
-                        lexeme += "\\" + ((char)nextChar);
                     break;
                 default:
                     throw new CompilerError("bad character constant definition [invalid character is escaped] at " + new Position(task.srcFName, endLine, endCol));
@@ -501,8 +514,6 @@ public class LexAn extends Phase {
             currentChar = nextChar;
             endCol++;
             nextChar = readChar();
-        } else if(mode == 6) { // string constant
-            lexeme += "" + ((char)currentChar);
         }
     }
 
@@ -520,6 +531,7 @@ public class LexAn extends Phase {
 	 * @return The symbol received as an argument.
 	 */
 	private Symbol log(Symbol symbol) {
+		numSymbols++;
 		symbol.log(logger);
 		return symbol;
 	}
@@ -152,6 +152,12 @@ public class Symbol extends Position implements Loggable {
 	/** The position of this symbol. */
 	public final Position position;
 
+	/**
+	 * The id of the interned lexeme if this symbol is an identifier, or -1
+	 * otherwise (see {@link compiler.common.names.Names}).
+	 */
+	public final int nameId;
+
 	/**
 	 * Constructs a new symbol.
 	 * 
@@ -167,6 +173,49 @@ public class Symbol extends Position implements Loggable {
 		this.position = position;
 		this.token = token;
 		this.lexeme = lexeme;
+		this.nameId = -1;
+	}
+
+	/**
+	 * Constructs a new symbol.
+	 * 
+	 * @param token
+	 *            The symbol's token.
+	 * @param lexeme
+	 *            The symbols's lexeme.
+	 * @param begPosition
+	 *            The packed position of the symbol's first character.
+	 * @param endPosition
+	 *            The packed position of the symbol's last character.
+	 */
+	public Symbol(Token token, String lexeme, long begPosition, long endPosition) {
+		super(begPosition, endPosition);
+		this.position = this;
+		this.token = token;
+		this.lexeme = lexeme;
+		this.nameId = -1;
+	}
+
+	/**
+	 * Constructs a new identifier.
+	 * 
+	 * @param token
+	 *            The symbol's token.
+	 * @param lexeme
+	 *            The symbols's lexeme.
+	 * @param nameId
+	 *            The id of the interned lexeme.
+	 * @param begPosition
+	 *            The packed position of the symbol's first character.
+	 * @param endPosition
+	 *            The packed position of the symbol's last character.
+	 */
+	public Symbol(Token token, String lexeme, int nameId, long begPosition, long endPosition) {
+		super(begPosition, endPosition);
+		this.position = this;
+		this.token = token;
+		this.lexeme = lexeme;
+		this.nameId = nameId;
 	}
 
 	/**
@@ -182,6 +231,7 @@ public class Symbol extends Position implements Loggable {
 		this.position = position;
 		this.token = token;
 		this.lexeme = null;
+		this.nameId = -1;
 	}
 
 	@Override
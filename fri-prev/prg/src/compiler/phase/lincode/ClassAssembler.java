@@ -0,0 +1,380 @@
+package compiler.phase.lincode;
+
+import java.io.*;
+import java.util.*;
+
+import compiler.common.report.*;
+
+/**
+ * A minimal assembler of JVM class files.
+ *
+ * <p>
+ * It produces classes consisting of static fields and static methods only,
+ * and supports just the instructions needed by {@link JitEngine}. Class files
+ * are of version 49 so that the JVM verifies them by type inference and no
+ * stack map frames are needed.
+ * </p>
+ */
+public class ClassAssembler {
+
+	/** The maximal number of entries of the constant pool. */
+	private static final int maxConstants = 65535;
+
+	/** The binary name of the class. */
+	private final String className;
+
+	/** The constant pool (without the unused entry 0). */
+	private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+
+	private final DataOutputStream constants = new DataOutputStream(constantPool);
+
+	/** Indices of the constants already in the constant pool by their keys. */
+	private final HashMap<String, Integer> constantIdxs = new HashMap<String, Integer>();
+
+	/** The number of entries of the constant pool (including entry 0). */
+	private int numConstants = 1;
+
+	/** The fields. */
+	private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+
+	private int numFields = 0;
+
+	/** The methods. */
+	private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+
+	private int numMethods = 0;
+
+	/**
+	 * Constructs a new assembler of a class.
+	 *
+	 * @param className
+	 *            The binary name of the class (with slashes).
+	 */
+	public ClassAssembler(String className) {
+		this.className = className;
+	}
+
+	/**
+	 * Returns whether the constant pool has overflown.
+	 */
+	public boolean overflown() {
+		return numConstants > maxConstants;
+	}
+
+	// ----- CONSTANT POOL -----
+
+	private int constant(String key, int size, Constant constant) {
+		Integer idx = constantIdxs.get(key);
+		if (idx != null)
+			return idx;
+		try {
+			constant.write();
+		} catch (IOException ex) {
+			throw new InternalCompilerError();
+		}
+		idx = numConstants;
+		numConstants += size;
+		constantIdxs.put(key, idx);
+		return idx;
+	}
+
+	private interface Constant {
+		void write() throws IOException;
+	}
+
+	private int utf8(String string) {
+		return constant("U" + string, 1, () -> {
+			constants.writeByte(1);
+			constants.writeUTF(string);
+		});
+	}
+
+	private int classRef(String name) {
+		int nameIdx = utf8(name);
+		return constant("C" + name, 1, () -> {
+			constants.writeByte(7);
+			constants.writeShort(nameIdx);
+		});
+	}
+
+	private int nameAndType(String name, String desc) {
+		int nameIdx = utf8(name);
+		int descIdx = utf8(desc);
+		return constant("N" + name + " " + desc, 1, () -> {
+			constants.writeByte(12);
+			constants.writeShort(nameIdx);
+			constants.writeShort(descIdx);
+		});
+	}
+
+	private int memberRef(int tag, String owner, String name, String desc) {
+		int classIdx = classRef(owner);
+		int natIdx = nameAndType(name, desc);
+		return constant(tag + owner + "." + name + " " + desc, 1, () -> {
+			constants.writeByte(tag);
+			constants.writeShort(classIdx);
+			constants.writeShort(natIdx);
+		});
+	}
+
+	private int longConst(long value) {
+		return constant("J" + value, 2, () -> {
+			constants.writeByte(5);
+			constants.writeLong(value);
+		});
+	}
+
+	// ----- MEMBERS -----
+
+	/**
+	 * Adds a static field to the class.
+	 *
+	 * @param name
+	 *            The name of the field.
+	 * @param desc
+	 *            The descriptor of the field.
+	 */
+	public void addStaticField(String name, String desc) {
+		DataOutputStream out = new DataOutputStream(fields);
+		try {
+			out.writeShort(0x0008);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(desc));
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw new InternalCompilerError();
+		}
+		numFields++;
+	}
+
+	/**
+	 * Adds a static method to the class.
+	 *
+	 * @param name
+	 *            The name of the method.
+	 * @param desc
+	 *            The descriptor of the method.
+	 * @param code
+	 *            The code of the method.
+	 */
+	public void addStaticMethod(String name, String desc, Code code) {
+		code.resolve();
+		DataOutputStream out = new DataOutputStream(methods);
+		try {
+			out.writeShort(0x0008);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(desc));
+			out.writeShort(1);
+			out.writeShort(utf8("Code"));
+			out.writeInt(12 + code.size());
+			out.writeShort(code.maxStack);
+			out.writeShort(code.maxLocals);
+			out.writeInt(code.size());
+			code.bytes.writeTo(out);
+			out.writeShort(0);
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw new InternalCompilerError();
+		}
+		numMethods++;
+	}
+
+	/**
+	 * Returns the class file.
+	 */
+	public byte[] toByteArray() {
+		if (overflown())
+			throw new InternalCompilerError();
+		int thisIdx = classRef(className);
+		int superIdx = classRef("java/lang/Object");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(numConstants);
+			constantPool.writeTo(out);
+			out.writeShort(0x0030);
+			out.writeShort(thisIdx);
+			out.writeShort(superIdx);
+			out.writeShort(0);
+			out.writeShort(numFields);
+			fields.writeTo(out);
+			out.writeShort(numMethods);
+			methods.writeTo(out);
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw new InternalCompilerError();
+		}
+		return bytes.toByteArray();
+	}
+
+	// ----- CODE -----
+
+	/** A label within the code of a method. */
+	public static class Label {
+
+		/** The position of the label or -1 if not placed yet. */
+		private int pos = -1;
+
+	}
+
+	/**
+	 * The code of a method.
+	 *
+	 * <p>
+	 * The depth of the operand stack is tracked as the instructions are
+	 * appended; the code producing it must reset it explicitly at labels
+	 * reached only by jumps. Branch offsets are 16 bits wide, so the code of a
+	 * method is limited to {@link #maxSize} bytes.
+	 * </p>
+	 */
+	public class Code {
+
+		/** The maximal size of the code. */
+		public static final int maxSize = 32767;
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		/** The positions of branch instructions and their targets. */
+		private final Vector<Integer> branchPoss = new Vector<Integer>();
+
+		private final Vector<Label> branchLabels = new Vector<Label>();
+
+		/** The current depth of the operand stack (in slots). */
+		private int stack = 0;
+
+		private int maxStack = 0;
+
+		private int maxLocals = 0;
+
+		/**
+		 * Returns the size of the code.
+		 */
+		public int size() {
+			return bytes.size();
+		}
+
+		/**
+		 * Returns the current depth of the operand stack.
+		 */
+		public int stack() {
+			return stack;
+		}
+
+		/**
+		 * Sets the current depth of the operand stack.
+		 */
+		public void stack(int stack) {
+			this.stack = stack;
+		}
+
+		/**
+		 * Declares the number of local variable slots used.
+		 */
+		public void locals(int numLocals) {
+			maxLocals = Math.max(maxLocals, numLocals);
+		}
+
+		private void op(int opcode, int delta) {
+			bytes.write(opcode);
+			stack += delta;
+			maxStack = Math.max(maxStack, stack);
+		}
+
+		private void u2(int value) {
+			bytes.write(value >> 8);
+			bytes.write(value);
+		}
+
+		/** Pushes a long constant. */
+		public void lconst(long value) {
+			if ((value == 0) || (value == 1))
+				op(0x09 + (int) value, 2);
+			else {
+				op(0x14, 2);
+				u2(longConst(value));
+			}
+		}
+
+		/** Loads a long from a local variable. */
+		public void lload(int slot) {
+			varOp(0x16, slot, 2);
+		}
+
+		/** Stores a long into a local variable. */
+		public void lstore(int slot) {
+			varOp(0x37, slot, -2);
+		}
+
+		private void varOp(int opcode, int slot, int delta) {
+			locals(slot + 2);
+			if (slot < 256) {
+				op(opcode, delta);
+				bytes.write(slot);
+			} else {
+				op(0xC4, 0);
+				op(opcode, delta);
+				u2(slot);
+			}
+		}
+
+		/** Appends an instruction without operands. */
+		public void insn(int opcode, int delta) {
+			op(opcode, delta);
+		}
+
+		/** Appends a branch instruction (popping the specified number of slots). */
+		public void branch(int opcode, int pops, Label label) {
+			branchPoss.add(bytes.size());
+			branchLabels.add(label);
+			op(opcode, -pops);
+			u2(0);
+		}
+
+		/** Places a label at the current position. */
+		public void label(Label label) {
+			label.pos = bytes.size();
+		}
+
+		/** Reads a static field. */
+		public void getstatic(String owner, String name, String desc, int size) {
+			op(0xB2, size);
+			u2(memberRef(9, owner, name, desc));
+		}
+
+		/** Invokes a static method (popping and pushing the specified slots). */
+		public void invokestatic(String owner, String name, String desc, int pops, int pushes) {
+			op(0xB8, pushes - pops);
+			u2(memberRef(10, owner, name, desc));
+		}
+
+		/** Invokes a virtual method (popping and pushing the specified slots). */
+		public void invokevirtual(String owner, String name, String desc, int pops, int pushes) {
+			op(0xB6, pushes - pops);
+			u2(memberRef(10, owner, name, desc));
+		}
+
+		/** Returns the class containing the code. */
+		public String className() {
+			return className;
+		}
+
+		private void resolve() {
+			byte[] code = bytes.toByteArray();
+			for (int b = 0; b < branchPoss.size(); b++) {
+				int pos = branchPoss.get(b);
+				int offset = branchLabels.get(b).pos - pos;
+				if ((branchLabels.get(b).pos < 0) || (offset != (short) offset))
+					throw new InternalCompilerError();
+				code[pos + 1] = (byte) (offset >> 8);
+				code[pos + 2] = (byte) offset;
+			}
+			bytes.reset();
+			bytes.write(code, 0, code.length);
+		}
+
+	}
+
+}
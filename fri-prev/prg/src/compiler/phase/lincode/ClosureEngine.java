@@ -0,0 +1,852 @@
+package compiler.phase.lincode;
+
+import java.util.*;
+
+import compiler.common.report.*;
+import compiler.data.frg.*;
+import compiler.data.imc.*;
+
+/**
+ * An execution engine for the linearized intermediate code that compiles the
+ * code of each fragment into a tree of specialized nodes before running it.
+ *
+ * <p>
+ * Every statement and expression of the linearized code is translated once
+ * into a node that performs exactly one kind of operation (a constant, a read
+ * of a temporary, an addition, a load of a given width, a call of a resolved
+ * fragment, etc.), so that executing the code involves neither testing the
+ * kinds of the intermediate code nodes nor switching on their operators.
+ * Labels are resolved into indices of the statements, and the code of a
+ * fragment is compiled when the fragment is called for the first time.
+ * </p>
+ *
+ * <p>
+ * The temporaries of each fragment are renumbered densely and each call
+ * allocates a register window of just the callee's temporaries on a stack of
+ * windows. The engine produces exactly the same output as the interpreter
+ * walking the intermediate code in {@link LinCode}, with which it shares the
+ * memory and the addresses of data fragments.
+ * </p>
+ */
+public class ClosureEngine {
+
+	/** The memory. */
+	private final Memory memory;
+
+	/**
+	 * The stack of register windows: the window of the fragment being
+	 * executed starts at <code>frameBase</code> and ends at
+	 * <code>frameTop</code>, the windows of its callers lie below.
+	 */
+	private long[] frames = new long[1024];
+
+	private int frameBase = 0;
+
+	private int frameTop = 0;
+
+	/** The stack pointer. */
+	private long sp;
+
+	/** The addresses of data and constant fragments by their labels. */
+	private final HashMap<String, Long> dataSegLabels;
+
+	/** Code fragments by their labels. */
+	private final HashMap<String, CodeFragment> codeFragments;
+
+	/** The functions compiled (or to be compiled), by their labels. */
+	private final HashMap<String, Function> functions = new HashMap<String, Function>();
+
+	/**
+	 * Constructs a new closure engine.
+	 *
+	 * @param memory
+	 *            The memory with the data segment already initialized.
+	 * @param dataSegLabels
+	 *            The addresses of data and constant fragments by their labels.
+	 * @param codeFragments
+	 *            Code fragments by their labels.
+	 */
+	public ClosureEngine(Memory memory, HashMap<String, Long> dataSegLabels,
+			HashMap<String, CodeFragment> codeFragments) {
+		this.memory = memory;
+		this.dataSegLabels = dataSegLabels;
+		this.codeFragments = codeFragments;
+	}
+
+	/**
+	 * Executes the code fragment with the specified label.
+	 *
+	 * @param label
+	 *            The label of the code fragment.
+	 * @param sp
+	 *            The stack pointer.
+	 */
+	public void execute(String label, long sp) {
+		this.sp = sp;
+		function(label).call();
+	}
+
+	// ----- FUNCTIONS -----
+
+	/**
+	 * Returns the function with the specified label (which is compiled when it
+	 * is called for the first time).
+	 */
+	private Function function(String label) {
+		Function function = functions.get(label);
+		if (function == null) {
+			function = new Function(codeFragments.get(label));
+			functions.put(label, function);
+		}
+		return function;
+	}
+
+	/** A code fragment prepared for execution. */
+	private class Function {
+
+		/** The code fragment. */
+		private final CodeFragment codeFrg;
+
+		/** The compiled statements (<code>null</code> until compiled). */
+		private Stmt[] stmts;
+
+		/** The number of temporaries and the renumbered FP and RV. */
+		private int numTemps, fp, rv;
+
+		Function(CodeFragment codeFrg) {
+			this.codeFrg = codeFrg;
+		}
+
+		/** Calls the function. */
+		void call() {
+			if (codeFrg == null)
+				throw new InternalCompilerError();
+			if (stmts == null) {
+				temps = new HashMap<Integer, Integer>();
+				fp = temp(codeFrg.FP);
+				rv = temp(codeFrg.RV);
+				stmts = compile(codeFrg);
+				numTemps = temps.size();
+				temps = null;
+			}
+
+			// PROLOGUE
+			long storedSP = sp;
+			int storedFrameBase = frameBase;
+			int base = frameTop;
+			if (base + numTemps > frames.length)
+				frames = Arrays.copyOf(frames, Math.max(2 * frames.length, base + numTemps));
+			Arrays.fill(frames, base, base + numTemps, 0);
+			frameBase = base;
+			frameTop = base + numTemps;
+			frames[base + fp] = sp;
+			sp = sp - codeFrg.frame.size;
+
+			// CORE
+			Stmt[] stmts = this.stmts;
+			int pc = 0;
+			while (pc < stmts.length)
+				pc = stmts[pc].exec();
+
+			// EPILOGUE
+			memory.store(frames[base + fp], 8, frames[base + rv]);
+			sp = storedSP;
+			frameBase = storedFrameBase;
+			frameTop = base;
+		}
+
+	}
+
+	// ----- COMPILATION -----
+
+	/**
+	 * The renumbered temporaries of the fragment being compiled by their
+	 * original names.
+	 */
+	private HashMap<Integer, Integer> temps;
+
+	private int temp(int name) {
+		Integer temp = temps.get(name);
+		if (temp == null) {
+			temp = temps.size();
+			temps.put(name, temp);
+		}
+		return temp;
+	}
+
+	/**
+	 * Compiles the linearized code of a code fragment. Labels are dropped and
+	 * every jump to a label is replaced by a jump to the index of the first
+	 * statement following the label (or to the end of the code if the label
+	 * is not defined in the fragment).
+	 */
+	private Stmt[] compile(CodeFragment codeFrg) {
+		Vector<IMCStmt> lc = (codeFrg.linCode == null) ? new Vector<IMCStmt>() : codeFrg.linCode.stmts();
+
+		HashMap<String, Integer> labelPCs = new HashMap<String, Integer>();
+		int numStmts = 0;
+		for (IMCStmt stmt : lc) {
+			if (stmt instanceof LABEL) {
+				if (!labelPCs.containsKey(((LABEL) stmt).label))
+					labelPCs.put(((LABEL) stmt).label, numStmts);
+			} else if (executable(stmt))
+				numStmts++;
+		}
+
+		Stmt[] stmts = new Stmt[numStmts];
+		int pc = 0;
+		for (IMCStmt stmt : lc) {
+			if (!executable(stmt))
+				continue;
+			stmts[pc] = compile(stmt, pc, labelPCs, numStmts);
+			pc++;
+		}
+		return stmts;
+	}
+
+	/**
+	 * Returns whether the statement does anything when executed (the
+	 * interpreter executes moves and jumps only).
+	 */
+	private static boolean executable(IMCStmt stmt) {
+		return (stmt instanceof MOVE) || (stmt instanceof JUMP) || (stmt instanceof CJUMP);
+	}
+
+	private Stmt compile(IMCStmt stmt, int pc, HashMap<String, Integer> labelPCs, int numStmts) {
+		if (stmt instanceof MOVE) {
+			MOVE move = (MOVE) stmt;
+			if (move.dst instanceof TEMP)
+				return new MoveTemp(pc + 1, temp(((TEMP) move.dst).name), compile(move.src));
+			if (move.dst instanceof MEM)
+				return new MoveMem(pc + 1, compile(((MEM) move.dst).addr), ((MEM) move.dst).width,
+						compile(move.src));
+			return new Skip(pc + 1);
+		}
+		if (stmt instanceof JUMP) {
+			Integer dest = labelPCs.get(((JUMP) stmt).label);
+			return new Skip(dest == null ? numStmts : dest);
+		}
+		if (stmt instanceof CJUMP) {
+			CJUMP cjump = (CJUMP) stmt;
+			Integer posDest = labelPCs.get(cjump.posLabel);
+			Integer negDest = labelPCs.get(cjump.negLabel);
+			return new CJump(compile(cjump.cond), posDest == null ? numStmts : posDest,
+					negDest == null ? numStmts : negDest);
+		}
+		throw new InternalCompilerError();
+	}
+
+	private Expr compile(IMCExpr expr) {
+		if (expr instanceof CONST)
+			return new Const(((CONST) expr).value);
+
+		if (expr instanceof TEMP)
+			return new Temp(temp(((TEMP) expr).name));
+
+		if (expr instanceof BINOP) {
+			BINOP binop = (BINOP) expr;
+			Expr expr1 = compile(binop.expr1);
+			if ((binop.oper == BINOP.Oper.ADD) && (binop.expr2 instanceof CONST))
+				return new AddConst(expr1, ((CONST) binop.expr2).value);
+			Expr expr2 = compile(binop.expr2);
+			switch (binop.oper) {
+			case OR:
+				return new Or(expr1, expr2);
+			case AND:
+				return new And(expr1, expr2);
+			case EQU:
+				return new Equ(expr1, expr2);
+			case NEQ:
+				return new Neq(expr1, expr2);
+			case LTH:
+				return new Lth(expr1, expr2);
+			case GTH:
+				return new Gth(expr1, expr2);
+			case LEQ:
+				return new Leq(expr1, expr2);
+			case GEQ:
+				return new Geq(expr1, expr2);
+			case ADD:
+				return new Add(expr1, expr2);
+			case SUB:
+				return new Sub(expr1, expr2);
+			case MUL:
+				return new Mul(expr1, expr2);
+			case DIV:
+				return new Div(expr1, expr2);
+			case MOD:
+				return new Mod(expr1, expr2);
+			}
+		}
+
+		if (expr instanceof MEM)
+			return new Load(compile(((MEM) expr).addr), ((MEM) expr).width);
+
+		if (expr instanceof NAME)
+			return new Name(((NAME) expr).name);
+
+		if (expr instanceof NOP)
+			return new Const(0);
+
+		if (expr instanceof UNOP) {
+			UNOP unop = (UNOP) expr;
+			Expr subExpr = compile(unop.expr);
+			switch (unop.oper) {
+			case ADD:
+				return subExpr;
+			case SUB:
+				return new Neg(subExpr);
+			case NOT:
+				return new Not(subExpr);
+			}
+		}
+
+		if (expr instanceof CALL) {
+			CALL call = (CALL) expr;
+			switch (call.label) {
+			case "_printChr":
+				return new PrintChr(compile(call.args(1)));
+			case "_printInt":
+				return new PrintInt(compile(call.args(1)));
+			case "_printStr":
+				return new PrintStr(compile(call.args(1)));
+			case "_randomInt":
+				return new RandomInt();
+			case "_randomChr":
+				return new RandomChr();
+			}
+			Expr[] args = new Expr[call.numArgs()];
+			long[] widths = new long[call.numArgs()];
+			for (int arg = 0; arg < call.numArgs(); arg++) {
+				args[arg] = compile(call.args(arg));
+				widths[arg] = call.widths(arg);
+			}
+			return new Call(function(call.label), args, widths);
+		}
+
+		throw new InternalCompilerError();
+	}
+
+	// ----- STATEMENTS -----
+
+	/** A compiled statement. */
+	private static abstract class Stmt {
+
+		/**
+		 * Executes the statement.
+		 *
+		 * @return The index of the statement to be executed next.
+		 */
+		abstract int exec();
+
+	}
+
+	/** A statement that only continues with the specified statement. */
+	private static class Skip extends Stmt {
+
+		private final int next;
+
+		Skip(int next) {
+			this.next = next;
+		}
+
+		@Override
+		int exec() {
+			return next;
+		}
+
+	}
+
+	private static class CJump extends Stmt {
+
+		private final Expr cond;
+
+		private final int posNext;
+
+		private final int negNext;
+
+		CJump(Expr cond, int posNext, int negNext) {
+			this.cond = cond;
+			this.posNext = posNext;
+			this.negNext = negNext;
+		}
+
+		@Override
+		int exec() {
+			long value = cond.eval();
+			if (value == 1)
+				return posNext;
+			if (value == 0)
+				return negNext;
+			throw new InternalCompilerError();
+		}
+
+	}
+
+	private class MoveTemp extends Stmt {
+
+		private final int next;
+
+		private final int reg;
+
+		private final Expr src;
+
+		MoveTemp(int next, int reg, Expr src) {
+			this.next = next;
+			this.reg = reg;
+			this.src = src;
+		}
+
+		@Override
+		int exec() {
+			// The frames may be reallocated by a call within the source.
+			long value = src.eval();
+			frames[frameBase + reg] = value;
+			return next;
+		}
+
+	}
+
+	private class MoveMem extends Stmt {
+
+		private final int next;
+
+		private final Expr addr;
+
+		private final long width;
+
+		private final Expr src;
+
+		MoveMem(int next, Expr addr, long width, Expr src) {
+			this.next = next;
+			this.addr = addr;
+			this.width = width;
+			this.src = src;
+		}
+
+		@Override
+		int exec() {
+			long addr = this.addr.eval();
+			memory.store(addr, width, src.eval());
+			return next;
+		}
+
+	}
+
+	// ----- EXPRESSIONS -----
+
+	/** A compiled expression. */
+	private static abstract class Expr {
+
+		/**
+		 * Evaluates the expression.
+		 *
+		 * @return The value of the expression.
+		 */
+		abstract long eval();
+
+	}
+
+	private static class Const extends Expr {
+
+		private final long value;
+
+		Const(long value) {
+			this.value = value;
+		}
+
+		@Override
+		long eval() {
+			return value;
+		}
+
+	}
+
+	private class Temp extends Expr {
+
+		private final int reg;
+
+		Temp(int reg) {
+			this.reg = reg;
+		}
+
+		@Override
+		long eval() {
+			return frames[frameBase + reg];
+		}
+
+	}
+
+	private class Name extends Expr {
+
+		private final String name;
+
+		Name(String name) {
+			this.name = name;
+		}
+
+		@Override
+		long eval() {
+			return dataSegLabels.get(name).longValue();
+		}
+
+	}
+
+	private class Load extends Expr {
+
+		private final Expr addr;
+
+		private final long width;
+
+		Load(Expr addr, long width) {
+			this.addr = addr;
+			this.width = width;
+		}
+
+		@Override
+		long eval() {
+			return memory.load(addr.eval(), width);
+		}
+
+	}
+
+	/** A binary operation. */
+	private static abstract class Binop extends Expr {
+
+		protected final Expr expr1;
+
+		protected final Expr expr2;
+
+		Binop(Expr expr1, Expr expr2) {
+			this.expr1 = expr1;
+			this.expr2 = expr2;
+		}
+
+	}
+
+	private static class Or extends Binop {
+
+		Or(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			long value1 = expr1.eval();
+			long value2 = expr2.eval();
+			return ((value1 == 1) || (value2 == 1)) ? 1 : 0;
+		}
+
+	}
+
+	private static class And extends Binop {
+
+		And(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			long value1 = expr1.eval();
+			long value2 = expr2.eval();
+			return ((value1 == 1) && (value2 == 1)) ? 1 : 0;
+		}
+
+	}
+
+	private static class Equ extends Binop {
+
+		Equ(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() == expr2.eval() ? 1 : 0;
+		}
+
+	}
+
+	private static class Neq extends Binop {
+
+		Neq(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() != expr2.eval() ? 1 : 0;
+		}
+
+	}
+
+	private static class Lth extends Binop {
+
+		Lth(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() < expr2.eval() ? 1 : 0;
+		}
+
+	}
+
+	private static class Gth extends Binop {
+
+		Gth(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() > expr2.eval() ? 1 : 0;
+		}
+
+	}
+
+	private static class Leq extends Binop {
+
+		Leq(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() <= expr2.eval() ? 1 : 0;
+		}
+
+	}
+
+	private static class Geq extends Binop {
+
+		Geq(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() >= expr2.eval() ? 1 : 0;
+		}
+
+	}
+
+	private static class Add extends Binop {
+
+		Add(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() + expr2.eval();
+		}
+
+	}
+
+	/** An addition of a constant (as in accesses to frames and records). */
+	private static class AddConst extends Expr {
+
+		private final Expr expr;
+
+		private final long value;
+
+		AddConst(Expr expr, long value) {
+			this.expr = expr;
+			this.value = value;
+		}
+
+		@Override
+		long eval() {
+			return expr.eval() + value;
+		}
+
+	}
+
+	private static class Sub extends Binop {
+
+		Sub(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() - expr2.eval();
+		}
+
+	}
+
+	private static class Mul extends Binop {
+
+		Mul(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() * expr2.eval();
+		}
+
+	}
+
+	private static class Div extends Binop {
+
+		Div(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() / expr2.eval();
+		}
+
+	}
+
+	private static class Mod extends Binop {
+
+		Mod(Expr expr1, Expr expr2) {
+			super(expr1, expr2);
+		}
+
+		@Override
+		long eval() {
+			return expr1.eval() % expr2.eval();
+		}
+
+	}
+
+	private static class Neg extends Expr {
+
+		private final Expr expr;
+
+		Neg(Expr expr) {
+			this.expr = expr;
+		}
+
+		@Override
+		long eval() {
+			return -expr.eval();
+		}
+
+	}
+
+	private static class Not extends Expr {
+
+		private final Expr expr;
+
+		Not(Expr expr) {
+			this.expr = expr;
+		}
+
+		@Override
+		long eval() {
+			return (expr.eval() == 1) ? 0 : 1;
+		}
+
+	}
+
+	/** A call of a function defined in the program. */
+	private class Call extends Expr {
+
+		private final Function function;
+
+		private final Expr[] args;
+
+		private final long[] widths;
+
+		Call(Function function, Expr[] args, long[] widths) {
+			this.function = function;
+			this.args = args;
+			this.widths = widths;
+		}
+
+		@Override
+		long eval() {
+			long d = 0;
+			for (int arg = 0; arg < args.length; arg++) {
+				long value = args[arg].eval();
+				memory.store(sp + d, widths[arg], value);
+				d += widths[arg];
+			}
+			function.call();
+			return memory.load(sp, 8);
+		}
+
+	}
+
+	private static class PrintChr extends Expr {
+
+		private final Expr expr;
+
+		PrintChr(Expr expr) {
+			this.expr = expr;
+		}
+
+		@Override
+		long eval() {
+			System.out.printf("%c", (char) expr.eval());
+			return 0;
+		}
+
+	}
+
+	private static class PrintInt extends Expr {
+
+		private final Expr expr;
+
+		PrintInt(Expr expr) {
+			this.expr = expr;
+		}
+
+		@Override
+		long eval() {
+			System.out.printf("%d", expr.eval());
+			return 0;
+		}
+
+	}
+
+	private class PrintStr extends Expr {
+
+		private final Expr expr;
+
+		PrintStr(Expr expr) {
+			this.expr = expr;
+		}
+
+		@Override
+		long eval() {
+			long addr = expr.eval();
+			long c = memory.load(addr, 1);
+			while (c != 0) {
+				System.out.printf("%c", (char) c);
+				addr++;
+				c = memory.load(addr, 1);
+			}
+			return 0;
+		}
+
+	}
+
+	private static class RandomInt extends Expr {
+
+		@Override
+		long eval() {
+			return (long) (Math.random() * 100);
+		}
+
+	}
+
+	private static class RandomChr extends Expr {
+
+		private static final String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+		@Override
+		long eval() {
+			return (long) alphabet.charAt((int) (Math.random() * alphabet.length()));
+		}
+
+	}
+
+}
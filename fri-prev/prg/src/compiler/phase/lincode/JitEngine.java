@@ -0,0 +1,577 @@
+package compiler.phase.lincode;
+
+import java.lang.invoke.*;
+import java.util.*;
+
+import compiler.common.report.*;
+import compiler.data.frg.*;
+import compiler.data.imc.*;
+
+/**
+ * An execution engine for the linearized intermediate code that compiles the
+ * whole program into JVM bytecode.
+ *
+ * <p>
+ * Every code fragment is compiled into a static method of a single hidden
+ * class (defined by {@link MethodHandles.Lookup#defineHiddenClass}), so calls
+ * of fragments become direct static invocations. The method takes the value
+ * of the stack pointer as its only argument, the temporaries of the fragment
+ * become its local variables, and the memory and the built-in functions are
+ * reached through this engine. As temporaries are no longer shared between
+ * fragments, the registers of the caller need not be saved and restored
+ * around calls.
+ * </p>
+ *
+ * <p>
+ * The memory remains the paged {@link Memory} shared with the interpreter as
+ * the stack, the data and the heap segment lie far apart in the 64-bit
+ * address space. A fragment too large to fit in a JVM method (or a program
+ * too large to fit in a class) is executed by the {@link ClosureEngine}
+ * instead. The engine produces exactly the same output as the interpreter in
+ * {@link LinCode}.
+ * </p>
+ */
+public class JitEngine {
+
+	/** The binary name of this class. */
+	private static final String engineClass = "compiler/phase/lincode/JitEngine";
+
+	/** The binary name of the generated class. */
+	private static final String codeClass = "compiler/phase/lincode/JitCode";
+
+	/** The descriptor of the methods the code fragments are compiled into. */
+	private static final String fragmentDesc = "(J)V";
+
+	/** The memory. */
+	private final Memory memory;
+
+	/** The engine executing the fragments that cannot be compiled. */
+	private final ClosureEngine closureEngine;
+
+	/** The addresses of data and constant fragments by their labels. */
+	private final HashMap<String, Long> dataSegLabels;
+
+	/** Code fragments by their labels. */
+	private final HashMap<String, CodeFragment> codeFragments;
+
+	/** The names of the methods the code fragments are compiled into. */
+	private final HashMap<String, String> methodNames = new HashMap<String, String>();
+
+	/** The labels of the code fragments executed by the closure engine. */
+	private final Vector<String> closureLabels = new Vector<String>();
+
+	/**
+	 * Constructs a new JIT engine.
+	 *
+	 * @param memory
+	 *            The memory with the data segment already initialized.
+	 * @param dataSegLabels
+	 *            The addresses of data and constant fragments by their labels.
+	 * @param codeFragments
+	 *            Code fragments by their labels.
+	 */
+	public JitEngine(Memory memory, HashMap<String, Long> dataSegLabels, HashMap<String, CodeFragment> codeFragments) {
+		this.memory = memory;
+		this.dataSegLabels = dataSegLabels;
+		this.codeFragments = codeFragments;
+		this.closureEngine = new ClosureEngine(memory, dataSegLabels, codeFragments);
+	}
+
+	/**
+	 * Executes the code fragment with the specified label.
+	 *
+	 * @param label
+	 *            The label of the code fragment.
+	 * @param sp
+	 *            The stack pointer.
+	 */
+	public void execute(String label, long sp) {
+		if (codeFragments.get(label) == null)
+			throw new InternalCompilerError();
+
+		for (String fragLabel : codeFragments.keySet())
+			methodNames.put(fragLabel, "f" + methodNames.size());
+
+		ClassAssembler assembler = new ClassAssembler(codeClass);
+		assembler.addStaticField("engine", "L" + engineClass + ";");
+		for (CodeFragment codeFrg : codeFragments.values())
+			compile(assembler, codeFrg);
+		if (assembler.overflown()) {
+			closureEngine.execute(label, sp);
+			return;
+		}
+
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(assembler.toByteArray(), true);
+			Class<?> code = lookup.lookupClass();
+			lookup.findStaticSetter(code, "engine", JitEngine.class).invoke(this);
+			lookup.findStatic(code, methodNames.get(label), MethodType.methodType(void.class, long.class))
+					.invoke(sp);
+		} catch (RuntimeException | Error ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			throw new InternalCompilerError();
+		}
+	}
+
+	// ----- RUNTIME -----
+
+	long load(long addr, long width) {
+		return memory.load(addr, width);
+	}
+
+	void store(long addr, long width, long value) {
+		memory.store(addr, width, value);
+	}
+
+	/** Executes a code fragment that has not been compiled. */
+	void interpret(int closureLabel, long sp) {
+		closureEngine.execute(closureLabels.get(closureLabel), sp);
+	}
+
+	long printStr(long addr) {
+		long c = memory.load(addr, 1);
+		while (c != 0) {
+			System.out.printf("%c", (char) c);
+			addr++;
+			c = memory.load(addr, 1);
+		}
+		return 0;
+	}
+
+	static long printChr(long value) {
+		System.out.printf("%c", (char) value);
+		return 0;
+	}
+
+	static long printInt(long value) {
+		System.out.printf("%d", value);
+		return 0;
+	}
+
+	static long randomInt() {
+		return (long) (Math.random() * 100);
+	}
+
+	static long randomChr() {
+		String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+		return (long) alphabet.charAt((int) (Math.random() * alphabet.length()));
+	}
+
+	/** Signals an erroneous jump, call or reference to a data fragment. */
+	static long error() {
+		throw new InternalCompilerError();
+	}
+
+	// ----- COMPILATION -----
+
+	/** The compiler of a single code fragment. */
+	private class FragmentCompiler {
+
+		private final CodeFragment codeFrg;
+
+		private final ClassAssembler.Code code;
+
+		/**
+		 * The local variables of temporaries (slot 0 holds the stack pointer).
+		 */
+		private final HashMap<Integer, Integer> slots = new HashMap<Integer, Integer>();
+
+		/** The labels of the code by their names. */
+		private final HashMap<String, ClassAssembler.Label> labels = new HashMap<String, ClassAssembler.Label>();
+
+		/** The label at the end of the code. */
+		private final ClassAssembler.Label exit = new ClassAssembler.Label();
+
+		FragmentCompiler(ClassAssembler assembler, CodeFragment codeFrg) {
+			this.codeFrg = codeFrg;
+			this.code = assembler.new Code();
+		}
+
+		private int slot(int temp) {
+			Integer slot = slots.get(temp);
+			if (slot == null) {
+				slot = 2 + 2 * slots.size();
+				slots.put(temp, slot);
+			}
+			return slot;
+		}
+
+		private ClassAssembler.Label label(String name) {
+			ClassAssembler.Label label = labels.get(name);
+			if (label == null) {
+				label = new ClassAssembler.Label();
+				labels.put(name, label);
+			}
+			return label;
+		}
+
+		/**
+		 * Compiles the fragment.
+		 *
+		 * @return The code or <code>null</code> if it does not fit in a method.
+		 */
+		ClassAssembler.Code compile() {
+			Vector<IMCStmt> lc = (codeFrg.linCode == null) ? new Vector<IMCStmt>() : codeFrg.linCode.stmts();
+
+			// Labels defined in the fragment (the first definition counts).
+			HashSet<String> defined = new HashSet<String>();
+			for (IMCStmt stmt : lc)
+				if (stmt instanceof LABEL)
+					defined.add(((LABEL) stmt).label);
+			for (String name : defined)
+				label(name);
+
+			// PROLOGUE
+			int fp = slot(codeFrg.FP);
+			int rv = slot(codeFrg.RV);
+			code.lload(0);
+			code.lstore(fp);
+			code.lload(fp);
+			code.lconst(codeFrg.frame.size);
+			code.insn(0x65, -2); // lsub
+			code.lstore(0);
+			for (IMCStmt stmt : lc)
+				collectTemps(stmt);
+			for (int slot = 2; slot < 2 + 2 * slots.size(); slot += 2)
+				if (slot != fp) {
+					code.lconst(0);
+					code.lstore(slot);
+				}
+
+			// CORE
+			HashSet<String> placed = new HashSet<String>();
+			for (IMCStmt stmt : lc) {
+				if (stmt instanceof LABEL) {
+					if (placed.add(((LABEL) stmt).label))
+						code.label(label(((LABEL) stmt).label));
+					continue;
+				}
+				compile(stmt);
+				if (code.size() > ClassAssembler.Code.maxSize)
+					return null;
+			}
+
+			// EPILOGUE
+			code.label(exit);
+			code.getstatic(codeClass, "engine", "L" + engineClass + ";", 1);
+			code.lload(fp);
+			code.lconst(8);
+			code.lload(rv);
+			code.invokevirtual(engineClass, "store", "(JJJ)V", 7, 0);
+			code.insn(0xB1, 0); // return
+
+			if ((code.size() > ClassAssembler.Code.maxSize) || (2 * slots.size() + 2 > 65535))
+				return null;
+			return code;
+		}
+
+		/** Assigns local variables to all temporaries of the statement. */
+		private void collectTemps(IMCStmt stmt) {
+			if (stmt instanceof MOVE) {
+				collectTemps(((MOVE) stmt).dst);
+				collectTemps(((MOVE) stmt).src);
+			}
+			if (stmt instanceof CJUMP)
+				collectTemps(((CJUMP) stmt).cond);
+			if (stmt instanceof ESTMT)
+				collectTemps(((ESTMT) stmt).expr);
+		}
+
+		private void collectTemps(IMCExpr expr) {
+			if (expr instanceof TEMP)
+				slot(((TEMP) expr).name);
+			if (expr instanceof BINOP) {
+				collectTemps(((BINOP) expr).expr1);
+				collectTemps(((BINOP) expr).expr2);
+			}
+			if (expr instanceof UNOP)
+				collectTemps(((UNOP) expr).expr);
+			if (expr instanceof MEM)
+				collectTemps(((MEM) expr).addr);
+			if (expr instanceof CALL)
+				for (int arg = 0; arg < ((CALL) expr).numArgs(); arg++)
+					collectTemps(((CALL) expr).args(arg));
+			if (expr instanceof SEXPR)
+				collectTemps(((SEXPR) expr).expr);
+		}
+
+		/** Returns the label a jump to the specified label leads to. */
+		private ClassAssembler.Label target(String name) {
+			ClassAssembler.Label label = labels.get(name);
+			return label == null ? exit : label;
+		}
+
+		private void compile(IMCStmt stmt) {
+			if (stmt instanceof MOVE) {
+				MOVE move = (MOVE) stmt;
+				if (move.dst instanceof TEMP) {
+					compile(move.src);
+					code.lstore(slot(((TEMP) move.dst).name));
+				}
+				if (move.dst instanceof MEM) {
+					code.getstatic(codeClass, "engine", "L" + engineClass + ";", 1);
+					compile(((MEM) move.dst).addr);
+					code.lconst(((MEM) move.dst).width);
+					compile(move.src);
+					code.invokevirtual(engineClass, "store", "(JJJ)V", 7, 0);
+				}
+				return;
+			}
+
+			if (stmt instanceof JUMP) {
+				code.branch(0xA7, 0, target(((JUMP) stmt).label)); // goto
+				return;
+			}
+
+			if (stmt instanceof CJUMP) {
+				CJUMP cjump = (CJUMP) stmt;
+				int cmp = comparison(cjump.cond);
+				if (cmp != 0) {
+					// A comparison yields either 0 or 1.
+					compile(((BINOP) cjump.cond).expr1);
+					compile(((BINOP) cjump.cond).expr2);
+					code.insn(0x94, -3); // lcmp
+					code.branch(cmp, 1, target(cjump.posLabel));
+					code.branch(0xA7, 0, target(cjump.negLabel)); // goto
+					return;
+				}
+				compile(cjump.cond);
+				code.insn(0x5C, 2); // dup2
+				code.lconst(1);
+				code.insn(0x94, -3); // lcmp
+				ClassAssembler.Label notPos = new ClassAssembler.Label();
+				code.branch(0x9A, 1, notPos); // ifne
+				code.insn(0x58, -2); // pop2
+				code.branch(0xA7, 0, target(cjump.posLabel)); // goto
+				code.stack(2);
+				code.label(notPos);
+				code.lconst(0);
+				code.insn(0x94, -3); // lcmp
+				code.branch(0x99, 1, target(cjump.negLabel)); // ifeq
+				code.invokestatic(engineClass, "error", "()J", 0, 2);
+				code.insn(0x58, -2); // pop2
+				return;
+			}
+
+			// Other statements are not executed by the interpreter.
+		}
+
+		/**
+		 * Returns the opcode of the branch taken if the comparison holds after
+		 * <code>lcmp</code>, or 0 if the expression is not a comparison.
+		 */
+		private int comparison(IMCExpr expr) {
+			if (!(expr instanceof BINOP))
+				return 0;
+			switch (((BINOP) expr).oper) {
+			case EQU:
+				return 0x99; // ifeq
+			case NEQ:
+				return 0x9A; // ifne
+			case LTH:
+				return 0x9B; // iflt
+			case GEQ:
+				return 0x9C; // ifge
+			case GTH:
+				return 0x9D; // ifgt
+			case LEQ:
+				return 0x9E; // ifle
+			default:
+				return 0;
+			}
+		}
+
+		/**
+		 * Pushes 1 if the branch instruction would be taken and 0 otherwise
+		 * (the branch instruction pops an int).
+		 */
+		private void bool(int opcode) {
+			int stack = code.stack();
+			ClassAssembler.Label yes = new ClassAssembler.Label();
+			ClassAssembler.Label done = new ClassAssembler.Label();
+			code.branch(opcode, 1, yes);
+			code.lconst(0);
+			code.branch(0xA7, 0, done); // goto
+			code.stack(stack - 1);
+			code.label(yes);
+			code.lconst(1);
+			code.label(done);
+		}
+
+		private void compile(IMCExpr expr) {
+			if (expr instanceof CONST) {
+				code.lconst(((CONST) expr).value);
+				return;
+			}
+
+			if (expr instanceof TEMP) {
+				code.lload(slot(((TEMP) expr).name));
+				return;
+			}
+
+			if (expr instanceof BINOP) {
+				BINOP binop = (BINOP) expr;
+				int cmp = comparison(binop);
+				if (cmp != 0) {
+					compile(binop.expr1);
+					compile(binop.expr2);
+					code.insn(0x94, -3); // lcmp
+					bool(cmp);
+					return;
+				}
+				switch (binop.oper) {
+				case AND:
+				case OR:
+					// Compare both operands with 1 (yielding 0 if equal).
+					compile(binop.expr1);
+					code.lconst(1);
+					code.insn(0x94, -3); // lcmp
+					compile(binop.expr2);
+					code.lconst(1);
+					code.insn(0x94, -3); // lcmp
+					code.insn(binop.oper == BINOP.Oper.AND ? 0x80 : 0x68, -1); // ior : imul
+					bool(0x99); // ifeq
+					return;
+				default:
+					break;
+				}
+				compile(binop.expr1);
+				compile(binop.expr2);
+				switch (binop.oper) {
+				case ADD:
+					code.insn(0x61, -2); // ladd
+					return;
+				case SUB:
+					code.insn(0x65, -2); // lsub
+					return;
+				case MUL:
+					code.insn(0x69, -2); // lmul
+					return;
+				case DIV:
+					code.insn(0x6D, -2); // ldiv
+					return;
+				case MOD:
+					code.insn(0x71, -2); // lrem
+					return;
+				default:
+					throw new InternalCompilerError();
+				}
+			}
+
+			if (expr instanceof MEM) {
+				code.getstatic(codeClass, "engine", "L" + engineClass + ";", 1);
+				compile(((MEM) expr).addr);
+				code.lconst(((MEM) expr).width);
+				code.invokevirtual(engineClass, "load", "(JJ)J", 5, 2);
+				return;
+			}
+
+			if (expr instanceof NAME) {
+				Long addr = dataSegLabels.get(((NAME) expr).name);
+				if (addr == null)
+					code.invokestatic(engineClass, "error", "()J", 0, 2);
+				else
+					code.lconst(addr);
+				return;
+			}
+
+			if (expr instanceof NOP) {
+				code.lconst(0);
+				return;
+			}
+
+			if (expr instanceof UNOP) {
+				compile(((UNOP) expr).expr);
+				switch (((UNOP) expr).oper) {
+				case ADD:
+					return;
+				case SUB:
+					code.insn(0x75, 0); // lneg
+					return;
+				case NOT:
+					code.lconst(1);
+					code.insn(0x94, -3); // lcmp
+					bool(0x9A); // ifne
+					return;
+				}
+			}
+
+			if (expr instanceof CALL) {
+				compile((CALL) expr);
+				return;
+			}
+
+			throw new InternalCompilerError();
+		}
+
+		private void compile(CALL call) {
+			switch (call.label) {
+			case "_printChr":
+				compile(call.args(1));
+				code.invokestatic(engineClass, "printChr", "(J)J", 2, 2);
+				return;
+			case "_printInt":
+				compile(call.args(1));
+				code.invokestatic(engineClass, "printInt", "(J)J", 2, 2);
+				return;
+			case "_printStr":
+				code.getstatic(codeClass, "engine", "L" + engineClass + ";", 1);
+				compile(call.args(1));
+				code.invokevirtual(engineClass, "printStr", "(J)J", 3, 2);
+				return;
+			case "_randomInt":
+				code.invokestatic(engineClass, "randomInt", "()J", 0, 2);
+				return;
+			case "_randomChr":
+				code.invokestatic(engineClass, "randomChr", "()J", 0, 2);
+				return;
+			}
+
+			long d = 0;
+			for (int arg = 0; arg < call.numArgs(); arg++) {
+				code.getstatic(codeClass, "engine", "L" + engineClass + ";", 1);
+				code.lload(0);
+				code.lconst(d);
+				code.insn(0x61, -2); // ladd
+				code.lconst(call.widths(arg));
+				compile(call.args(arg));
+				code.invokevirtual(engineClass, "store", "(JJJ)V", 7, 0);
+				d += call.widths(arg);
+			}
+
+			String methodName = methodNames.get(call.label);
+			if (methodName == null) {
+				code.invokestatic(engineClass, "error", "()J", 0, 2);
+				return;
+			}
+			code.lload(0);
+			code.invokestatic(codeClass, methodName, fragmentDesc, 2, 0);
+			code.getstatic(codeClass, "engine", "L" + engineClass + ";", 1);
+			code.lload(0);
+			code.lconst(8);
+			code.invokevirtual(engineClass, "load", "(JJ)J", 5, 2);
+		}
+
+	}
+
+	/**
+	 * Compiles a code fragment into a method, or into a method calling the
+	 * closure engine if the fragment does not fit in a method.
+	 */
+	private void compile(ClassAssembler assembler, CodeFragment codeFrg) {
+		ClassAssembler.Code code = (new FragmentCompiler(assembler, codeFrg)).compile();
+		if (code == null) {
+			code = assembler.new Code();
+			code.getstatic(codeClass, "engine", "L" + engineClass + ";", 1);
+			code.lconst(closureLabels.size());
+			code.insn(0x88, -1); // l2i
+			code.lload(0);
+			code.invokevirtual(engineClass, "interpret", "(IJ)V", 4, 0);
+			code.insn(0xB1, 0); // return
+			closureLabels.add(codeFrg.label);
+		}
+		assembler.addStaticMethod(methodNames.get(codeFrg.label), fragmentDesc, code);
+	}
+
+}
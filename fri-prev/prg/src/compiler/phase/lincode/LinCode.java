@@ -2,13 +2,16 @@ package compiler.phase.lincode;
 
 import compiler.Task;
 import compiler.common.report.InternalCompilerError;
+import compiler.common.report.Report;
 import compiler.data.frg.CodeFragment;
 import compiler.data.frg.ConstFragment;
 import compiler.data.frg.DataFragment;
 import compiler.data.frg.Fragment;
 import compiler.data.imc.*;
+import compiler.data.prf.Profile;
 import compiler.phase.Phase;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Vector;
 
@@ -45,6 +48,15 @@ public class LinCode extends Phase {
 		super.close();
 	}
 
+	/**
+	 * Executes the program on the linearized intermediate code of the code
+	 * fragments as it is now, i.e., after it has been scheduled if phase
+	 * <code>trace</code> has been performed.
+	 */
+	public void interpret() {
+		interpreter();
+	}
+
 	// ----- INTERPRETER -----
 
 	private boolean debug = false;
@@ -54,26 +66,132 @@ public class LinCode extends Phase {
 	// HEAP SEGMENT BOT: 0x2000000000000000l
 	// DATA SEGMENT BOT: 0x1000000000000000l
 
-	private HashMap<Long, Byte> memory;
+	private Memory memory;
 
 	private HashMap<String, Long> dataSegLabels;
 
-	private long[] registers;
+	/**
+	 * The code of a fragment prepared for execution. The temporaries of the
+	 * fragment are renumbered densely so that each call needs a register
+	 * window of just the fragment's own temporaries.
+	 */
+	private static class Code {
+
+		/** The statements of the linearized code (with renumbered temporaries). */
+		final Vector<IMCStmt> stmts = new Vector<IMCStmt>();
+
+		/** The indices of labels within the statements. */
+		final HashMap<String, Integer> labelPCs = new HashMap<String, Integer>();
+
+		/** The renumbered temporaries by their original names. */
+		private final HashMap<Integer, Integer> temps = new HashMap<Integer, Integer>();
+
+		/** The renumbered frame pointer and return value temporaries. */
+		final int FP, RV;
+
+		Code(CodeFragment codeFrg) {
+			FP = temp(codeFrg.FP);
+			RV = temp(codeFrg.RV);
+			for (IMCStmt stmt : codeFrg.linCode.stmts())
+				stmts.add(renumber(stmt));
+			for (int pc = 0; pc < stmts.size(); pc++) {
+				IMCStmt stmt = stmts.get(pc);
+				if ((stmt instanceof LABEL) && !labelPCs.containsKey(((LABEL) stmt).label))
+					labelPCs.put(((LABEL) stmt).label, pc);
+			}
+		}
+
+		/**
+		 * Returns the index of the label, or the number of statements if the
+		 * label is not defined in this fragment.
+		 */
+		int pc(String label) {
+			Integer pc = labelPCs.get(label);
+			return pc == null ? stmts.size() : pc;
+		}
+
+		/** Returns the number of temporaries of the fragment. */
+		int numTemps() {
+			return temps.size();
+		}
+
+		private int temp(int name) {
+			Integer temp = temps.get(name);
+			if (temp == null) {
+				temp = temps.size();
+				temps.put(name, temp);
+			}
+			return temp;
+		}
+
+		private IMCStmt renumber(IMCStmt stmt) {
+			if (stmt instanceof MOVE)
+				return new MOVE(renumber(((MOVE) stmt).dst), renumber(((MOVE) stmt).src));
+			if (stmt instanceof CJUMP)
+				return new CJUMP(renumber(((CJUMP) stmt).cond), ((CJUMP) stmt).posLabel, ((CJUMP) stmt).negLabel);
+			return stmt;
+		}
+
+		private IMCExpr renumber(IMCExpr expr) {
+			if (expr instanceof TEMP)
+				return new TEMP(temp(((TEMP) expr).name));
+			if (expr instanceof BINOP)
+				return new BINOP(((BINOP) expr).oper, renumber(((BINOP) expr).expr1),
+						renumber(((BINOP) expr).expr2));
+			if (expr instanceof UNOP)
+				return new UNOP(((UNOP) expr).oper, renumber(((UNOP) expr).expr));
+			if (expr instanceof MEM)
+				return new MEM(renumber(((MEM) expr).addr), ((MEM) expr).width);
+			if (expr instanceof CALL) {
+				CALL call = (CALL) expr;
+				Vector<IMCExpr> args = new Vector<IMCExpr>();
+				Vector<Long> widths = new Vector<Long>();
+				for (int arg = 0; arg < call.numArgs(); arg++) {
+					args.add(renumber(call.args(arg)));
+					widths.add(call.widths(arg));
+				}
+				return new CALL(call.label, args, widths);
+			}
+			return expr;
+		}
+
+	}
+
+	/** Code fragments by their labels. */
+	private HashMap<String, CodeFragment> codeFragments;
+
+	/** The code of fragments prepared for execution, by their labels. */
+	private HashMap<String, Code> codes;
+
+	/**
+	 * The stack of register windows: the window of the fragment being
+	 * executed starts at <code>frameBase</code> and ends at
+	 * <code>frameTop</code>, the windows of its callers lie below.
+	 */
+	private long[] frames;
 
-	private int fp;
-	private int sp;
+	private int frameBase;
+
+	private int frameTop;
+
+	/** The stack pointer. */
+	private long sp;
+
+	/** The execution profile (or <code>null</code> if not profiling). */
+	private Profile profile;
 
 	private long hp;
 
 	private void interpreter() {
-		memory = new HashMap<Long, Byte>();
+		memory = new Memory();
 
-		sp = TEMP.newTempName();
-		registers = new long[sp + 1];
-		//registers[sp] = 0xF000000000000000l;
-		registers[sp] = 1000l;
+		frames = new long[1024];
+		frameBase = 0;
+		frameTop = 0;
+		//sp = 0xF000000000000000l;
+		sp = 1000l;
 
-		long dataSegPtr = 0x1000000000000000l;
+		long dataSegPtr = Memory.dataSegBot;
 		dataSegLabels = new HashMap<String, Long>();
 		for (Fragment fragment : task.fragments.values()) {
 			if (fragment instanceof DataFragment) {
@@ -107,28 +225,44 @@ public class LinCode extends Phase {
 						}
 						i++;
 					}
-					memory.put(new Long(dataSegPtr), new Byte((byte) c));
+					memory.store(dataSegPtr, 1, c);
 					dataSegPtr++;
 				}
-				memory.put(new Long(dataSegPtr), new Byte((byte) 0));
+				memory.store(dataSegPtr, 1, 0);
 				dataSegPtr++;
 			}
 		}
 
-		hp = 0x2000000000000000l;
-
-		execute(getCodeFragment("_"));
+		hp = Memory.heapSegBot;
+
+		codeFragments = new HashMap<String, CodeFragment>();
+		for (Fragment fragment : task.fragments.values())
+			if ((fragment instanceof CodeFragment) && !codeFragments.containsKey(fragment.label))
+				codeFragments.put(fragment.label, (CodeFragment) fragment);
+		codes = new HashMap<String, Code>();
+
+		profile = task.profiling ? new Profile() : null;
+		if ((profile == null) && task.engine.equals("closure"))
+			(new ClosureEngine(memory, dataSegLabels, codeFragments)).execute("_", sp);
+		else if ((profile == null) && task.engine.equals("jit"))
+			(new JitEngine(memory, dataSegLabels, codeFragments)).execute("_", sp);
+		else
+			execute(getCodeFragment("_"));
+		Report.info(memory.footprint());
+		if (profile != null) {
+			task.profile = profile;
+			profile.write(task.xmlFName + ".prof");
+			profile = null;
+		}
 
-		registers = null;
+		frames = null;
 		memory = null;
+		codeFragments = null;
+		codes = null;
 	}
 
 	private CodeFragment getCodeFragment(String label) {
-		for (Fragment fragment : task.fragments.values()) {
-			if ((fragment instanceof CodeFragment) && (fragment.label.equals(label)))
-				return (CodeFragment) fragment;
-		}
-		return null;
+		return codeFragments.get(label);
 	}
 
 	private void execute(CodeFragment codeFrg) {
@@ -139,33 +273,55 @@ public class LinCode extends Phase {
 		if (debug)
 			System.err.printf("BEG CODE FRAGMENT %s\n", codeFrg.label);
 
+		Code code = codes.get(codeFrg.label);
+		if (code == null) {
+			code = new Code(codeFrg);
+			codes.put(codeFrg.label, code);
+		}
+
 		// PROLOGUE
-		long[] storedRegisters = new long[sp + 1];
-		for (int r = 0; r <= sp; r++)
-			storedRegisters[r] = registers[r];
-		fp = codeFrg.FP;
-		registers[fp] = registers[sp];
-		registers[sp] = registers[sp] - codeFrg.frame.size;
+		long storedSP = sp;
+		int storedFrameBase = frameBase;
+		int base = frameTop;
+		if (base + code.numTemps() > frames.length)
+			frames = Arrays.copyOf(frames, Math.max(2 * frames.length, base + code.numTemps()));
+		Arrays.fill(frames, base, base + code.numTemps(), 0);
+		frameBase = base;
+		frameTop = base + code.numTemps();
+		frames[base + code.FP] = sp;
+		sp = sp - codeFrg.frame.size;
+		if (profile != null)
+			profile.enter(codeFrg.label);
 
 		// CORE
-		execute(codeFrg.linCode.stmts());
+		execute(code);
+		if (profile != null)
+			profile.exit();
 
 		// EPILOGUE
-		stMem(registers[fp], 8, registers[codeFrg.RV]);
+		stMem(frames[base + code.FP], 8, frames[base + code.RV]);
 
-		for (int r = 0; r <= sp; r++)
-			registers[r] = storedRegisters[r];
+		sp = storedSP;
+		frameBase = storedFrameBase;
+		frameTop = base;
 
 		if (debug)
 			System.err.printf("END CODE FRAGMENT %s\n", codeFrg.label);
 	}
 
-	private void execute(Vector<IMCStmt> stmts) {
+	private void execute(Code code) {
+		Vector<IMCStmt> stmts = code.stmts;
 		int pc = 0;
 		while (true) {
 			if (pc >= stmts.size())
 				return;
 			IMCStmt stmt = stmts.get(pc);
+			if (profile != null) {
+				if (stmt instanceof LABEL)
+					profile.label(((LABEL) stmt).label);
+				else
+					profile.stmt();
+			}
 
 			if (stmt instanceof CJUMP) {
 				String dest = null;
@@ -178,18 +334,7 @@ public class LinCode extends Phase {
 				if (dest == null)
 					throw new InternalCompilerError();
 
-				pc = 0;
-				while (true) {
-					if (pc >= stmts.size())
-						break;
-
-					IMCStmt newStmt = stmts.get(pc);
-					if ((newStmt instanceof LABEL) && (((LABEL) newStmt).label.equals(dest)))
-						break;
-
-					pc++;
-				}
-
+				pc = code.pc(dest);
 				continue;
 			}
 
@@ -197,7 +342,7 @@ public class LinCode extends Phase {
 				if (((MOVE) stmt).dst instanceof TEMP) {
 					int reg = ((TEMP) (((MOVE) stmt).dst)).name;
 					long srcValue = execute(((MOVE) stmt).src);
-					registers[reg] = srcValue;
+					frames[frameBase + reg] = srcValue;
 					if (debug)
 						System.err.printf("T%d <- %1d\n", reg, srcValue);
 				}
@@ -213,17 +358,7 @@ public class LinCode extends Phase {
 			if (stmt instanceof JUMP) {
 				String dest = ((JUMP) stmt).label;
 
-				pc = 0;
-				while (true) {
-					if (pc >= stmts.size())
-						break;
-
-					IMCStmt newStmt = stmts.get(pc);
-					if ((newStmt instanceof LABEL) && (((LABEL) newStmt).label.equals(dest)))
-						break;
-
-					pc++;
-				}
+				pc = code.pc(dest);
 				continue;
 			}
 
@@ -272,6 +407,8 @@ public class LinCode extends Phase {
 
 		if (expr instanceof CALL) {
 			CALL call = (CALL) expr;
+			if (profile != null)
+				profile.call(call.label);
 
 			if (call.label.equals("_printChr")) {
 				long value = execute(call.args(1));
@@ -309,12 +446,12 @@ public class LinCode extends Phase {
 			long d = 0;
 			for (int arg = 0; arg < call.numArgs(); arg++) {
 				long value = execute(call.args(arg));
-				stMem(registers[sp] + d, call.widths(arg), value);
+				stMem(sp + d, call.widths(arg), value);
 				d += call.widths(arg);
 			}
 			
 			execute(getCodeFragment(call.label));
-			long value = ldMem(registers[sp], 8);
+			long value = ldMem(sp, 8);
 			return value;
 		}
 
@@ -332,7 +469,7 @@ public class LinCode extends Phase {
 		}
 
 		if (expr instanceof TEMP) {
-			return registers[((TEMP) expr).name];
+			return frames[frameBase + ((TEMP) expr).name];
 		}
 
 		if (expr instanceof UNOP) {
@@ -354,23 +491,15 @@ public class LinCode extends Phase {
 	private void stMem(long addr, long width, long value) {
 		if (debug)
 			System.err.printf("[%1d] <- %1d\n", addr, value);
-		for (int d = 0; d < width; d++) {
-			// System.err.printf("*[%16X] <- %d\n", addr + d, (byte) value);
-			memory.put(addr + d, (byte) value);
-			value = value >> 8;
-		}
+		if (profile != null)
+			profile.store(Memory.segment(addr));
+		memory.store(addr, width, value);
 	}
 
 	private long ldMem(long addr, long width) {
-		long value = 0;
-		for (int d = 0; d < width; d++) {
-			Byte b = memory.get(addr + d);
-			if (b == null)
-				b = new Byte((byte) 0);
-			long ub = (b < 0) ? (256 + (long) b) : (0 + (long) b);
-			// System.err.printf("*[%1d] -> %d\n", addr + d, ub);
-			value = value + (ub << (d * 8));
-		}
+		long value = memory.load(addr, width);
+		if (profile != null)
+			profile.load(Memory.segment(addr));
 		if (debug)
 			System.err.printf("[%1d] -> %1d\n", addr, value);
 		return value;
@@ -0,0 +1,195 @@
+package compiler.phase.lincode;
+
+import java.lang.invoke.*;
+import java.nio.*;
+import java.util.*;
+
+import compiler.data.prf.*;
+
+/**
+ * The memory of the interpreter of the linearized intermediate code.
+ *
+ * <p>
+ * The 64-bit address space is divided into pages of {@link #pageSize} bytes,
+ * each allocated when it is written to for the first time; reading from a
+ * page that has never been written to yields zeros. Pages are found through a
+ * page table fronted by a small direct-mapped cache of recently used pages.
+ * Words of 1, 2, 4 and 8 bytes within a page are accessed in little-endian
+ * order through {@link VarHandle}s; other widths and accesses crossing a page
+ * boundary are performed byte by byte with the same result the interpreter
+ * has always produced.
+ * </p>
+ *
+ * <p>
+ * For reporting, the address space is divided into three segments: the data
+ * segment starting at <code>0x1000000000000000</code>, the heap segment
+ * starting at <code>0x2000000000000000</code> and the stack segment (all
+ * other addresses).
+ * </p>
+ */
+public class Memory {
+
+	/** The number of bits of an offset within a page. */
+	private static final int pageBits = 12;
+
+	/** The size of a page in bytes. */
+	public static final int pageSize = 1 << pageBits;
+
+	/** The number of entries of the page cache (a power of two). */
+	private static final int cacheSize = 16;
+
+	/** The beginning of the data segment. */
+	public static final long dataSegBot = 0x1000000000000000l;
+
+	/** The beginning of the heap segment. */
+	public static final long heapSegBot = 0x2000000000000000l;
+
+	private static final VarHandle shortView = MethodHandles.byteArrayViewVarHandle(short[].class,
+			ByteOrder.LITTLE_ENDIAN);
+
+	private static final VarHandle intView = MethodHandles.byteArrayViewVarHandle(int[].class,
+			ByteOrder.LITTLE_ENDIAN);
+
+	private static final VarHandle longView = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+
+	/** All allocated pages by their page numbers. */
+	private final HashMap<Long, byte[]> pages = new HashMap<Long, byte[]>();
+
+	/** Page numbers of the cached pages. */
+	private final long[] cachedPageNums = new long[cacheSize];
+
+	/** The cached pages. */
+	private final byte[][] cachedPages = new byte[cacheSize][];
+
+	/** The number of allocated pages in the stack, data and heap segment. */
+	private int numStackPages, numDataPages, numHeapPages;
+
+	/**
+	 * Returns the segment containing the specified address.
+	 */
+	public static Profile.Segment segment(long addr) {
+		if ((addr >= dataSegBot) && (addr < heapSegBot))
+			return Profile.Segment.DATA;
+		if (addr >= heapSegBot)
+			return Profile.Segment.HEAP;
+		return Profile.Segment.STACK;
+	}
+
+	/**
+	 * Returns the page containing the specified address, or <code>null</code>
+	 * if the page has not been allocated and <code>allocate</code> is
+	 * <code>false</code>.
+	 */
+	private byte[] page(long addr, boolean allocate) {
+		long pageNum = addr >> pageBits;
+		int slot = (int) pageNum & (cacheSize - 1);
+		byte[] page = cachedPages[slot];
+		if ((page != null) && (cachedPageNums[slot] == pageNum))
+			return page;
+
+		page = pages.get(pageNum);
+		if (page == null) {
+			if (!allocate)
+				return null;
+			page = new byte[pageSize];
+			pages.put(pageNum, page);
+			switch (segment(addr)) {
+			case DATA:
+				numDataPages++;
+				break;
+			case HEAP:
+				numHeapPages++;
+				break;
+			default:
+				numStackPages++;
+			}
+		}
+		cachedPageNums[slot] = pageNum;
+		cachedPages[slot] = page;
+		return page;
+	}
+
+	/**
+	 * Loads a value from the memory.
+	 *
+	 * @param addr
+	 *            The address.
+	 * @param width
+	 *            The number of bytes loaded (zero-extended).
+	 * @return The value.
+	 */
+	public long load(long addr, long width) {
+		int offset = (int) (addr & (pageSize - 1));
+		if ((offset + width <= pageSize) && (width <= 8) && ((width & (width - 1)) == 0)) {
+			byte[] page = page(addr, false);
+			if (page == null)
+				return 0;
+			switch ((int) width) {
+			case 8:
+				return (long) longView.get(page, offset);
+			case 4:
+				return ((int) intView.get(page, offset)) & 0xFFFFFFFFl;
+			case 2:
+				return ((short) shortView.get(page, offset)) & 0xFFFFl;
+			case 1:
+				return page[offset] & 0xFFl;
+			}
+		}
+
+		long value = 0;
+		for (int d = 0; d < width; d++) {
+			byte[] page = page(addr + d, false);
+			long ub = page == null ? 0 : (page[(int) ((addr + d) & (pageSize - 1))] & 0xFFl);
+			value = value + (ub << (d * 8));
+		}
+		return value;
+	}
+
+	/**
+	 * Stores a value to the memory.
+	 *
+	 * @param addr
+	 *            The address.
+	 * @param width
+	 *            The number of bytes stored (the least significant bytes of
+	 *            the value first).
+	 * @param value
+	 *            The value.
+	 */
+	public void store(long addr, long width, long value) {
+		int offset = (int) (addr & (pageSize - 1));
+		if ((offset + width <= pageSize) && (width <= 8) && ((width & (width - 1)) == 0)) {
+			byte[] page = page(addr, true);
+			switch ((int) width) {
+			case 8:
+				longView.set(page, offset, value);
+				return;
+			case 4:
+				intView.set(page, offset, (int) value);
+				return;
+			case 2:
+				shortView.set(page, offset, (short) value);
+				return;
+			case 1:
+				page[offset] = (byte) value;
+				return;
+			}
+		}
+
+		for (int d = 0; d < width; d++) {
+			page(addr + d, true)[(int) ((addr + d) & (pageSize - 1))] = (byte) value;
+			value = value >> 8;
+		}
+	}
+
+	/**
+	 * Returns a description of the memory footprint.
+	 */
+	public String footprint() {
+		return "Memory used by the interpreter: " + (pages.size() * (long) pageSize / 1024) + " KiB in pages of "
+				+ pageSize + " bytes: " + numStackPages + " stack, " + numDataPages + " data, " + numHeapPages
+				+ " heap.";
+	}
+
+}
@@ -0,0 +1,511 @@
+package compiler.phase.regalloc;
+
+import compiler.data.cod.Expression;
+import compiler.data.cod.graph.Graph;
+import compiler.data.cod.graph.GraphNode;
+import compiler.data.cod.graph.Liveness;
+import compiler.data.cod.graph.RegGraph;
+import compiler.data.cod.wrapper.FragmentCode;
+import compiler.data.imc.TEMP;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Iterated register coalescing (George and Appel)
+ * Simplify, coalesce, freeze and potential spill are driven by worklists until
+ * the graph is empty, then the nodes are colored in the reverse order of their
+ * removal; spilled temps are rewritten to live in the frame and the whole
+ * process is repeated. Moves between coalesced temps are deleted at the end.
+ */
+public class Coalescing {
+
+    private static final int SIMPLIFY = 0;
+    private static final int FREEZE = 1;
+    private static final int SPILL = 2;
+    private static final int COALESCED = 3;
+    private static final int SELECTED = 4;
+    private static final int COLORED = 5;
+    private static final int SPILLED = 6;
+
+    private static final int WORKLIST = 0;
+    private static final int ACTIVE = 1;
+    private static final int MOVE_COALESCED = 2;
+    private static final int CONSTRAINED = 3;
+    private static final int FROZEN = 4;
+
+    private FragmentCode fragment;
+    private RegGraph regGraph;
+    private int maxNumReg;
+
+    /**
+     * Temps introduced by spilling, which are not spilled again if possible
+     */
+    private Set<TEMP> spillTemps;
+
+    private int[] degree;
+    private int[] state;
+    private int[] alias;
+    private int[] color;
+    private int[][] moveList;
+    private int[] numNodeMoves;
+    private int[] moveState;
+    private double[] spillCost;
+
+    private IntList simplifyWorklist;
+    private IntList freezeWorklist;
+    private IntList spillWorklist;
+    private IntList worklistMoves;
+    private IntList selectStack;
+    private int[] visited;
+    private int visit;
+
+    /**
+     * Number of rounds that spilled temps and rebuilt the graphs
+     */
+    public int numSpillRounds;
+    /**
+     * Number of temps spilled in all rounds
+     */
+    public int numSpilled;
+    /**
+     * Number of move instructions deleted
+     */
+    public int numMovesRemoved;
+
+    public Coalescing(FragmentCode fragment, int maxNumReg) {
+        this.fragment = fragment;
+        this.maxNumReg = maxNumReg;
+        this.spillTemps = new HashSet<>();
+    }
+
+    public FragmentCode getResult() {
+        return this.fragment;
+    }
+
+    public void assign() {
+        while (true) {
+            this.regGraph = this.fragment.regGraph;
+            build();
+            makeWorklist();
+            while (true) {
+                if (!this.simplifyWorklist.isEmpty())
+                    simplify();
+                else if (!this.worklistMoves.isEmpty())
+                    coalesce();
+                else if (!this.freezeWorklist.isEmpty())
+                    freeze();
+                else if (!this.spillWorklist.isEmpty())
+                    selectSpill();
+                else
+                    break;
+            }
+            Set<TEMP> spilled = assignColors();
+            if (spilled.isEmpty())
+                break;
+            this.numSpillRounds++;
+            this.numSpilled += spilled.size();
+            this.spillTemps.addAll(SpillCode.rewrite(this.fragment, spilled));
+            this.fragment.codeGraph = new Graph(this.fragment);
+            this.fragment.regGraph = new RegGraph(this.fragment, spilled);
+        }
+        HashMap<TEMP, String> colored = new HashMap<>();
+        for (int node = 0; node < this.regGraph.numNodes(); node++)
+            colored.put(this.regGraph.getTemp(node), "$" + this.color[getAlias(node)]);
+        this.fragment.coloredMap = colored;
+        removeMoves();
+    }
+
+    private void build() {
+        int numNodes = this.regGraph.numNodes();
+        this.degree = new int[numNodes];
+        this.state = new int[numNodes];
+        this.alias = new int[numNodes];
+        this.color = new int[numNodes];
+        this.visited = new int[numNodes];
+        this.visit = 0;
+        for (int node = 0; node < numNodes; node++) {
+            this.degree[node] = this.regGraph.getDegree(node);
+            this.alias[node] = node;
+            this.color[node] = -1;
+        }
+
+        int numMoves = this.regGraph.numMoves();
+        this.moveState = new int[numMoves];
+        this.numNodeMoves = new int[numNodes];
+        for (int move = 0; move < numMoves; move++) {
+            this.numNodeMoves[this.regGraph.getMoveDst(move)]++;
+            this.numNodeMoves[this.regGraph.getMoveSrc(move)]++;
+        }
+        this.moveList = new int[numNodes][];
+        for (int node = 0; node < numNodes; node++)
+            this.moveList[node] = new int[this.numNodeMoves[node]];
+        Arrays.fill(this.numNodeMoves, 0);
+        this.worklistMoves = new IntList();
+        for (int move = 0; move < numMoves; move++) {
+            int dst = this.regGraph.getMoveDst(move);
+            int src = this.regGraph.getMoveSrc(move);
+            this.moveList[dst][this.numNodeMoves[dst]++] = move;
+            this.moveList[src][this.numNodeMoves[src]++] = move;
+            this.moveState[move] = WORKLIST;
+            this.worklistMoves.push(move);
+        }
+
+        computeSpillCosts();
+
+        this.simplifyWorklist = new IntList();
+        this.freezeWorklist = new IntList();
+        this.spillWorklist = new IntList();
+        this.selectStack = new IntList();
+    }
+
+    /**
+     * The spill cost of a temp is the number of its uses and defs, each
+     * weighted by 10 to the power of the loop depth of the instruction; the
+     * loop depth of an instruction is the number of backward jumps over it.
+     * Temps never defined in the fragment (the frame pointer) cannot be
+     * spilled usefully as there is no def to store them, so their cost is
+     * infinite.
+     */
+    private void computeSpillCosts() {
+        Liveness liveness = this.fragment.codeGraph.getLiveness();
+        int numInstrs = this.fragment.codeGraph.getNodes().size();
+        int[] depth = new int[numInstrs + 1];
+        for (int i = 0; i < numInstrs; i++) {
+            for (GraphNode succ : liveness.getNode(i).getSuccs()) {
+                if (succ.getIndex() <= i) {
+                    depth[succ.getIndex()]++;
+                    depth[i + 1]--;
+                }
+            }
+        }
+        this.spillCost = new double[this.regGraph.numNodes()];
+        boolean[] defined = new boolean[this.regGraph.numNodes()];
+        int loopDepth = 0;
+        for (int i = 0; i < numInstrs; i++) {
+            loopDepth += depth[i];
+            double weight = Math.pow(10, Math.min(loopDepth, 8));
+            Expression instruction = liveness.getNode(i).getInstruction();
+            for (TEMP temp : instruction.getUse()) {
+                int node = this.regGraph.getNode(temp);
+                if (node >= 0)
+                    this.spillCost[node] += weight;
+            }
+            for (TEMP temp : instruction.getDef()) {
+                int node = this.regGraph.getNode(temp);
+                if (node >= 0) {
+                    this.spillCost[node] += weight;
+                    defined[node] = true;
+                }
+            }
+        }
+        for (int node = 0; node < defined.length; node++)
+            if (!defined[node])
+                this.spillCost[node] = Double.POSITIVE_INFINITY;
+    }
+
+    private void makeWorklist() {
+        for (int node = 0; node < this.regGraph.numNodes(); node++) {
+            if (this.degree[node] >= this.maxNumReg)
+                setState(node, SPILL);
+            else if (moveRelated(node))
+                setState(node, FREEZE);
+            else
+                setState(node, SIMPLIFY);
+        }
+    }
+
+    private void setState(int node, int state) {
+        this.state[node] = state;
+        switch (state) {
+            case SIMPLIFY:
+                this.simplifyWorklist.push(node);
+                break;
+            case FREEZE:
+                this.freezeWorklist.push(node);
+                break;
+            case SPILL:
+                this.spillWorklist.push(node);
+                break;
+        }
+    }
+
+    /**
+     * Worklists may keep stale entries of nodes that have moved on to another
+     * state; they are skipped when taken from the worklist
+     */
+    private int take(IntList worklist, int state) {
+        while (!worklist.isEmpty()) {
+            int node = worklist.pop();
+            if (this.state[node] == state)
+                return node;
+        }
+        return -1;
+    }
+
+    private boolean active(int move) {
+        return this.moveState[move] == WORKLIST || this.moveState[move] == ACTIVE;
+    }
+
+    private boolean moveRelated(int node) {
+        for (int m = 0; m < this.numNodeMoves[node]; m++)
+            if (active(this.moveList[node][m]))
+                return true;
+        return false;
+    }
+
+    private boolean adjacent(int node) {
+        return this.state[node] != SELECTED && this.state[node] != COALESCED;
+    }
+
+    private void simplify() {
+        int node = take(this.simplifyWorklist, SIMPLIFY);
+        if (node < 0)
+            return;
+        this.state[node] = SELECTED;
+        this.selectStack.push(node);
+        int[] adj = this.regGraph.getAdjacent(node);
+        for (int a = 0; a < this.regGraph.getDegree(node); a++)
+            if (adjacent(adj[a]))
+                decrementDegree(adj[a]);
+    }
+
+    private void decrementDegree(int node) {
+        int d = this.degree[node]--;
+        if (d != this.maxNumReg)
+            return;
+        enableMoves(node);
+        int[] adj = this.regGraph.getAdjacent(node);
+        for (int a = 0; a < this.regGraph.getDegree(node); a++)
+            if (adjacent(adj[a]))
+                enableMoves(adj[a]);
+        if (this.state[node] != SPILL)
+            return;
+        if (moveRelated(node))
+            setState(node, FREEZE);
+        else
+            setState(node, SIMPLIFY);
+    }
+
+    private void enableMoves(int node) {
+        for (int m = 0; m < this.numNodeMoves[node]; m++) {
+            int move = this.moveList[node][m];
+            if (this.moveState[move] == ACTIVE) {
+                this.moveState[move] = WORKLIST;
+                this.worklistMoves.push(move);
+            }
+        }
+    }
+
+    private void coalesce() {
+        int move = this.worklistMoves.pop();
+        if (this.moveState[move] != WORKLIST)
+            return;
+        int u = getAlias(this.regGraph.getMoveDst(move));
+        int v = getAlias(this.regGraph.getMoveSrc(move));
+        if (u == v) {
+            this.moveState[move] = MOVE_COALESCED;
+            addWorklist(u);
+        } else if (this.regGraph.interferes(u, v)) {
+            this.moveState[move] = CONSTRAINED;
+            addWorklist(u);
+            addWorklist(v);
+        } else if (george(u, v) || briggs(u, v)) {
+            this.moveState[move] = MOVE_COALESCED;
+            combine(u, v);
+            addWorklist(u);
+        } else {
+            this.moveState[move] = ACTIVE;
+        }
+    }
+
+    private void addWorklist(int node) {
+        if (this.state[node] == FREEZE && !moveRelated(node) && this.degree[node] < this.maxNumReg)
+            setState(node, SIMPLIFY);
+    }
+
+    /**
+     * Every neighbour of v is either of low degree or already interferes with u
+     */
+    private boolean george(int u, int v) {
+        int[] adj = this.regGraph.getAdjacent(v);
+        for (int a = 0; a < this.regGraph.getDegree(v); a++) {
+            int t = adj[a];
+            if (adjacent(t) && this.degree[t] >= this.maxNumReg && !this.regGraph.interferes(t, u))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The combined node has fewer than K neighbours of significant degree
+     */
+    private boolean briggs(int u, int v) {
+        this.visit++;
+        int k = 0;
+        for (int node : new int[] { u, v }) {
+            int[] adj = this.regGraph.getAdjacent(node);
+            for (int a = 0; a < this.regGraph.getDegree(node); a++) {
+                int t = adj[a];
+                if (!adjacent(t) || this.visited[t] == this.visit)
+                    continue;
+                this.visited[t] = this.visit;
+                if (this.degree[t] >= this.maxNumReg)
+                    k++;
+            }
+        }
+        return k < this.maxNumReg;
+    }
+
+    private int getAlias(int node) {
+        while (this.state[node] == COALESCED)
+            node = this.alias[node];
+        return node;
+    }
+
+    private void combine(int u, int v) {
+        this.state[v] = COALESCED;
+        this.alias[v] = u;
+        this.spillCost[u] += this.spillCost[v];
+        for (int m = 0; m < this.numNodeMoves[v]; m++) {
+            if (this.numNodeMoves[u] == this.moveList[u].length)
+                this.moveList[u] = Arrays.copyOf(this.moveList[u], Math.max(4, 2 * this.numNodeMoves[u]));
+            this.moveList[u][this.numNodeMoves[u]++] = this.moveList[v][m];
+        }
+        enableMoves(v);
+        int[] adj = this.regGraph.getAdjacent(v);
+        for (int a = 0; a < this.regGraph.getDegree(v); a++) {
+            int t = adj[a];
+            if (!adjacent(t))
+                continue;
+            if (this.regGraph.addEdge(t, u)) {
+                this.degree[t]++;
+                this.degree[u]++;
+            }
+            decrementDegree(t);
+        }
+        if (this.degree[u] >= this.maxNumReg && this.state[u] == FREEZE)
+            setState(u, SPILL);
+    }
+
+    private void freeze() {
+        int node = take(this.freezeWorklist, FREEZE);
+        if (node < 0)
+            return;
+        setState(node, SIMPLIFY);
+        freezeMoves(node);
+    }
+
+    private void freezeMoves(int u) {
+        for (int m = 0; m < this.numNodeMoves[u]; m++) {
+            int move = this.moveList[u][m];
+            if (!active(move))
+                continue;
+            int x = getAlias(this.regGraph.getMoveDst(move));
+            int y = getAlias(this.regGraph.getMoveSrc(move));
+            int v = (y == getAlias(u)) ? x : y;
+            this.moveState[move] = FROZEN;
+            if (this.state[v] == FREEZE && !moveRelated(v) && this.degree[v] < this.maxNumReg)
+                setState(v, SIMPLIFY);
+        }
+    }
+
+    /**
+     * Picks the node of the lowest spill cost per interference, preferring
+     * temps not introduced by spilling as their live ranges cannot get any
+     * shorter
+     */
+    private void selectSpill() {
+        int best = -1;
+        boolean bestSpillTemp = true;
+        double bestPriority = 0;
+        int live = 0;
+        for (int i = 0; i < this.spillWorklist.size; i++) {
+            int node = this.spillWorklist.elems[i];
+            if (this.state[node] != SPILL)
+                continue;
+            this.spillWorklist.elems[live++] = node;
+            boolean spillTemp = this.spillTemps.contains(this.regGraph.getTemp(node));
+            double priority = this.spillCost[node] / this.degree[node];
+            if (best < 0 || (bestSpillTemp && !spillTemp)
+                    || (bestSpillTemp == spillTemp && priority < bestPriority)) {
+                best = node;
+                bestSpillTemp = spillTemp;
+                bestPriority = priority;
+            }
+        }
+        this.spillWorklist.size = live;
+        if (best < 0)
+            return;
+        setState(best, SIMPLIFY);
+        freezeMoves(best);
+    }
+
+    private Set<TEMP> assignColors() {
+        Set<TEMP> spilled = new HashSet<>();
+        boolean[] taken = new boolean[this.maxNumReg];
+        while (!this.selectStack.isEmpty()) {
+            int node = this.selectStack.pop();
+            Arrays.fill(taken, false);
+            int[] adj = this.regGraph.getAdjacent(node);
+            for (int a = 0; a < this.regGraph.getDegree(node); a++) {
+                int w = getAlias(adj[a]);
+                if (this.state[w] == COLORED)
+                    taken[this.color[w]] = true;
+            }
+            int clr = 0;
+            while (clr < this.maxNumReg && taken[clr])
+                clr++;
+            if (clr == this.maxNumReg) {
+                this.state[node] = SPILLED;
+                spilled.add(this.regGraph.getTemp(node));
+            } else {
+                this.state[node] = COLORED;
+                this.color[node] = clr;
+            }
+        }
+        return spilled;
+    }
+
+    /**
+     * Deletes the moves whose source and destination got the same register
+     */
+    private void removeMoves() {
+        HashMap<TEMP, String> colored = this.fragment.coloredMap;
+        for (Iterator<Expression> it = this.fragment.code.iterator(); it.hasNext(); ) {
+            Expression exp = it.next();
+            if (!exp.getMove() || exp.getResult() == null || exp.getOp1() == null)
+                continue;
+            String dst = colored.get(exp.getResult());
+            if (dst != null && dst.equals(colored.get(exp.getOp1()))) {
+                it.remove();
+                this.numMovesRemoved++;
+            }
+        }
+    }
+
+    /**
+     * Growable stack of ints
+     */
+    private static class IntList {
+        int[] elems = new int[16];
+        int size = 0;
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        void push(int elem) {
+            if (this.size == this.elems.length)
+                this.elems = Arrays.copyOf(this.elems, 2 * this.size);
+            this.elems[this.size++] = elem;
+        }
+
+        int pop() {
+            return this.elems[--this.size];
+        }
+    }
+}
@@ -9,6 +9,8 @@ import compiler.data.cod.print.Print;
 import compiler.data.cod.wrapper.FragmentCode;
 import compiler.data.imc.TEMP;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
@@ -26,7 +28,25 @@ public class Coloring {
     private Set<TEMP> spilled;
     private int maxNumReg;
     public int maxUsed;
+    /**
+     * Number of rounds that spilled temps and rebuilt the graphs
+     */
+    public int numSpillRounds;
+    /**
+     * Number of temps spilled in all rounds
+     */
+    public int numSpilled;
     private boolean canReplace;
+    private int[] degree;
+    /**
+     * Nodes still in the graph and those of them with fewer neighbours than
+     * there are registers; no node of low degree precedes lowFrom
+     */
+    private BitSet present;
+    private BitSet low;
+    private int lowFrom;
+    private int[] color;
+    private int numPresent;
 
     public Coloring(FragmentCode fragment, int maxNumReg) {
         this.fragment = fragment;
@@ -39,6 +59,7 @@ public class Coloring {
         this.maxNumReg = maxNumReg;
         this.maxUsed = 0;
         this.canReplace = true;
+        reset();
     }
 
     public FragmentCode getResult() {
@@ -62,94 +83,91 @@ public class Coloring {
 //        System.out.println("Iterations = " + iters);
     }
 
+    /**
+     * Removes the nodes one by one, always the first node of degree lower than
+     * the number of registers or the first node left if there is none, and then
+     * colors them in the reverse order of their removal
+     */
     private void color() {
-        if (this.regGraph.nodes.isEmpty())
-            return;
-//        while(this.canReplace) {
-        // simplify
-        boolean removed = false;
-        Set<TEMP> edges = null;
-        TEMP selected = null;
-        for (TEMP current : this.regGraph.nodes.keySet()) {
-            Set<TEMP> currEdges = this.regGraph.nodes.get(current);
-            if (currEdges.size() < this.maxNumReg) {
-                edges = new HashSet<>(currEdges);
-                remove(current);
-                color();
-                add(current, edges);
-                selected = current;
-                removed = true;
-                break;
+        int[] stack = new int[this.numPresent];
+        int top = 0;
+        int presentFrom = 0;
+        while (this.numPresent > 0) {
+            // simplify
+            int selected = this.low.nextSetBit(this.lowFrom);
+            if (selected >= 0) {
+                this.lowFrom = selected;
+            } else {
+                // spill
+                selected = this.present.nextSetBit(presentFrom);
+                presentFrom = selected;
             }
-        }
-
-        // spill
-        boolean spilled = false;
-        if (!removed) {
-//                Set<TEMP> edges = null;
-            for (TEMP spill : this.regGraph.nodes.keySet()) {
-                selected = spill;
-                edges = new HashSet<>(this.regGraph.nodes.get(selected));
-                remove(selected);
-                spilled = true;
-                break;
-            }
-            color();
-            if (edges != null)
-                add(selected, edges);
+            remove(selected);
+            stack[top++] = selected;
         }
 
         // select
-        if (selected == null) {
-            throw new CompilerError("null?");
-        }
-        int clr = getColor(selected);
-        if (clr < 0) {
-            this.spilled.add(selected);
-//                this.colored.put(selected, "$-1");
-        } else {
-            this.colored.put(selected, "$" + clr);
+        while (top > 0) {
+            int selected = stack[--top];
+            int clr = getColor(selected);
+            if (clr < 0) {
+                this.spilled.add(this.regGraph.getTemp(selected));
+            } else {
+                this.color[selected] = clr;
+                this.colored.put(this.regGraph.getTemp(selected), "$" + clr);
+            }
         }
     }
 
     private boolean check() {
-        for (TEMP t : this.regGraph.nodes.keySet()) {
-            if (this.colored.get(t).equals("-1"))
+        for (int node = 0; node < this.regGraph.numNodes(); node++) {
+            if (this.color[node] < 0)
                 return true;
         }
         return false;
     }
 
-    private void remove(TEMP remove) {
-        if (this.regGraph.nodes.keySet().size() == 0) return;
-        for (TEMP current : this.regGraph.nodes.keySet()) {
-            this.regGraph.nodes.get(current).remove(remove);
-        }
-        this.regGraph.nodes.remove(remove);
+    private void reset() {
+        int numNodes = this.regGraph.numNodes();
+        this.degree = new int[numNodes];
+        for (int node = 0; node < numNodes; node++)
+            this.degree[node] = this.regGraph.getDegree(node);
+        this.present = new BitSet(numNodes);
+        this.present.set(0, numNodes);
+        this.low = new BitSet(numNodes);
+        for (int node = 0; node < numNodes; node++)
+            if (this.degree[node] < this.maxNumReg)
+                this.low.set(node);
+        this.lowFrom = 0;
+        this.color = new int[numNodes];
+        Arrays.fill(this.color, -1);
+        this.numPresent = numNodes;
     }
 
-    private void add(TEMP add, Set<TEMP> edges) {
-        this.regGraph.nodes.put(add, edges);
-        for (TEMP current : edges) {
-            this.regGraph.nodes.get(current).add(add);
+    private void remove(int remove) {
+        this.present.clear(remove);
+        this.low.clear(remove);
+        this.numPresent--;
+        int[] adjacent = this.regGraph.getAdjacent(remove);
+        for (int a = 0; a < this.regGraph.getDegree(remove); a++) {
+            int node = adjacent[a];
+            if (--this.degree[node] == this.maxNumReg - 1 && this.present.get(node)) {
+                this.low.set(node);
+                this.lowFrom = Math.min(this.lowFrom, node);
+            }
         }
     }
 
-    private int getColor(TEMP selected) {
-        if (selected == null) return -1;
-        Set<TEMP> edges = this.regGraph.nodes.get(selected);
-        if (edges == null)
-            throw new CompilerError("wat??");
+    private int getColor(int selected) {
+        boolean[] taken = new boolean[this.maxNumReg];
+        int[] adjacent = this.regGraph.getAdjacent(selected);
+        for (int a = 0; a < this.regGraph.getDegree(selected); a++) {
+            if (this.color[adjacent[a]] >= 0)
+                taken[this.color[adjacent[a]]] = true;
+        }
         for (int color = 0; color < this.maxNumReg; color++) {
             if (color > this.maxUsed) this.maxUsed = color;
-            boolean taken = false;
-            for (TEMP edge : edges) {
-                if (this.colored.get(edge).equals("$" + color)) {
-                    taken = true;
-                    break;
-                }
-            }
-            if (!taken) return color;
+            if (!taken[color]) return color;
         }
         return -1;
     }
@@ -157,118 +175,18 @@ public class Coloring {
     private void insert() {
         if (this.spilled.size() == 0)
             return;
-//        System.out.print("spilled: ");
-//        for(TEMP t : this.spilled) System.out.print(t + ", ");
-//        System.out.println();
-        for (TEMP t : this.spilled) {
-//            for(Expression exp : this.fragment.code) {
-            for (int i = 0; i < this.fragment.code.size(); i++) {
-//                System.out.println(i + ", " + this.fragment.code.size());
-                Expression exp = this.fragment.code.get(i);
-                long offset = Long.MAX_VALUE;
-                TEMP tmp = null;
-                if (exp.getResult() == null) continue;
-                if (t.name == exp.getResult().name) {
-                    tmp = newTEMP();//new TEMP(TEMP.newTempName());
-                    this.fragment.temps.put(tmp, tmp.toString());
-                    this.colored.put(tmp, "-1");
-                    offset = -(this.fragment.fragment.frame.locVarsSize + 2 * 8 + this.fragment.fragment.frame.tmpVarsSize + 8);
-                    this.fragment.fragment.frame.tmpVarsSize += 8;
-                    exp = update(exp, tmp, 1);
-                    this.fragment.code.add(i + 1, new STO(tmp, "FP", offset));
-                    i++;
-                }
-                if (exp.getOp1() != null && t.name == exp.getOp1().name) {
-                    if (tmp == null) {
-//                        tmp = new TEMP(TEMP.newTempName());
-                        tmp = newTEMP();
-                        this.fragment.temps.put(tmp, tmp.toString());
-                        this.colored.put(tmp, "-1");
-                        offset = -(this.fragment.fragment.frame.locVarsSize + 2 * 8 + this.fragment.fragment.frame.tmpVarsSize + 8);
-                        this.fragment.fragment.frame.tmpVarsSize += 8;
-                    }
-                    exp = update(exp, tmp, 2);
-                    this.fragment.code.set(i, exp);
-                    this.fragment.code.add(i, new LDO(tmp, "FP", offset));
-                    i++;
-                }
-                if (exp.getOp2() != null && t.name == exp.getOp2().name) {
-                    if (tmp == null) {
-//                        tmp = new TEMP(TEMP.newTempName());
-                        tmp = newTEMP();
-                        this.fragment.temps.put(tmp, tmp.toString());
-                        this.colored.put(tmp, "-1");
-                        offset = -(this.fragment.fragment.frame.locVarsSize + 2 * 8 + this.fragment.fragment.frame.tmpVarsSize + 8);
-                        this.fragment.fragment.frame.tmpVarsSize += 8;
-                    }
-                    exp = update(exp, tmp, 3);
-                    this.fragment.code.set(i, exp);
-                    this.fragment.code.add(i, new LDO(tmp, "FP", offset));
-                    i++;
-                }
-            }
-            this.fragment.temps.remove(t);
-        }
+        this.numSpillRounds++;
+        this.numSpilled += this.spilled.size();
+        SpillCode.rewrite(this.fragment, this.spilled);
         this.fragment.coloredMap = this.colored;
         this.fragment.codeGraph = new Graph(this.fragment);
-        this.fragment.codeGraph.setNodes(this.fragment.codeGraph.getNodes());
         this.fragment.regGraph = new RegGraph(this.fragment, this.spilled);
         this.regGraph = this.fragment.regGraph;
+        reset();
         this.colored = new HashMap<>();
         for (TEMP curr : fragment.temps.keySet()) {
             this.colored.put(curr, "-1");
         }
-//        System.out.println("End of spill");
-    }
-
-    private Expression update(Expression exp, TEMP newReg, int arg) {
-//        String type = exp.getPrint().printString.split(" ")[0];
-        Print prt = null;
-        switch (arg) {
-            case 1:
-                exp.getDef().remove(exp.getResult());
-                exp.getDef().add(newReg);
-                exp.setResult(newReg);
-                prt = exp.getPrint();
-                prt.op1 = newReg;
-                exp.setPrint(prt);
-                break;
-            case 2:
-                exp.getUse().remove(exp.getOp1());
-                exp.getUse().add(newReg);
-                exp.setOp1(newReg);
-                prt = exp.getPrint();
-                prt.op2 = newReg;
-                exp.setPrint(prt);
-                break;
-            case 3:
-                exp.getUse().remove(exp.getOp2());
-                exp.getUse().add(newReg);
-                exp.setOp2(newReg);
-                prt = exp.getPrint();
-                prt.op3 = newReg;
-                exp.setPrint(prt);
-                break;
-        }
-        return exp;
-    }
-
-    private TEMP newTEMP() {
-        int tempName = TEMP.newTempName();
-        boolean unique = true;
-        while(true) {
-            for(TEMP key : this.fragment.temps.keySet()) {
-                if(this.fragment.temps.get(key).equals("T" + tempName)) {
-                    tempName = TEMP.newTempName();
-                    unique = false;
-                    break;
-                }
-            }
-            if(unique) break;
-        }
-        TEMP ret = new TEMP(tempName);
-        this.fragment.temps.put(ret, ret.toString());
-        return ret;
     }
 
 }
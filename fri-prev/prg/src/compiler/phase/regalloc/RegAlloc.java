@@ -35,9 +35,23 @@ public class RegAlloc extends Phase {
     void color() {
         for(int i = 0; i < this.fragCode.size(); i++) {
             FragmentCode code = this.fragCode.get(i);
-            Coloring color = new Coloring(code, this.maxNumReg);
-            color.assign();
-            code = color.getResult();
+            if (task.allocator.equals("coalescing")) {
+                Coalescing coalesce = new Coalescing(code, this.maxNumReg);
+                coalesce.assign();
+                code = coalesce.getResult();
+                code.movesRemoved = coalesce.numMovesRemoved;
+                code.spilledTemps = coalesce.numSpilled;
+                task.stats.add("spillRounds", coalesce.numSpillRounds);
+            } else {
+                Coloring color = new Coloring(code, this.maxNumReg);
+                color.assign();
+                code = color.getResult();
+                code.spilledTemps = color.numSpilled;
+                task.stats.add("spillRounds", color.numSpillRounds);
+            }
+            task.stats.add("movesRemoved", code.movesRemoved);
+            task.stats.add("spilledTemps", code.spilledTemps);
+            task.stats.add("allocatedInstructions", code.code.size());
 //            System.out.println(color.maxUsed);
             this.fragCode.set(i, code);
         }
@@ -0,0 +1,122 @@
+package compiler.phase.regalloc;
+
+import compiler.data.cod.Expression;
+import compiler.data.cod.LDO;
+import compiler.data.cod.STO;
+import compiler.data.cod.print.Print;
+import compiler.data.cod.wrapper.FragmentCode;
+import compiler.data.imc.TEMP;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Rewrites the code of a fragment so that the spilled temps live in the frame
+ * Every spilled temp gets its own slot among the temporary variables of the
+ * frame; an instruction using it first loads the slot into a fresh temp and an
+ * instruction defining it stores the fresh temp into the slot afterwards. All
+ * loads of an instruction are placed before it and all stores after it.
+ */
+class SpillCode {
+
+    /**
+     * Returns the fresh temps introduced
+     */
+    static Set<TEMP> rewrite(FragmentCode fragment, Set<TEMP> spilled) {
+        TreeMap<Integer, TEMP> ordered = new TreeMap<>();
+        for (TEMP t : spilled)
+            ordered.put(t.name, t);
+        HashMap<Integer, Long> slots = new HashMap<>();
+        for (TEMP t : ordered.values()) {
+            long offset = -(fragment.fragment.frame.locVarsSize + 2 * 8 + fragment.fragment.frame.tmpVarsSize + 8);
+            fragment.fragment.frame.tmpVarsSize += 8;
+            slots.put(t.name, offset);
+        }
+        Set<TEMP> fresh = new HashSet<>();
+        LinkedList<Expression> code = new LinkedList<>();
+        ArrayList<Expression> loads = new ArrayList<>();
+        ArrayList<Expression> stores = new ArrayList<>();
+        for (Expression exp : fragment.code) {
+            loads.clear();
+            stores.clear();
+            for (TEMP t : mentioned(exp, slots)) {
+                boolean used = remove(exp.getUse(), t);
+                boolean defined = remove(exp.getDef(), t);
+                if (!used && !defined)
+                    continue;
+                TEMP tmp = newTEMP(fragment);
+                fresh.add(tmp);
+                long offset = slots.get(t.name);
+                if (used)
+                    exp.getUse().add(tmp);
+                if (defined)
+                    exp.getDef().add(tmp);
+                rename(exp, t, tmp);
+                if (used)
+                    loads.add(new LDO(tmp, "FP", offset));
+                if (defined)
+                    stores.add(new STO(tmp, "FP", offset));
+            }
+            code.addAll(loads);
+            code.add(exp);
+            code.addAll(stores);
+        }
+        fragment.code = code;
+        for (TEMP t : spilled)
+            fragment.temps.remove(t);
+        return fresh;
+    }
+
+    /**
+     * Spilled temps used or defined by the instruction ordered by their names,
+     * so that the loads and stores are inserted in the same order on every run
+     */
+    private static ArrayList<TEMP> mentioned(Expression exp, HashMap<Integer, Long> slots) {
+        TreeMap<Integer, TEMP> mentioned = new TreeMap<>();
+        for (TEMP t : exp.getUse())
+            if (slots.containsKey(t.name))
+                mentioned.put(t.name, t);
+        for (TEMP t : exp.getDef())
+            if (slots.containsKey(t.name))
+                mentioned.putIfAbsent(t.name, t);
+        return new ArrayList<>(mentioned.values());
+    }
+
+    private static boolean remove(Set<TEMP> temps, TEMP t) {
+        boolean removed = false;
+        for (Iterator<TEMP> it = temps.iterator(); it.hasNext(); ) {
+            if (it.next().name == t.name) {
+                it.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    private static void rename(Expression exp, TEMP t, TEMP tmp) {
+        if (exp.getResult() != null && exp.getResult().name == t.name)
+            exp.setResult(tmp);
+        if (exp.getOp1() != null && exp.getOp1().name == t.name)
+            exp.setOp1(tmp);
+        if (exp.getOp2() != null && exp.getOp2().name == t.name)
+            exp.setOp2(tmp);
+        Print prt = exp.getPrint();
+        if (prt.op1 != null && prt.op1.name == t.name)
+            prt.op1 = tmp;
+        if (prt.op2 != null && prt.op2.name == t.name)
+            prt.op2 = tmp;
+        if (prt.op3 != null && prt.op3.name == t.name)
+            prt.op3 = tmp;
+    }
+
+    private static TEMP newTEMP(FragmentCode fragment) {
+        TEMP ret = new TEMP(TEMP.newTempName());
+        fragment.temps.put(ret, ret.toString());
+        return ret;
+    }
+}
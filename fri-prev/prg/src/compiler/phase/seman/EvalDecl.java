@@ -42,7 +42,7 @@ public class EvalDecl extends FullVisitor {
 		for (int a = 0; a < funCall.numArgs(); a++)
 			funCall.arg(a).accept(this);
 		try {
-			Decl val = symbolTable.fndDecl(funCall.name());
+			Decl val = symbolTable.fndDecl(funCall.nameId());
 			attrs.declAttr.set(funCall, val);
 		} catch (CannotFndNameDecl err) {
 			throw new CompilerError("[Semantic error, evalDecl]: Cannot find declaration of function at " + funCall);
@@ -53,7 +53,7 @@ public class EvalDecl extends FullVisitor {
 	public void visit(FunDecl funDecl) {
 		if(prototyping) {
 			try {
-				symbolTable.insDecl(funDecl.name, funDecl);
+				symbolTable.insDecl(funDecl.nameId, funDecl);
 			} catch (CannotInsNameDecl err) {
 				throw new CompilerError("[Semantic error, evalDecl]: Cannot insert new declaration of function at " + funDecl);
 			}
@@ -70,7 +70,7 @@ public class EvalDecl extends FullVisitor {
 	public void visit(FunDef funDef) {
 		if(prototyping) {
 			try {// types of parameters in a separate scope-
-				symbolTable.insDecl(funDef.name, funDef);
+				symbolTable.insDecl(funDef.nameId, funDef);
 			} catch (CannotInsNameDecl err) {
 				throw new CompilerError("[Semantic error, evalDecl]: Cannot insert new declaration of function at " + funDef);
 			}
@@ -86,7 +86,7 @@ public class EvalDecl extends FullVisitor {
 
 	@Override
 	public void visit(ParDecl parDecl) {
-		try { symbolTable.insDecl(parDecl.name, parDecl); }
+		try { symbolTable.insDecl(parDecl.nameId, parDecl); }
 		catch (CannotInsNameDecl err) {
 			throw new CompilerError("[Semantic error] Parameter name already declared at " + parDecl);
 		}
@@ -98,7 +98,7 @@ public class EvalDecl extends FullVisitor {
 		typDecl.type.accept(this);
 		if(prototyping) {
 			try {
-				symbolTable.insDecl(typDecl.name, typDecl);
+				symbolTable.insDecl(typDecl.nameId, typDecl);
 			} catch (CannotInsNameDecl err) {
 				throw new CompilerError("[Semantic error] Type name already declared at " + typDecl);
 			}
@@ -109,7 +109,7 @@ public class EvalDecl extends FullVisitor {
 	public void visit(TypeName typeName) {
 		if(!prototyping) {
 			try {
-				Decl val = symbolTable.fndDecl(typeName.name());
+				Decl val = symbolTable.fndDecl(typeName.nameId());
 				attrs.declAttr.set(typeName, val);
 			} catch (CannotFndNameDecl err) {
 				throw new CompilerError("[Semantic error, evalDecl]: Cannot find declaration of type at " + typeName);
@@ -120,7 +120,7 @@ public class EvalDecl extends FullVisitor {
 	@Override
 	public void visit(VarDecl varDecl) {
 		if(prototyping){
-			try { symbolTable.insDecl(varDecl.name, varDecl); }
+			try { symbolTable.insDecl(varDecl.nameId, varDecl); }
 			catch (CannotInsNameDecl err) {
 				throw new CompilerError("[Semantic error] Variable name already declared at " + varDecl);
 			}
@@ -132,7 +132,7 @@ public class EvalDecl extends FullVisitor {
 	@Override
 	public void visit(VarName varName) {
 		try {
-			Decl val = symbolTable.fndDecl(varName.name());
+			Decl val = symbolTable.fndDecl(varName.nameId());
 			if (!(val instanceof VarDecl))
 				throw new CompilerError("[Semantic error, evalDecl]: Cannot find declaration of var at " + varName);
 			else
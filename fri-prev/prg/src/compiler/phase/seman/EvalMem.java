@@ -17,6 +17,20 @@ public class EvalMem extends FullVisitor {
 		this.attrs = attrs;
 	}
 
+	/**
+	 * Returns the type of a subexpression as seen by this evaluator.
+	 */
+	Typ typ(Expr expr) {
+		return attrs.typAttr.get(expr);
+	}
+
+	/**
+	 * Sets the type of an assignment (which the type checker leaves unset).
+	 */
+	void setAssignTyp(BinExpr binExpr, Typ typ) {
+		attrs.typAttr.set(binExpr, typ);
+	}
+
 	@Override
 	public void visit(ArrType arrType) {
 		arrType.size.accept(this);
@@ -25,6 +39,10 @@ public class EvalMem extends FullVisitor {
 
 	@Override
 	public void visit(AtomExpr atomExpr) {
+		evalAtomExpr(atomExpr);
+	}
+
+	void evalAtomExpr(AtomExpr atomExpr) {
 		attrs.memAttr.set(atomExpr, false);
 	}
 
@@ -32,10 +50,14 @@ public class EvalMem extends FullVisitor {
 	public void visit(BinExpr binExpr) {
 		binExpr.fstExpr.accept(this);
 		binExpr.sndExpr.accept(this);
-		Typ t1 = attrs.typAttr.get(binExpr.fstExpr);
+		evalBinExpr(binExpr);
+	}
+
+	void evalBinExpr(BinExpr binExpr) {
+		Typ t1 = typ(binExpr.fstExpr);
 		if(t1 instanceof TypName && !((TypName) t1).isCircular())
 			t1 = t1.actualTyp();
-		Typ t2 = attrs.typAttr.get(binExpr.sndExpr);
+		Typ t2 = typ(binExpr.sndExpr);
 		if(t2 instanceof TypName && !((TypName) t2).isCircular())
 			t2 = t2.actualTyp();
 		if(t2 instanceof FunTyp) {
@@ -50,7 +72,7 @@ public class EvalMem extends FullVisitor {
 		}
 		switch (binExpr.oper) {
 			case ASSIGN:
-				boolean mem = attrs.memAttr.get(binExpr.fstExpr);
+				boolean mem = attrs.memAttr.getBoolean(binExpr.fstExpr);
 				if(mem) {
 					if (!(t1 instanceof BooleanTyp ||  t1 instanceof IntegerTyp ||
 							t1 instanceof CharTyp || t1 instanceof StringTyp || t1 instanceof PtrTyp)) {
@@ -64,7 +86,7 @@ public class EvalMem extends FullVisitor {
 						throw new CompilerError("[Semantic error, memEval] Cannot assign at " + binExpr.sndExpr);
 					}
 					attrs.memAttr.set(binExpr, false);
-					attrs.typAttr.set(binExpr, new VoidTyp());
+					setAssignTyp(binExpr, TypFactory.voidTyp);
 				} else {
 					throw new CompilerError("[Semantic error, memEval] Cannot assign at " + binExpr);
 				}
@@ -92,6 +114,10 @@ public class EvalMem extends FullVisitor {
 	public void visit(CastExpr castExpr) {
 		castExpr.type.accept(this);
 		castExpr.expr.accept(this);
+		evalCastExpr(castExpr);
+	}
+
+	void evalCastExpr(CastExpr castExpr) {
 		attrs.memAttr.set(castExpr, false);
 	}
 
@@ -102,6 +128,10 @@ public class EvalMem extends FullVisitor {
 
 	@Override
 	public void visit(CompName compName) {
+		evalCompName(compName);
+	}
+
+	void evalCompName(CompName compName) {
 		attrs.memAttr.set(compName, false);
 	}
 
@@ -117,6 +147,10 @@ public class EvalMem extends FullVisitor {
 //			exp = attrs.typAttr.get(exprs.expr(e));
 		}
 //		attrs.typAttr.set(exprs, exp);
+		evalExprs(exprs);
+	}
+
+	void evalExprs(Exprs exprs) {
 		attrs.memAttr.set(exprs, false);
 	}
 
@@ -130,6 +164,10 @@ public class EvalMem extends FullVisitor {
 		forExpr.loBound.accept(this);
 		forExpr.hiBound.accept(this);
 		forExpr.body.accept(this);
+		evalForExpr(forExpr);
+	}
+
+	void evalForExpr(ForExpr forExpr) {
 		attrs.memAttr.set(forExpr, false);
 	}
 
@@ -137,6 +175,10 @@ public class EvalMem extends FullVisitor {
 	public void visit(FunCall funCall) {
 		for (int a = 0; a < funCall.numArgs(); a++)
 			funCall.arg(a).accept(this);
+		evalFunCall(funCall);
+	}
+
+	void evalFunCall(FunCall funCall) {
 		attrs.memAttr.set(funCall, false);
 	}
 
@@ -160,6 +202,10 @@ public class EvalMem extends FullVisitor {
 		ifExpr.cond.accept(this);
 		ifExpr.thenExpr.accept(this);
 		ifExpr.elseExpr.accept(this);
+		evalIfExpr(ifExpr);
+	}
+
+	void evalIfExpr(IfExpr ifExpr) {
 		attrs.memAttr.set(ifExpr, false);
 	}
 
@@ -171,6 +217,10 @@ public class EvalMem extends FullVisitor {
 	@Override
 	public void visit(Program program) {
 		program.expr.accept(this);
+		evalProgram(program);
+	}
+
+	void evalProgram(Program program) {
 		attrs.memAttr.set(program, false);
 	}
 
@@ -201,15 +251,19 @@ public class EvalMem extends FullVisitor {
 	@Override
 	public void visit(UnExpr unExpr) {
 		unExpr.subExpr.accept(this);
+		evalUnExpr(unExpr);
+	}
+
+	void evalUnExpr(UnExpr unExpr) {
 		Typ type = attrs.typAttr.get(unExpr);
 		if(type instanceof TypName && !((TypName)type).isCircular())
 			type = type.actualTyp();
-		Typ typeSub = attrs.typAttr.get(unExpr.subExpr);
+		Typ typeSub = typ(unExpr.subExpr);
 		if(typeSub instanceof TypName && !((TypName)typeSub).isCircular())
 			typeSub = typeSub.actualTyp();
 		switch (unExpr.oper) {
 			case MEM:
-				if(!(type instanceof PtrTyp && attrs.memAttr.get(unExpr.subExpr))) {
+				if(!(type instanceof PtrTyp && attrs.memAttr.getBoolean(unExpr.subExpr))) {
 					throw new CompilerError("[Semantic error, memEval] Cannot address this!!" + unExpr);
 				}
 				attrs.memAttr.set(unExpr, false);
@@ -235,6 +289,10 @@ public class EvalMem extends FullVisitor {
 
 	@Override
 	public void visit(VarName varName) {
+		evalVarName(varName);
+	}
+
+	void evalVarName(VarName varName) {
 		if(attrs.typAttr.get(varName) != null)
 			attrs.memAttr.set(varName, true);
 		else
@@ -246,14 +304,22 @@ public class EvalMem extends FullVisitor {
 		whereExpr.expr.accept(this);
 		for (int d = 0; d < whereExpr.numDecls(); d++)
 			whereExpr.decl(d).accept(this);
-		attrs.memAttr.set(whereExpr, false);
+		evalWhereExpr(whereExpr);
 //		attrs.typAttr.set(whereExpr, attrs.typAttr.get(whereExpr.expr).actualTyp());
 	}
 
+	void evalWhereExpr(WhereExpr whereExpr) {
+		attrs.memAttr.set(whereExpr, false);
+	}
+
 	@Override
 	public void visit(WhileExpr whileExpr) {
 		whileExpr.cond.accept(this);
 		whileExpr.body.accept(this);
+		evalWhileExpr(whileExpr);
+	}
+
+	void evalWhileExpr(WhileExpr whileExpr) {
 		attrs.memAttr.set(whileExpr, false);
 	}
 
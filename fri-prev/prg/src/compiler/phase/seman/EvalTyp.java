@@ -26,6 +26,11 @@ public class EvalTyp extends FullVisitor {
     private RecTyp recUse;
     private int turn;
 
+    /**
+     * The factory of canonical types.
+     */
+    private final TypFactory typs = new TypFactory();
+
     public EvalTyp(Attributes attrs) {
         this.attrs = attrs;
         this.recNow = null;
@@ -42,12 +47,9 @@ public class EvalTyp extends FullVisitor {
         if (turn != 1) return;
         arrType.size.accept(this);
         arrType.elemType.accept(this);
-        long size;
-        try {
-            size = attrs.valueAttr.get(arrType.size);
-        } catch (NullPointerException err) {
+        if (!attrs.valueAttr.isSet(arrType.size))
             throw new CompilerError("[Semantic Error, EvalType] Array size not constant at" + arrType.size);
-        }
+        long size = attrs.valueAttr.getLong(arrType.size);
         Typ type;
         try {
             type = attrs.typAttr.get(arrType.elemType);
@@ -56,29 +58,29 @@ public class EvalTyp extends FullVisitor {
         }
         if(size < 1)
             throw new CompilerError("[Semantic Error, EvalType] Array size invalid at" + arrType);
-        attrs.typAttr.set(arrType, new ArrTyp(size, type));
+        attrs.typAttr.set(arrType, typs.arrTyp(size, type));
     }
 
     @Override
     public void visit(AtomExpr atomExpr) {
         switch (atomExpr.type) {
             case INTEGER:
-                attrs.typAttr.set(atomExpr, new IntegerTyp());
+                attrs.typAttr.set(atomExpr, TypFactory.integerTyp);
                 break;
             case BOOLEAN:
-                attrs.typAttr.set(atomExpr, new BooleanTyp());
+                attrs.typAttr.set(atomExpr, TypFactory.booleanTyp);
                 break;
             case CHAR:
-                attrs.typAttr.set(atomExpr, new CharTyp());
+                attrs.typAttr.set(atomExpr, TypFactory.charTyp);
                 break;
             case STRING:
-                attrs.typAttr.set(atomExpr, new StringTyp());
+                attrs.typAttr.set(atomExpr, TypFactory.stringTyp);
                 break;
             case PTR:
-                attrs.typAttr.set(atomExpr, new PtrTyp(new VoidTyp()));
+                attrs.typAttr.set(atomExpr, typs.ptrTyp(TypFactory.voidTyp));
                 break;
             case VOID:
-                attrs.typAttr.set(atomExpr, new VoidTyp());
+                attrs.typAttr.set(atomExpr, TypFactory.voidTyp);
                 break;
         }
     }
@@ -87,19 +89,19 @@ public class EvalTyp extends FullVisitor {
     public void visit(AtomType atomType) {
         switch (atomType.type) {
             case INTEGER:
-                attrs.typAttr.set(atomType, new IntegerTyp());
+                attrs.typAttr.set(atomType, TypFactory.integerTyp);
                 break;
             case BOOLEAN:
-                attrs.typAttr.set(atomType, new BooleanTyp());
+                attrs.typAttr.set(atomType, TypFactory.booleanTyp);
                 break;
             case CHAR:
-                attrs.typAttr.set(atomType, new CharTyp());
+                attrs.typAttr.set(atomType, TypFactory.charTyp);
                 break;
             case STRING:
-                attrs.typAttr.set(atomType, new StringTyp());
+                attrs.typAttr.set(atomType, TypFactory.stringTyp);
                 break;
             case VOID:
-                attrs.typAttr.set(atomType, new VoidTyp());
+                attrs.typAttr.set(atomType, TypFactory.voidTyp);
                 break;
         }
     }
@@ -164,27 +166,27 @@ public class EvalTyp extends FullVisitor {
         if(fstAct instanceof IntegerTyp && sndAct instanceof IntegerTyp) {
             switch (binExpr.oper) {
                 case ADD: case SUB: case MUL: case MOD: case DIV:
-                    attrs.typAttr.set(binExpr, new IntegerTyp());
+                    attrs.typAttr.set(binExpr, TypFactory.integerTyp);
                     break;
                 case EQU: case NEQ: case LTH: case GTH: case GEQ: case LEQ:
-                    attrs.typAttr.set(binExpr, new BooleanTyp());
+                    attrs.typAttr.set(binExpr, TypFactory.booleanTyp);
                     break;
             }
         } else if(fstAct instanceof BooleanTyp && sndAct instanceof BooleanTyp) {
             switch (binExpr.oper) {
                 case AND: case OR:
-                    attrs.typAttr.set(binExpr, new BooleanTyp());
+                    attrs.typAttr.set(binExpr, TypFactory.booleanTyp);
                     break;
                 case EQU: case NEQ: case LTH: case GTH: case GEQ: case LEQ:
-                    attrs.typAttr.set(binExpr, new BooleanTyp());
+                    attrs.typAttr.set(binExpr, TypFactory.booleanTyp);
                     break;
             }
         } else if(fstAct instanceof CharTyp && sndAct instanceof CharTyp
                 //|| fstAct instanceof StringTyp && sndAct instanceof StringTyp
-                    || fstAct instanceof PtrTyp && sndAct instanceof PtrTyp && fstAct.isStructEquivTo(sndAct)) {
+                    || fstAct instanceof PtrTyp && sndAct instanceof PtrTyp && Typ.equiv(fstAct, sndAct)) {
             switch (binExpr.oper) {
                 case EQU: case NEQ: case LTH: case GTH: case GEQ: case LEQ:
-                    attrs.typAttr.set(binExpr, new BooleanTyp());
+                    attrs.typAttr.set(binExpr, TypFactory.booleanTyp);
                     break;
             }
         } else if(binExpr.oper == BinExpr.Oper.ASSIGN) {
@@ -220,7 +222,7 @@ public class EvalTyp extends FullVisitor {
     public void visit(CompDecl compDecl) {
         if (turn != 1) return;
         try {
-            symbolTable.insDecl(this.recNow.toString(), compDecl.name, compDecl);
+            symbolTable.insDecl(this.recNow.toString(), compDecl.nameId, compDecl);
         } catch (CannotInsNameDecl err) {
             throw new CompilerError("[Semantic error, evalDecl]: Cannot insert new declaration of component at " + compDecl);
         }
@@ -231,7 +233,7 @@ public class EvalTyp extends FullVisitor {
     @Override
     public void visit(CompName compName) {
         try {
-            Decl dec = symbolTable.fndDecl(recUse.nameSpace, compName.name());
+            Decl dec = symbolTable.fndDecl(recUse.nameSpace, compName.nameId());
             attrs.declAttr.set(compName, dec);
             Typ type = attrs.typAttr.get(dec);
             attrs.typAttr.set(compName, type);
@@ -250,7 +252,7 @@ public class EvalTyp extends FullVisitor {
         if(exp != null) // very unsafe!!
             attrs.typAttr.set(exprs, exp);
         else
-            attrs.typAttr.set(exprs, new VoidTyp());
+            attrs.typAttr.set(exprs, TypFactory.voidTyp);
     }
 
     @Override
@@ -273,11 +275,11 @@ public class EvalTyp extends FullVisitor {
         if( (hi instanceof TypName) && !((TypName)hi).isCircular())
             hi = hi.actualTyp();
         if( body == null)
-            body = new VoidTyp();
+            body = TypFactory.voidTyp;
         if(!(var instanceof IntegerTyp) || !(lo instanceof IntegerTyp) || !(hi instanceof IntegerTyp) || body == null) {
             throw new CompilerError("[Semantic Error, EvalTyp, for] Type missmatch in for loop" + forExpr);
         }
-        attrs.typAttr.set(forExpr, new VoidTyp());
+        attrs.typAttr.set(forExpr, TypFactory.voidTyp);
     }
 
     @Override
@@ -299,8 +301,8 @@ public class EvalTyp extends FullVisitor {
                 typ = ((FunTyp) typ).resultTyp;
             params.add(typ);
         }
-        FunTyp call = new FunTyp(params, funTyp.resultTyp);
-        if(funTyp.isStructEquivTo(call))
+        FunTyp call = typs.funTyp(params, funTyp.resultTyp);
+        if(Typ.equiv(funTyp, call))
             attrs.typAttr.set(funCall, call.resultTyp);
         else
             throw new CompilerError("[Semantic Error, EvalTyp, funcall] Type missmatch at function call " + funCall);
@@ -316,7 +318,7 @@ public class EvalTyp extends FullVisitor {
                 funDecl.par(p).accept(this);
                 params.add(attrs.typAttr.get(funDecl.par(p)));
             }
-            attrs.typAttr.set(funDecl, new FunTyp(params, type));
+            attrs.typAttr.set(funDecl, typs.funTyp(params, type));
         } else if(turn == 2) {
             for (int p = 0; p < funDecl.numPars(); p++) {
                 funDecl.par(p).accept(this);
@@ -340,7 +342,7 @@ public class EvalTyp extends FullVisitor {
                 funDef.par(p).accept(this);
                 params.add(attrs.typAttr.get(funDef.par(p)));
             }
-            attrs.typAttr.set(funDef, new FunTyp(params, type));
+            attrs.typAttr.set(funDef, typs.funTyp(params, type));
         } else if(turn == 2) {
             for (int p = 0; p < funDef.numPars(); p++) {
                 funDef.par(p).accept(this);
@@ -357,7 +359,7 @@ public class EvalTyp extends FullVisitor {
                 funRet = funRet.actualTyp();
             Typ bodyTyp = attrs.typAttr.get(funDef.body);
             if(bodyTyp == null)
-                bodyTyp = new VoidTyp();
+                bodyTyp = TypFactory.voidTyp;
             if(bodyTyp instanceof TypName && !((TypName) bodyTyp).isCircular())
                 bodyTyp = bodyTyp.actualTyp();
             if(!bodyTyp.getClass().equals(funRet.getClass()))
@@ -383,7 +385,7 @@ public class EvalTyp extends FullVisitor {
         if(cond instanceof FunTyp)
             then = ((FunTyp) then).resultTyp;
         if(then == null) // assingment
-            then = new VoidTyp();
+            then = TypFactory.voidTyp;
 
         Typ elseExpr = attrs.typAttr.get(ifExpr.elseExpr);
         if(elseExpr instanceof TypName && !((TypName) elseExpr).isCircular())
@@ -391,7 +393,7 @@ public class EvalTyp extends FullVisitor {
         if(cond instanceof FunTyp)
             elseExpr = ((FunTyp) elseExpr).resultTyp;
         if(elseExpr == null) // assingment
-            elseExpr = new VoidTyp();
+            elseExpr = TypFactory.voidTyp;
 
         if(cond instanceof TypName && !((TypName) cond).isCircular())
             cond = cond.actualTyp();
@@ -400,7 +402,7 @@ public class EvalTyp extends FullVisitor {
 
         if(!(cond instanceof BooleanTyp) || then == null || elseExpr == null)
             throw new CompilerError("[Semantic Error, EvalTyp, if] Type missmatch at if expression " + ifExpr);
-        attrs.typAttr.set(ifExpr, new VoidTyp());
+        attrs.typAttr.set(ifExpr, TypFactory.voidTyp);
     }
 
     @Override
@@ -429,7 +431,7 @@ public class EvalTyp extends FullVisitor {
         if(exprTyp != null)
             attrs.typAttr.set(program, exprTyp);
         else
-            attrs.typAttr.set(program, new VoidTyp());
+            attrs.typAttr.set(program, TypFactory.voidTyp);
     }
 
     @Override
@@ -441,7 +443,7 @@ public class EvalTyp extends FullVisitor {
         } catch (NullPointerException err) {
             throw new CompilerError("[Semantic Error, EvalType] Ptr type not defined at" + ptrType);
         }
-        attrs.typAttr.set(ptrType, new PtrTyp(type));
+        attrs.typAttr.set(ptrType, typs.ptrTyp(type));
     }
 
     @Override
@@ -455,7 +457,7 @@ public class EvalTyp extends FullVisitor {
             recType.comp(c).accept(this);
             compTyps.add(attrs.typAttr.get(recType.comp(c)));
         }
-        attrs.typAttr.set(recType, new RecTyp(recType.toString(), compTyps));
+        attrs.typAttr.set(recType, typs.recTyp(recType.toString(), compTyps));
         this.recNow = tmp;
     }
 
@@ -502,7 +504,7 @@ public class EvalTyp extends FullVisitor {
         if(type instanceof FunTyp)
             type = ((FunTyp) type).resultTyp;
         if(type == null)
-            type = new VoidTyp();
+            type = TypFactory.voidTyp;
         switch (unExpr.oper) {
             case ADD: case SUB:
                 if(type instanceof IntegerTyp)
@@ -517,7 +519,7 @@ public class EvalTyp extends FullVisitor {
                     throw new CompilerError("[Semantic Error, EvalType] Inconsistent types at " + unExpr);
                 break;
             case MEM:
-                attrs.typAttr.set(unExpr, new PtrTyp(attrs.typAttr.get(unExpr.subExpr)));
+                attrs.typAttr.set(unExpr, typs.ptrTyp(attrs.typAttr.get(unExpr.subExpr)));
                 break;
             case VAL:
                 if(type instanceof PtrTyp)
@@ -558,7 +560,7 @@ public class EvalTyp extends FullVisitor {
                 act = act.actualTyp();*/
             attrs.typAttr.set(whereExpr, act);
         } else {
-            attrs.typAttr.set(whereExpr, new VoidTyp());
+            attrs.typAttr.set(whereExpr, TypFactory.voidTyp);
         }
     }
 
@@ -573,10 +575,10 @@ public class EvalTyp extends FullVisitor {
         if( (cond instanceof TypName) && !((TypName)cond).isCircular())
             cond = cond.actualTyp();
         if(body == null)
-            body = new VoidTyp();
+            body = TypFactory.voidTyp;
 
         if(!(cond instanceof BooleanTyp) || body == null)
             throw new CompilerError("[Semantic Error, EvalTyp, while] Type missmatch at while loop " + whileExpr);
-        attrs.typAttr.set(whileExpr, new VoidTyp());
+        attrs.typAttr.set(whileExpr, TypFactory.voidTyp);
     }
 }
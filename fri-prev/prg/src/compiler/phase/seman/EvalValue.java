@@ -35,6 +35,27 @@ public class EvalValue extends FullVisitor {
 
 	@Override
 	public void visit(AtomExpr atomExpr) {
+		evalAtomExpr(atomExpr);
+	}
+
+	@Override
+	public void visit(BinExpr binExpr) {
+		binExpr.fstExpr.accept(this);
+		binExpr.sndExpr.accept(this);
+		evalBinExpr(binExpr);
+	}
+
+	@Override
+	public void visit(UnExpr unExpr) {
+		enterUnExpr(unExpr);
+		unExpr.subExpr.accept(this);
+		evalUnExpr(unExpr);
+	}
+
+	/**
+	 * Computes the value of an atomic expression.
+	 */
+	void evalAtomExpr(AtomExpr atomExpr) {
 		if(atomExpr.type.equals(AtomExpr.AtomTypes.INTEGER)) {
 			long atomExprVal;
 			try {
@@ -46,16 +67,17 @@ public class EvalValue extends FullVisitor {
 		}
 	}
 
-	@Override
-	public void visit(BinExpr binExpr) {
-		binExpr.fstExpr.accept(this);
-		binExpr.sndExpr.accept(this);
+	/**
+	 * Computes the value of a binary expression once the values of its
+	 * subexpressions have been computed.
+	 */
+	void evalBinExpr(BinExpr binExpr) {
 		long fVal, sVal, val = 0;
 		boolean can = true;
-		try { fVal = attrs.valueAttr.get(binExpr.fstExpr); }
-		catch (NullPointerException err) { can = false; return; }
-		try { sVal = attrs.valueAttr.get(binExpr.sndExpr); }
-		catch (NullPointerException err) { can = false; return; }
+		if (!attrs.valueAttr.isSet(binExpr.fstExpr) || !attrs.valueAttr.isSet(binExpr.sndExpr))
+			return;
+		fVal = attrs.valueAttr.getLong(binExpr.fstExpr);
+		sVal = attrs.valueAttr.getLong(binExpr.sndExpr);
 
 		if(binExpr.oper.equals(BinExpr.Oper.ADD)) {
 			val = fVal + sVal;
@@ -76,22 +98,29 @@ public class EvalValue extends FullVisitor {
 			attrs.valueAttr.set(binExpr, val);
 	}
 
-	@Override
-	public void visit(UnExpr unExpr) {
+	/**
+	 * Prepares for computing the value of a unary expression before its
+	 * subexpression is visited.
+	 */
+	void enterUnExpr(UnExpr unExpr) {
 		if(unExpr.oper.equals(UnExpr.Oper.ADD)) {
 			unary = "+";
 		}
 		if(unExpr.oper.equals(UnExpr.Oper.SUB)) {
 			unary = "-";
 		}
-		unExpr.subExpr.accept(this);
-		long val;
-		try {
-			val = attrs.valueAttr.get(unExpr.subExpr);
-		} catch (NullPointerException err) {
+	}
+
+	/**
+	 * Computes the value of a unary expression once the value of its
+	 * subexpression has been computed.
+	 */
+	void evalUnExpr(UnExpr unExpr) {
+		if (!attrs.valueAttr.isSet(unExpr.subExpr)) {
 			unary = "";
 			return;
 		}
+		long val = attrs.valueAttr.getLong(unExpr.subExpr);
 		if(unExpr.oper.equals(UnExpr.Oper.ADD)) {
 			attrs.valueAttr.set(unExpr, val);
 		}
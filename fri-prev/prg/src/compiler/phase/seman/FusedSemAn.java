@@ -0,0 +1,320 @@
+package compiler.phase.seman;
+
+import java.util.*;
+
+import compiler.*;
+import compiler.common.report.*;
+import compiler.data.ast.*;
+import compiler.data.ast.attr.*;
+import compiler.data.typ.*;
+
+/**
+ * Semantic analysis in two traversals of the abstract syntax tree.
+ *
+ * <p>
+ * Computes the same attributes as {@link EvalValue}, {@link EvalDecl},
+ * {@link EvalTyp} and {@link EvalMem} run one after another. The first
+ * traversal resolves names and computes the values of constant expressions
+ * (values depend on nothing but the subexpressions). The second traversal
+ * checks types and computes memory flags: the flag of an expression depends
+ * only on the types and flags of the expression and its subexpressions, so it
+ * is computed as soon as the type checker leaves the expression. Name
+ * resolution and type checking are not fused since types of expressions may
+ * depend on declarations that appear later in the same <code>where</code>.
+ * </p>
+ *
+ * <p>
+ * Types of assignments are set by {@link EvalMem} and stay unset while the
+ * type checker runs; they are therefore collected during the second traversal
+ * and set once it finishes. Array and record types inside expressions are
+ * skipped by {@link EvalTyp}; such subtrees are revisited by a plain
+ * {@link EvalMem}.
+ * </p>
+ */
+public class FusedSemAn {
+
+	private final Attributes attrs;
+
+	/** The number of subtrees revisited by a plain {@link EvalMem}. */
+	private int numFallbacks;
+
+	/** Assignments whose types have not been set yet. */
+	private final LinkedList<BinExpr> assigns = new LinkedList<BinExpr>();
+
+	/** The types of assignments that have not been set yet. */
+	private final Attribute<BinExpr, Typ> assignTyps = new Attribute<BinExpr, Typ>();
+
+	public FusedSemAn(Attributes attrs) {
+		this.attrs = attrs;
+	}
+
+	/**
+	 * Returns the number of traversals of (parts of) the AST made so far.
+	 */
+	public int numTraversals() {
+		return 2 + numFallbacks;
+	}
+
+	/**
+	 * Performs semantic analysis of the program.
+	 */
+	public void visit(Program program) {
+		(new DeclValue()).visit(program);
+		(new TypMem()).visit(program);
+		for (BinExpr assign : assigns)
+			attrs.typAttr.set(assign, assignTyps.get(assign));
+		assigns.clear();
+	}
+
+	/**
+	 * Performs semantic analysis of the program twice, once by the four
+	 * separate evaluators and once fused, and checks that both compute the
+	 * same attributes. The attributes computed by the fused analysis are kept.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 */
+	public static void check(Task task) {
+		Attributes splitAttrs = new Attributes();
+		long splitTime = System.nanoTime();
+		(new EvalValue(splitAttrs)).visit(task.prgAST);
+		(new EvalDecl(splitAttrs)).visit(task.prgAST);
+		(new EvalTyp(splitAttrs)).visit(task.prgAST);
+		(new EvalMem(splitAttrs)).visit(task.prgAST);
+		splitTime = System.nanoTime() - splitTime;
+
+		FusedSemAn fused = new FusedSemAn(task.prgAttrs);
+		long fusedTime = System.nanoTime();
+		fused.visit(task.prgAST);
+		fusedTime = System.nanoTime() - fusedTime;
+
+		check("valueAttr", splitAttrs.valueAttr.firstDifference(task.prgAttrs.valueAttr, Objects::equals));
+		check("declAttr", splitAttrs.declAttr.firstDifference(task.prgAttrs.declAttr, (fst, snd) -> fst == snd));
+		check("typAttr", splitAttrs.typAttr.firstDifference(task.prgAttrs.typAttr, FusedSemAn::sameTyp));
+		check("memAttr", splitAttrs.memAttr.firstDifference(task.prgAttrs.memAttr, Objects::equals));
+
+		Report.info(String.format("Semantic analysis: %d traversals fused (%.3f ms), 4 traversals split (%.3f ms), %.3f ms saved.",
+				fused.numTraversals(), fusedTime / 1e6, splitTime / 1e6, (splitTime - fusedTime) / 1e6));
+	}
+
+	private static void check(String attrName, int id) {
+		if (id != -1)
+			Report.warning("[Semantic check] Fused and split analysis differ in " + attrName + " of AST node #" + id + ".");
+	}
+
+	/**
+	 * Checks whether two types have been computed in the same way.
+	 */
+	private static boolean sameTyp(Typ fstTyp, Typ sndTyp) {
+		if (fstTyp == sndTyp)
+			return true;
+		if (fstTyp == null || sndTyp == null || fstTyp.getClass() != sndTyp.getClass())
+			return false;
+		if (fstTyp instanceof TypName)
+			return ((TypName) fstTyp).name.equals(((TypName) sndTyp).name);
+		if (fstTyp instanceof PtrTyp)
+			return sameTyp(((PtrTyp) fstTyp).baseTyp, ((PtrTyp) sndTyp).baseTyp);
+		if (fstTyp instanceof ArrTyp)
+			return ((ArrTyp) fstTyp).size == ((ArrTyp) sndTyp).size
+					&& sameTyp(((ArrTyp) fstTyp).elemTyp, ((ArrTyp) sndTyp).elemTyp);
+		if (fstTyp instanceof RecTyp) {
+			RecTyp fstRec = (RecTyp) fstTyp;
+			RecTyp sndRec = (RecTyp) sndTyp;
+			if (!fstRec.nameSpace.equals(sndRec.nameSpace) || fstRec.numComps() != sndRec.numComps())
+				return false;
+			for (int c = 0; c < fstRec.numComps(); c++)
+				if (!sameTyp(fstRec.compTyp(c), sndRec.compTyp(c)))
+					return false;
+			return true;
+		}
+		if (fstTyp instanceof FunTyp) {
+			FunTyp fstFun = (FunTyp) fstTyp;
+			FunTyp sndFun = (FunTyp) sndTyp;
+			if (fstFun.numPars() != sndFun.numPars() || !sameTyp(fstFun.resultTyp, sndFun.resultTyp))
+				return false;
+			for (int p = 0; p < fstFun.numPars(); p++)
+				if (!sameTyp(fstFun.parTyp(p), sndFun.parTyp(p)))
+					return false;
+			return true;
+		}
+		return true;
+	}
+
+	/**
+	 * The first traversal: name resolution and values of constant expressions.
+	 */
+	private class DeclValue extends EvalDecl {
+
+		private final EvalValue value = new EvalValue(attrs);
+
+		/** Whether values are computed (types in declarations are visited twice). */
+		private boolean values = true;
+
+		DeclValue() {
+			super(attrs);
+		}
+
+		@Override
+		public void visit(AtomExpr atomExpr) {
+			super.visit(atomExpr);
+			if (values)
+				value.evalAtomExpr(atomExpr);
+		}
+
+		@Override
+		public void visit(BinExpr binExpr) {
+			super.visit(binExpr);
+			if (values)
+				value.evalBinExpr(binExpr);
+		}
+
+		@Override
+		public void visit(UnExpr unExpr) {
+			if (values)
+				value.enterUnExpr(unExpr);
+			super.visit(unExpr);
+			if (values)
+				value.evalUnExpr(unExpr);
+		}
+
+		@Override
+		public void visit(TypeDecl typDecl) {
+			if (prototyping) {
+				super.visit(typDecl);
+				return;
+			}
+			boolean prevValues = values;
+			values = false;
+			super.visit(typDecl);
+			values = prevValues;
+		}
+
+	}
+
+	/**
+	 * The second traversal: type checking and memory flags.
+	 */
+	private class TypMem extends EvalTyp {
+
+		private final EvalMem mem = new EvalMem(attrs) {
+
+			@Override
+			Typ typ(Expr expr) {
+				if ((expr instanceof BinExpr) && (assignTyps.get((BinExpr) expr) != null))
+					return assignTyps.get((BinExpr) expr);
+				return super.typ(expr);
+			}
+
+			@Override
+			void setAssignTyp(BinExpr binExpr, Typ typ) {
+				if (assignTyps.get(binExpr) != null)
+					return;
+				assigns.add(binExpr);
+				assignTyps.set(binExpr, typ);
+			}
+
+		};
+
+		TypMem() {
+			super(attrs);
+		}
+
+		@Override
+		public void visit(ArrType arrType) {
+			super.visit(arrType);
+			if (attrs.typAttr.get(arrType) == null) {
+				arrType.accept(new EvalMem(attrs));
+				numFallbacks++;
+			}
+		}
+
+		@Override
+		public void visit(RecType recType) {
+			super.visit(recType);
+			if (attrs.typAttr.get(recType) == null) {
+				recType.accept(new EvalMem(attrs));
+				numFallbacks++;
+			}
+		}
+
+		@Override
+		public void visit(AtomExpr atomExpr) {
+			super.visit(atomExpr);
+			mem.evalAtomExpr(atomExpr);
+		}
+
+		@Override
+		public void visit(BinExpr binExpr) {
+			super.visit(binExpr);
+			mem.evalBinExpr(binExpr);
+		}
+
+		@Override
+		public void visit(CastExpr castExpr) {
+			super.visit(castExpr);
+			mem.evalCastExpr(castExpr);
+		}
+
+		@Override
+		public void visit(CompName compName) {
+			super.visit(compName);
+			mem.evalCompName(compName);
+		}
+
+		@Override
+		public void visit(Exprs exprs) {
+			super.visit(exprs);
+			mem.evalExprs(exprs);
+		}
+
+		@Override
+		public void visit(ForExpr forExpr) {
+			super.visit(forExpr);
+			mem.evalForExpr(forExpr);
+		}
+
+		@Override
+		public void visit(FunCall funCall) {
+			super.visit(funCall);
+			mem.evalFunCall(funCall);
+		}
+
+		@Override
+		public void visit(IfExpr ifExpr) {
+			super.visit(ifExpr);
+			mem.evalIfExpr(ifExpr);
+		}
+
+		@Override
+		public void visit(Program program) {
+			super.visit(program);
+			mem.evalProgram(program);
+		}
+
+		@Override
+		public void visit(UnExpr unExpr) {
+			super.visit(unExpr);
+			mem.evalUnExpr(unExpr);
+		}
+
+		@Override
+		public void visit(VarName varName) {
+			super.visit(varName);
+			mem.evalVarName(varName);
+		}
+
+		@Override
+		public void visit(WhereExpr whereExpr) {
+			super.visit(whereExpr);
+			mem.evalWhereExpr(whereExpr);
+		}
+
+		@Override
+		public void visit(WhileExpr whileExpr) {
+			super.visit(whileExpr);
+			mem.evalWhileExpr(whileExpr);
+		}
+
+	}
+
+}
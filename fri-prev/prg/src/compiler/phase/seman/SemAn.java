@@ -1,6 +1,7 @@
 package compiler.phase.seman;
 
 import compiler.*;
+import compiler.data.typ.*;
 import compiler.phase.*;
 
 /**
@@ -21,6 +22,7 @@ public class SemAn extends Phase {
 	 */
 	public SemAn(Task task) {
 		super(task, "seman");
+		TypRelations.clear();
 	}
 
 	/**
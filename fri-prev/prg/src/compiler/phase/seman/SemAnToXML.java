@@ -76,12 +76,12 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(atomExpr);
 		logger.begElement("seman");
+		if (attrs.valueAttr.isSet(atomExpr))
+			logger.addAttribute("value", Long.toString(attrs.valueAttr.getLong(atomExpr)));
+		if (attrs.memAttr.getBoolean(atomExpr))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(atomExpr) != null)
 			attrs.typAttr.get(atomExpr).log(logger);
-		if (attrs.valueAttr.get(atomExpr) != null)
-			logger.addAttribute("value", attrs.valueAttr.get(atomExpr).toString());
-		if (attrs.memAttr.get(atomExpr))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -102,12 +102,12 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(binExpr);
 		logger.begElement("seman");
+		if (attrs.valueAttr.isSet(binExpr))
+			logger.addAttribute("value", Long.toString(attrs.valueAttr.getLong(binExpr)));
+		if (attrs.memAttr.getBoolean(binExpr))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(binExpr) != null)
 			attrs.typAttr.get(binExpr).log(logger);
-		if (attrs.valueAttr.get(binExpr) != null)
-			logger.addAttribute("value", attrs.valueAttr.get(binExpr).toString());
-		if (attrs.memAttr.get(binExpr))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -120,7 +120,7 @@ public class SemAnToXML extends AbstrToXML {
 		if (attrs.typAttr.get(castExpr) != null)
 			attrs.typAttr.get(castExpr).log(logger);
 		logger.endElement();
-		if (attrs.memAttr.get(castExpr))
+		if (attrs.memAttr.getBoolean(castExpr))
 			logger.addAttribute("mem", "true");
 		endElement();
 	}
@@ -141,8 +141,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(compName);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(compName) != null)
-			attrs.typAttr.get(compName).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(compName);
 			if (decl != null) {
@@ -151,8 +149,10 @@ public class SemAnToXML extends AbstrToXML {
 				logger.addAttribute("decl", ((Position) decl).toString());
 			}
 		}
-		if (attrs.memAttr.get(compName))
+		if (attrs.memAttr.getBoolean(compName))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(compName) != null)
+			attrs.typAttr.get(compName).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -173,10 +173,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(exprs);
 		logger.begElement("seman");
+		if (attrs.memAttr.getBoolean(exprs))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(exprs) != null)
 			attrs.typAttr.get(exprs).log(logger);
-		if (attrs.memAttr.get(exprs))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -197,10 +197,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(forExpr);
 		logger.begElement("seman");
+		if (attrs.memAttr.getBoolean(forExpr))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(forExpr) != null)
 			attrs.typAttr.get(forExpr).log(logger);
-		if (attrs.memAttr.get(forExpr))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -210,8 +210,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(funCall);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(funCall) != null)
-			attrs.typAttr.get(funCall).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(funCall);
 			if (decl != null) {
@@ -220,8 +218,10 @@ public class SemAnToXML extends AbstrToXML {
 				logger.addAttribute("decl", ((Position) decl).toString());
 			}
 		}
-		if (attrs.memAttr.get(funCall))
+		if (attrs.memAttr.getBoolean(funCall))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(funCall) != null)
+			attrs.typAttr.get(funCall).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -253,10 +253,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(ifExpr);
 		logger.begElement("seman");
+		if (attrs.memAttr.getBoolean(ifExpr))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(ifExpr) != null)
 			attrs.typAttr.get(ifExpr).log(logger);
-		if (attrs.memAttr.get(ifExpr))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -277,10 +277,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(program);
 		logger.begElement("seman");
+		if (attrs.memAttr.getBoolean(program))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(program) != null)
 			attrs.typAttr.get(program).log(logger);
-		if (attrs.memAttr.get(program))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -338,8 +338,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(typeName);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(typeName) != null)
-			attrs.typAttr.get(typeName).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(typeName);
 			if (decl != null) {
@@ -348,6 +346,8 @@ public class SemAnToXML extends AbstrToXML {
 				logger.addAttribute("decl", ((Position) decl).toString());
 			}
 		}
+		if (attrs.typAttr.get(typeName) != null)
+			attrs.typAttr.get(typeName).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -357,12 +357,12 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(unExpr);
 		logger.begElement("seman");
+		if (attrs.valueAttr.isSet(unExpr))
+			logger.addAttribute("value", Long.toString(attrs.valueAttr.getLong(unExpr)));
+		if (attrs.memAttr.getBoolean(unExpr))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(unExpr) != null)
 			attrs.typAttr.get(unExpr).log(logger);
-		if (attrs.valueAttr.get(unExpr) != null)
-			logger.addAttribute("value", attrs.valueAttr.get(unExpr).toString());
-		if (attrs.memAttr.get(unExpr))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -383,8 +383,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(varName);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(varName) != null)
-			attrs.typAttr.get(varName).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(varName);
 			if (decl != null) {
@@ -393,8 +391,10 @@ public class SemAnToXML extends AbstrToXML {
 				logger.addAttribute("decl", ((Position) decl).toString());
 			}
 		}
-		if (attrs.memAttr.get(varName))
+		if (attrs.memAttr.getBoolean(varName))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(varName) != null)
+			attrs.typAttr.get(varName).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -404,10 +404,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(whereExpr);
 		logger.begElement("seman");
+		if (attrs.memAttr.getBoolean(whereExpr))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(whereExpr) != null)
 			attrs.typAttr.get(whereExpr).log(logger);
-		if (attrs.memAttr.get(whereExpr))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
@@ -417,10 +417,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(whileExpr);
 		logger.begElement("seman");
+		if (attrs.memAttr.getBoolean(whileExpr))
+			logger.addAttribute("mem", "true");
 		if (attrs.typAttr.get(whileExpr) != null)
 			attrs.typAttr.get(whileExpr).log(logger);
-		if (attrs.memAttr.get(whileExpr))
-			logger.addAttribute("mem", "true");
 		logger.endElement();
 		endElement();
 	}
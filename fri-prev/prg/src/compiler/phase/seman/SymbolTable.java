@@ -2,6 +2,7 @@ package compiler.phase.seman;
 
 import java.util.*;
 
+import compiler.common.names.*;
 import compiler.common.report.*;
 import compiler.data.ast.*;
 
@@ -45,11 +46,18 @@ public class SymbolTable {
 	 * The initial scope is entered and the default namespace is prepared.
 	 */
 	public SymbolTable() {
-		symbolTable = new HashMap<String, LinkedList<ScopedDecl>>();
+		heads = new int[256];
+		Arrays.fill(heads, -1);
+		qualifiedIds = new HashMap<Long, Integer>();
+
+		numEntries = 0;
+		entryIds = new int[256];
+		entryScopes = new int[256];
+		entryNexts = new int[256];
+		entryDecls = new Decl[256];
 
 		scope = 0;
-		scopes = new LinkedList<LinkedList<String>>();
-		scopes.addFirst(new LinkedList<String>());
+		scopeMarks = new int[16];
 
 		namespaces = new Stack<String>();
 		namespaces.push("");
@@ -57,49 +65,89 @@ public class SymbolTable {
 
 	// Scopes.
 
+	/** The current scope. */
+	private int scope;
+
+	/**
+	 * The most recent declaration of each name, indexed by the id of the name
+	 * qualified by its namespace (see {@link #qualifiedId(String, int)
+	 * qualifiedId}), or -1 if the name is not declared.
+	 */
+	private int[] heads;
+
+	/**
+	 * The number of declarations made within all active scopes.
+	 */
+	private int numEntries;
+
 	/**
-	 * A declaration of a name at a particular scope.
+	 * The qualified ids of declared names, indexed by declarations.
 	 *
-	 * @author sliva
+	 * <p>
+	 * Declarations are numbered in the order they are made, so that the
+	 * declarations made within the current scope are always the last ones;
+	 * hence arrays {@link #entryIds}, {@link #entryScopes},
+	 * {@link #entryNexts} and {@link #entryDecls} form an undo log used for
+	 * flushing out declarations when leaving a scope.
+	 * </p>
 	 */
-	private class ScopedDecl {
+	private int[] entryIds;
 
-		/** The scope. */
-		public int scope;
+	/** The scopes of declarations, indexed by declarations. */
+	private int[] entryScopes;
 
-		/** The declaration. */
-		public Decl decl;
+	/**
+	 * The previous declarations of the same names at outer scopes, indexed by
+	 * declarations, or -1 if there is none.
+	 */
+	private int[] entryNexts;
 
-	}
+	/** The declarations, indexed by declarations. */
+	private Decl[] entryDecls;
 
-	/** The current scope. */
-	private int scope;
+	/**
+	 * The number of declarations made before each active scope was entered,
+	 * indexed by scopes.
+	 */
+	private int[] scopeMarks;
 
 	/**
-	 * The mapping of each node to its declarations at different scopes. The of
-	 * name's declarations includes all declarations at different scopes, with
-	 * the most recent declaration at the head of the list.
+	 * The ids of names qualified by namespaces other than the default one,
+	 * indexed by pairs of namespace ids and name ids.
 	 */
-	private HashMap<String, LinkedList<ScopedDecl>> symbolTable;
+	private HashMap<Long, Integer> qualifiedIds;
 
 	/**
-	 * A stack of spaces, i.e., a list of all declarations by scopes, used for
-	 * flushing out declarations when leaving a scope.
+	 * Returns the id of a name qualified by the specified namespace. Within
+	 * the default namespace, this is the id of the name itself, otherwise it is
+	 * the id of the concatenation of the namespace and the name.
 	 *
-	 * <p>
-	 * The inner list includes all names that have been declared at a particular
-	 * scope, and thus the outer list contains all names declared at different
-	 * scopes, with the most recent scope at the head of the list.
-	 * </p>
+	 * @param nameSpace
+	 *            The namespace.
+	 * @param nameId
+	 *            The id of the name.
+	 * @return The id of the qualified name.
 	 */
-	private LinkedList<LinkedList<String>> scopes;
+	private int qualifiedId(String nameSpace, int nameId) {
+		if (nameSpace.equals("#"))
+			return nameId;
+		long key = ((long) Names.id(nameSpace) << 32) | nameId;
+		Integer qualifiedId = qualifiedIds.get(key);
+		if (qualifiedId == null) {
+			qualifiedId = Names.id(nameSpace + Names.name(nameId));
+			qualifiedIds.put(key, qualifiedId);
+		}
+		return qualifiedId;
+	}
 
 	/**
 	 * Enters a new scope.
 	 */
 	public void enterScope() {
 		scope++;
-		scopes.addFirst(new LinkedList<String>());
+		if (scope == scopeMarks.length)
+			scopeMarks = Arrays.copyOf(scopeMarks, 2 * scopeMarks.length);
+		scopeMarks[scope] = numEntries;
 	}
 
 	/**
@@ -107,16 +155,53 @@ public class SymbolTable {
 	 * current scope.
 	 */
 	public void leaveScope() {
-		for (String name : scopes.peek()) {
-			LinkedList<ScopedDecl> scopedDecls = symbolTable.get(name);
-			scopedDecls.removeFirst();
-			if (scopedDecls.isEmpty())
-				symbolTable.remove(name);
+		int mark = scopeMarks[scope];
+		while (numEntries > mark) {
+			numEntries--;
+			heads[entryIds[numEntries]] = entryNexts[numEntries];
+			entryDecls[numEntries] = null;
 		}
-		scopes.removeFirst();
 		scope--;
 	}
 
+	/**
+	 * Inserts a declaration of a name within the current scope and within the
+	 * specified namespace.
+	 *
+	 * @param nameSpace
+	 *            The namespace that the declaration of the name is made within.
+	 * @param nameId
+	 *            The id of the name declared.
+	 * @param decl
+	 *            The declaration of the name.
+	 * @throws CannotInsNameDecl
+	 *             If the name cannot be declared at this scope as it has
+	 *             already been.
+	 */
+	public void insDecl(String nameSpace, int nameId, Decl decl) throws CannotInsNameDecl {
+		int qualifiedId = qualifiedId(nameSpace, nameId);
+		if (qualifiedId >= heads.length) {
+			int length = heads.length;
+			heads = Arrays.copyOf(heads, Math.max(2 * length, qualifiedId + 1));
+			Arrays.fill(heads, length, heads.length, -1);
+		}
+		int head = heads[qualifiedId];
+		if ((head != -1) && (entryScopes[head] == scope))
+			throw new CannotInsNameDecl(((Position) entryDecls[head]).toString());
+		if (numEntries == entryIds.length) {
+			entryIds = Arrays.copyOf(entryIds, 2 * numEntries);
+			entryScopes = Arrays.copyOf(entryScopes, 2 * numEntries);
+			entryNexts = Arrays.copyOf(entryNexts, 2 * numEntries);
+			entryDecls = Arrays.copyOf(entryDecls, 2 * numEntries);
+		}
+		entryIds[numEntries] = qualifiedId;
+		entryScopes[numEntries] = scope;
+		entryNexts[numEntries] = head;
+		entryDecls[numEntries] = decl;
+		heads[qualifiedId] = numEntries;
+		numEntries++;
+	}
+
 	/**
 	 * Inserts a declaration of a name within the current scope and within the
 	 * specified namespace.
@@ -132,29 +217,23 @@ public class SymbolTable {
 	 *             already been.
 	 */
 	public void insDecl(String nameSpace, String name, Decl decl) throws CannotInsNameDecl {
-		LinkedList<ScopedDecl> scopedDecls = symbolTable.get(nameSpace + name);
-		if (scopedDecls == null) {
-			scopedDecls = new LinkedList<ScopedDecl>();
-			{
-				ScopedDecl scopedDecl = new ScopedDecl();
-				scopedDecl.scope = scope;
-				scopedDecl.decl = decl;
-				scopedDecls.addFirst(scopedDecl);
-				scopes.peek().addFirst(nameSpace + name);
-			}
-			symbolTable.put(nameSpace + name, scopedDecls);
-		} else {
-			ScopedDecl scopedDecl = scopedDecls.peekFirst();
-			if (scopedDecl.scope == scope) {
-				throw new CannotInsNameDecl(((Position) scopedDecl.decl).toString());
-			} else {
-				scopedDecl = new ScopedDecl();
-				scopedDecl.scope = scope;
-				scopedDecl.decl = decl;
-				scopedDecls.addFirst(scopedDecl);
-				scopes.peek().addFirst(nameSpace + name);
-			}
-		}
+		insDecl(nameSpace, Names.id(name), decl);
+	}
+
+	/**
+	 * Inserts a declaration of a name within the current scope and within the
+	 * default namespace.
+	 *
+	 * @param nameId
+	 *            The id of the name declared.
+	 * @param decl
+	 *            The declaration of the name.
+	 * @throws CannotInsNameDecl
+	 *             If the name cannot be declared at this scope as it has
+	 *             already been.
+	 */
+	public void insDecl(int nameId, Decl decl) throws CannotInsNameDecl {
+		insDecl("#", nameId, decl);
 	}
 
 	/**
@@ -170,7 +249,28 @@ public class SymbolTable {
 	 *             already been.
 	 */
 	public void insDecl(String name, Decl decl) throws CannotInsNameDecl {
-		insDecl("#", name, decl);
+		insDecl("#", Names.id(name), decl);
+	}
+
+	/**
+	 * Returns the declaration of a name within all active scopes and within a
+	 * specified namespace.
+	 *
+	 * @param nameSpace
+	 *            The namespace that the declaration of the name is made within.
+	 * @param nameId
+	 *            The id of the name the declaration is being looked for.
+	 * @return The declaration of the name.
+	 * @throws CannotFndNameDecl
+	 *             If the declaration is not found.
+	 */
+	public Decl fndDecl(String nameSpace, int nameId) throws CannotFndNameDecl {
+		int qualifiedId = qualifiedId(nameSpace, nameId);
+		int head = qualifiedId < heads.length ? heads[qualifiedId] : -1;
+		if (head == -1)
+			throw new CannotFndNameDecl(nameSpace + Names.name(nameId));
+		else
+			return entryDecls[head];
 	}
 
 	/**
@@ -186,11 +286,21 @@ public class SymbolTable {
 	 *             If the declaration is not found.
 	 */
 	public Decl fndDecl(String nameSpace, String name) throws CannotFndNameDecl {
-		LinkedList<ScopedDecl> scopedDecls = symbolTable.get(nameSpace + name);
-		if ((scopedDecls == null) || (scopedDecls.isEmpty()))
-			throw new CannotFndNameDecl(nameSpace + name);
-		else
-			return scopedDecls.peekFirst().decl;
+		return fndDecl(nameSpace, Names.id(name));
+	}
+
+	/**
+	 * Returns the declaration of a name within all active scopes and within the
+	 * default namespace.
+	 *
+	 * @param nameId
+	 *            The id of the name the declaration is being looked for.
+	 * @return The declaration of the name.
+	 * @throws CannotFndNameDecl
+	 *             If the declaration is not found.
+	 */
+	public Decl fndDecl(int nameId) throws CannotFndNameDecl {
+		return fndDecl("#", nameId);
 	}
 
 	/**
@@ -204,7 +314,7 @@ public class SymbolTable {
 	 *             If the declaration is not found.
 	 */
 	public Decl fndDecl(String name) throws CannotFndNameDecl {
-		return fndDecl("#", name);
+		return fndDecl("#", Names.id(name));
 	}
 
 	// Namespaces.
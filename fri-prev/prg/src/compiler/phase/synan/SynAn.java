@@ -31,6 +31,7 @@ public class SynAn extends Phase {
     public SynAn(Task task) {
         super(task, "synan");
         this.lexAn = new LexAn(task);
+        ASTNode.resetIds();
         if (task.loggedPhases.equals("synan")) {
             this.logger.setTransformer(//
                     new Transformer() {
@@ -0,0 +1,51 @@
+package compiler.phase.trace;
+
+import compiler.*;
+import compiler.data.frg.*;
+import compiler.phase.*;
+
+/**
+ * Basic blocks and trace scheduling of the linearized intermediate code.
+ */
+public class Trace extends Phase {
+
+	/**
+	 * Constructs the phase that schedules the linearized intermediate code of
+	 * all code fragments.
+	 * 
+	 * @param task
+	 *            The parameters and internal data of the compilation process.
+	 */
+	public Trace(Task task) {
+		super(task, "trace");
+
+		for (Fragment fragment : task.fragments.values()) {
+			if ((fragment instanceof CodeFragment) && (((CodeFragment) fragment).linCode != null)) {
+				CodeFragment codeFragment = (CodeFragment) fragment;
+				TraceSchedule schedule = new TraceSchedule(codeFragment.linCode);
+				codeFragment.linCode = schedule.schedule();
+				task.stats.add("removedBranches", schedule.numRemovedBranches());
+			}
+		}
+	}
+
+	/**
+	 * Terminates trace scheduling. If logging has been requested, this method
+	 * produces the report containing the scheduled code fragments by closing
+	 * the logger.
+	 */
+	@Override
+	public void close() {
+		if (logger != null) {
+			for (Fragment fragment : task.fragments.values()) {
+				if (fragment instanceof CodeFragment) {
+					logger.begElement("fragment");
+					fragment.toXML(logger);
+					logger.endElement();
+				}
+			}
+		}
+		super.close();
+	}
+
+}
@@ -0,0 +1,348 @@
+package compiler.phase.trace;
+
+import java.util.*;
+
+import compiler.common.report.*;
+import compiler.data.imc.*;
+
+/**
+ * Basic blocks and trace scheduling of the linearized intermediate code of a
+ * single code fragment.
+ *
+ * <p>
+ * The linearized code is split into basic blocks, each starting with a label
+ * and ending with a jump. Jumps to blocks consisting of a single jump are
+ * redirected to the final destination, and blocks that cannot be reached from
+ * the first block are dropped. The remaining blocks are then ordered into
+ * traces: a trace continues with the negative (false) successor of a
+ * conditional jump if possible, or with the positive successor otherwise, so
+ * that one of the branches falls through. Finally, jumps to the immediately
+ * following label and labels that are no longer jumped to are removed. If the
+ * blocks in their original order need fewer branch instructions than the
+ * traces, the original order is kept.
+ * </p>
+ *
+ * <p>
+ * Every path through the fragment ends by falling off the end of the code,
+ * i.e., by jumping to a fresh exit label placed after all blocks.
+ * </p>
+ */
+public class TraceSchedule {
+
+	/** A basic block. */
+	private static class Block {
+
+		/** The label of the block. */
+		final String label;
+
+		/** The statements of the block (without the label and the jump). */
+		final Vector<IMCStmt> stmts = new Vector<IMCStmt>();
+
+		/** The jump ending the block (either a JUMP or a CJUMP). */
+		IMCStmt jump;
+
+		/** Whether the block has been scheduled or reached. */
+		boolean marked;
+
+		Block(String label) {
+			this.label = label;
+		}
+
+	}
+
+	/** The linearized code. */
+	private final STMTS linCode;
+
+	/** Basic blocks in the order they appear in the linearized code. */
+	private final Vector<Block> blocks = new Vector<Block>();
+
+	/** Basic blocks by their labels. */
+	private final HashMap<String, Block> blocksByLabel = new HashMap<String, Block>();
+
+	/** The label following the last block. */
+	private final String exitLabel = LABEL.newLabelName();
+
+	/** The number of branch instructions removed by scheduling. */
+	private int numRemovedBranches;
+
+	/**
+	 * Prepares trace scheduling of the linearized code of a fragment.
+	 *
+	 * @param linCode
+	 *            The linearized code.
+	 */
+	public TraceSchedule(STMTS linCode) {
+		this.linCode = linCode;
+	}
+
+	/**
+	 * Returns the number of branch instructions removed by scheduling, i.e.,
+	 * the difference between the number of branch instructions needed by the
+	 * original code without any fall-throughs (two for a conditional jump and
+	 * one for an unconditional jump) and the number of branch instructions the
+	 * code generator emits for the scheduled code.
+	 */
+	public int numRemovedBranches() {
+		return numRemovedBranches;
+	}
+
+	/**
+	 * Schedules the linearized code.
+	 *
+	 * @return The scheduled linearized code.
+	 */
+	public STMTS schedule() {
+		split();
+		thread();
+		reach();
+		Vector<IMCStmt> lc = emit(trace());
+
+		// Traces do not pay off if the original order of blocks already
+		// provides the same fall-throughs (as it often does for the code of
+		// loops and conditionals produced by the intermediate code generator).
+		Vector<IMCStmt> origLC = emit(blocks);
+		if (numBranches(origLC) < numBranches(lc))
+			lc = origLC;
+
+		numRemovedBranches = numUnscheduledBranches(linCode.stmts()) - numBranches(lc);
+		return new STMTS(lc);
+	}
+
+	/**
+	 * Returns the number of branch instructions the code generator emits for
+	 * the linearized code: a conditional jump takes a single branch if one of
+	 * its labels follows immediately and two otherwise, an unconditional jump
+	 * takes none if its label follows immediately and one otherwise.
+	 */
+	private static int numBranches(Vector<IMCStmt> lc) {
+		int numBranches = 0;
+		for (int s = 0; s < lc.size(); s++) {
+			IMCStmt next = (s + 1 < lc.size()) ? lc.get(s + 1) : null;
+			String nextLabel = (next instanceof LABEL) ? ((LABEL) next).label : null;
+			if (lc.get(s) instanceof JUMP)
+				numBranches += ((JUMP) lc.get(s)).label.equals(nextLabel) ? 0 : 1;
+			if (lc.get(s) instanceof CJUMP) {
+				CJUMP cjump = (CJUMP) lc.get(s);
+				numBranches += (cjump.posLabel.equals(nextLabel) || cjump.negLabel.equals(nextLabel)) ? 1 : 2;
+			}
+		}
+		return numBranches;
+	}
+
+	/**
+	 * Returns the number of branch instructions needed by the linearized code
+	 * if no jump falls through: two for a conditional jump (BP and JMP) and
+	 * one for an unconditional jump.
+	 */
+	private static int numUnscheduledBranches(Vector<IMCStmt> lc) {
+		int numBranches = 0;
+		for (IMCStmt stmt : lc) {
+			if (stmt instanceof JUMP)
+				numBranches += 1;
+			if (stmt instanceof CJUMP)
+				numBranches += 2;
+		}
+		return numBranches;
+	}
+
+	/**
+	 * Splits the linearized code into basic blocks.
+	 */
+	private void split() {
+		Block block = null;
+		for (int s = 0; s < linCode.numStmts(); s++) {
+			IMCStmt stmt = linCode.stmts(s);
+			if (stmt instanceof LABEL) {
+				String label = ((LABEL) stmt).label;
+				if (block != null)
+					block.jump = new JUMP(label);
+				block = newBlock(label);
+				continue;
+			}
+			if (block == null)
+				block = newBlock(LABEL.newLabelName());
+			if ((stmt instanceof JUMP) || (stmt instanceof CJUMP)) {
+				block.jump = stmt;
+				block = null;
+			} else
+				block.stmts.add(stmt);
+		}
+		if (block != null)
+			block.jump = new JUMP(exitLabel);
+		if (blocks.isEmpty())
+			newBlock(LABEL.newLabelName()).jump = new JUMP(exitLabel);
+	}
+
+	private Block newBlock(String label) {
+		Block block = new Block(label);
+		if (blocksByLabel.put(label, block) != null)
+			throw new InternalCompilerError();
+		blocks.add(block);
+		return block;
+	}
+
+	/**
+	 * Returns the final destination of a jump to the specified label, i.e.,
+	 * follows the chain of blocks consisting of a single unconditional jump.
+	 */
+	private String destination(String label) {
+		String dest = label;
+		for (int hop = 0; hop <= blocks.size(); hop++) {
+			Block block = blocksByLabel.get(dest);
+			if ((block == null) || !block.stmts.isEmpty() || !(block.jump instanceof JUMP))
+				return dest;
+			String next = ((JUMP) block.jump).label;
+			if (next.equals(label))
+				return dest;
+			dest = next;
+		}
+		// An infinite loop of jumps.
+		return label;
+	}
+
+	/**
+	 * Redirects all jumps to their final destinations.
+	 */
+	private void thread() {
+		for (Block block : blocks) {
+			if (block.jump instanceof JUMP) {
+				block.jump = new JUMP(destination(((JUMP) block.jump).label));
+				continue;
+			}
+			CJUMP cjump = (CJUMP) block.jump;
+			String posLabel = destination(cjump.posLabel);
+			String negLabel = destination(cjump.negLabel);
+			if (posLabel.equals(negLabel))
+				block.jump = new JUMP(posLabel);
+			else
+				block.jump = new CJUMP(cjump.cond, posLabel, negLabel);
+		}
+	}
+
+	/**
+	 * Drops all blocks that cannot be reached from the first block.
+	 */
+	private void reach() {
+		Stack<Block> reached = new Stack<Block>();
+		blocks.firstElement().marked = true;
+		reached.push(blocks.firstElement());
+		while (!reached.isEmpty()) {
+			Block block = reached.pop();
+			for (String label : successors(block)) {
+				Block succ = blocksByLabel.get(label);
+				if ((succ != null) && !succ.marked) {
+					succ.marked = true;
+					reached.push(succ);
+				}
+			}
+		}
+		Vector<Block> reachable = new Vector<Block>();
+		for (Block block : blocks) {
+			if (block.marked) {
+				block.marked = false;
+				reachable.add(block);
+			} else
+				blocksByLabel.remove(block.label);
+		}
+		blocks.clear();
+		blocks.addAll(reachable);
+	}
+
+	/**
+	 * Returns the labels of the successors of a block, the preferred
+	 * fall-through successor first.
+	 */
+	private String[] successors(Block block) {
+		if (block.jump instanceof JUMP)
+			return new String[] { ((JUMP) block.jump).label };
+		CJUMP cjump = (CJUMP) block.jump;
+		return new String[] { cjump.negLabel, cjump.posLabel };
+	}
+
+	/**
+	 * Orders the blocks into traces, starting with the first block. A trace
+	 * ends only once all successors of its last block have been scheduled, so
+	 * traces can be reordered freely: the trace ending with a jump to the exit
+	 * label is moved to the end where the jump is not needed (unless it is the
+	 * first trace which must remain first).
+	 */
+	private Vector<Block> trace() {
+		Vector<Block> order = new Vector<Block>();
+		Vector<Block> exitTrace = null;
+		for (Block head : blocks) {
+			Vector<Block> trace = new Vector<Block>();
+			Block block = head;
+			while ((block != null) && !block.marked) {
+				block.marked = true;
+				trace.add(block);
+				Block next = null;
+				for (String label : successors(block)) {
+					Block succ = blocksByLabel.get(label);
+					if ((succ != null) && !succ.marked) {
+						next = succ;
+						break;
+					}
+				}
+				block = next;
+			}
+			if ((exitTrace == null) && !order.isEmpty() && !trace.isEmpty()
+					&& (trace.lastElement().jump instanceof JUMP)
+					&& ((JUMP) trace.lastElement().jump).label.equals(exitLabel))
+				exitTrace = trace;
+			else
+				order.addAll(trace);
+		}
+		if (exitTrace != null)
+			order.addAll(exitTrace);
+		return order;
+	}
+
+	/**
+	 * Produces the linearized code of the scheduled blocks.
+	 */
+	private Vector<IMCStmt> emit(Vector<Block> order) {
+		Vector<IMCStmt> lc = new Vector<IMCStmt>();
+		HashSet<String> targets = new HashSet<String>();
+		for (int b = 0; b < order.size(); b++) {
+			Block block = order.get(b);
+			String nextLabel = (b + 1 < order.size()) ? order.get(b + 1).label : exitLabel;
+			lc.add(new LABEL(block.label));
+			lc.addAll(block.stmts);
+			if (block.jump instanceof JUMP) {
+				String label = ((JUMP) block.jump).label;
+				if (!label.equals(nextLabel)) {
+					lc.add(block.jump);
+					targets.add(label);
+				}
+				continue;
+			}
+			CJUMP cjump = (CJUMP) block.jump;
+			targets.add(cjump.posLabel);
+			targets.add(cjump.negLabel);
+			if (cjump.negLabel.equals(nextLabel) || cjump.posLabel.equals(nextLabel))
+				lc.add(cjump);
+			else {
+				// Neither branch falls through.
+				String negLabel = LABEL.newLabelName();
+				lc.add(new CJUMP(cjump.cond, cjump.posLabel, negLabel));
+				lc.add(new LABEL(negLabel));
+				lc.add(new JUMP(cjump.negLabel));
+				targets.add(negLabel);
+			}
+		}
+		if (targets.contains(exitLabel))
+			lc.add(new LABEL(exitLabel));
+
+		Vector<IMCStmt> cleanLC = new Vector<IMCStmt>();
+		for (IMCStmt stmt : lc) {
+			if ((stmt instanceof LABEL) && !targets.contains(((LABEL) stmt).label))
+				continue;
+			cleanLC.add(stmt);
+		}
+		// The code of a fragment is never empty.
+		if (cleanLC.isEmpty())
+			cleanLC.add(lc.firstElement());
+		return cleanLC;
+	}
+
+}
@@ -0,0 +1,18 @@
+/**
+ * Basic blocks and trace scheduling of the linearized intermediate code.
+ * 
+ * <p>
+ * The linearized code of each code fragment is split into basic blocks which
+ * are then reordered so that the negative branch of a conditional jump falls
+ * through whenever possible; jump chains, unreachable blocks, redundant jumps
+ * and unused labels are removed on the way. The code generator emits a single
+ * branch for a conditional jump one of whose labels follows it immediately.
+ * </p>
+ * 
+ * <p>
+ * If trace is the last phase performed, the program is executed on the
+ * scheduled code by the interpreter, as it is on the linearized code if
+ * lincode is the last phase.
+ * </p>
+ */
+package compiler.phase.trace;
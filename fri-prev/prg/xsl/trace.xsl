@@ -0,0 +1,80 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+
+<xsl:template match="report">
+  <html>
+    <style>
+      table, tr, td {
+      text-align: center;
+      vertical-align: top;
+      }
+    </style>
+    <body>
+      <table>
+	<xsl:for-each select="fragment">
+	  <tr>
+	    <td>
+	      <xsl:apply-templates select="."/>
+	    </td>
+	  </tr>
+	</xsl:for-each>
+      </table>
+    </body>
+  </html>
+</xsl:template>
+
+<xsl:template match="fragment">
+  <table style="width:100%;background-color:#1FB1FE;border:3px solid #FCF265;font-size:80%">
+    <tr>
+      <xsl:apply-templates select="frg"/>
+    </tr>
+  </table>
+</xsl:template>
+
+<xsl:template match="frg">
+  <td>
+    <table style="width:100%;font-size:100%">
+      <tr>
+	<td colspan="100">
+	  <span style="white-space:nowrap">
+	    <text>&#xA0;</text>
+	    <xsl:value-of select="@kind"/>
+	    <text>&#xA0;</text>
+	  </span>
+	</td>
+      </tr>
+      <tr>
+	<xsl:apply-templates select="imc"/>
+      </tr>
+    </table>
+  </td>
+</xsl:template>
+
+<xsl:template match="imcode">
+  <table style="width:100%;background-color:#8CD5FE;border:3px solid #FCF265;width:100%;font-size:80%">
+    <tr>
+      <xsl:apply-templates select="imc"/>
+    </tr>
+  </table>
+</xsl:template>
+
+<xsl:template match="imc">
+  <td>
+    <table style="width:100%;border:1px solid black;width:100%;font-size:100%">
+      <tr>
+	<td colspan="100">
+	  <span style="white-space:nowrap">
+	    <text>&#xA0;</text>
+	    <xsl:value-of select="@kind"/>
+	    <text>&#xA0;</text>
+	  </span>
+	</td>
+      </tr>
+      <tr>
+	<xsl:apply-templates select="imc"/>
+      </tr>
+    </table>
+  </td>
+</xsl:template>
+
+</xsl:stylesheet>